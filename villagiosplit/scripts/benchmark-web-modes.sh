@@ -0,0 +1,89 @@
+#!/usr/bin/env bash
+#
+# Compara os modos do servidor com o mesmo heap: servlet (Tomcat, padrão),
+# reactive (Netty, perfil "reactive") e virtual (Tomcat + transporte bloqueante em
+# virtual threads, perfil "virtual"; só usa virtual threads se o java for 21+).
+# Sobe o jar em cada modo, aquece, dispara N requisições com C conexões
+# simultâneas (curl --parallel) e mostra vazão, latência, threads e RSS.
+#
+# Uso (a partir de villagiosplit/, depois de ./mvnw package):
+#   HEAP=256m REQUESTS=20000 CONCURRENCY=200 scripts/benchmark-web-modes.sh
+#
+# Variáveis:
+#   JAR          jar da aplicação (padrão: target/villagiosplit-*.jar)
+#   HEAP         -Xms/-Xmx iguais em todos os modos (padrão: 256m)
+#   REQUESTS     requisições por modo (padrão: 20000)
+#   CONCURRENCY  conexões simultâneas (padrão: 200)
+#   MODES        modos medidos, nome:perfil (padrão: "servlet:default reactive:reactive virtual:virtual")
+#   URL_PATH     rota medida (padrão: lista de clientes sem cache, vai até a Pagar.me)
+#   APP_ARGS     argumentos extras da aplicação, ex.: --pagarme.base-url=http://sandbox:9999/core/v5
+#
+# As secret keys das filiais vêm do ambiente, como em produção.
+set -euo pipefail
+
+JAR=${JAR:-$(ls target/villagiosplit-*.jar | head -1)}
+HEAP=${HEAP:-256m}
+REQUESTS=${REQUESTS:-20000}
+CONCURRENCY=${CONCURRENCY:-200}
+PORT=${PORT:-8080}
+URL_PATH=${URL_PATH:-/customers?filialId=brauna&size=10}
+APP_ARGS=${APP_ARGS:-}
+MODES=${MODES:-"servlet:default reactive:reactive virtual:virtual"}
+
+pid=
+trap '[[ -n $pid ]] && kill "$pid" 2>/dev/null; true' EXIT
+
+run_mode() {
+    local mode=$1 profile=$2
+    local log stats
+
+    log=$(mktemp)
+    stats=$(mktemp)
+    # shellcheck disable=SC2086
+    java -Xms"$HEAP" -Xmx"$HEAP" -jar "$JAR" --server.port="$PORT" --spring.profiles.active="$profile" \
+        --customers.cache.enabled=false --orders.poller.enabled=false --customers.index.warmup=false $APP_ARGS \
+        >"$log" 2>&1 &
+    pid=$!
+
+    for _ in $(seq 1 60); do
+        curl -s -o /dev/null "http://localhost:$PORT/actuator/health" && break
+        sleep 1
+    done
+
+    local sep='?'
+    [[ $URL_PATH == *\?* ]] && sep='&'
+    local url="http://localhost:$PORT$URL_PATH${sep}bench=[1-$REQUESTS]"
+    local warmup="http://localhost:$PORT$URL_PATH${sep}bench=[1-$((REQUESTS / 10 + 1))]"
+
+    curl -s --no-progress-meter -Z --parallel-max "$CONCURRENCY" "$warmup" >/dev/null 2>&1 || true
+
+    local start end
+    start=$(date +%s.%N)
+    curl -s --no-progress-meter -Z --parallel-max "$CONCURRENCY" -w '%{stderr}%{http_code} %{time_total}\n' "$url" >/dev/null 2>"$stats" || true
+    end=$(date +%s.%N)
+
+    local threads rss
+    threads=$(awk '/^Threads:/ {print $2}' "/proc/$pid/status" 2>/dev/null || echo "?")
+    rss=$(awk '/^VmRSS:/ {printf "%d MB", $2 / 1024}' "/proc/$pid/status" 2>/dev/null || echo "?")
+
+    sort -k2 -n "$stats" | awk -v mode="$mode" -v elapsed="$(awk -v s="$start" -v e="$end" 'BEGIN { print e - s }')" \
+        -v threads="$threads" -v rss="$rss" '
+        $1 ~ /^[0-9]+$/ { n++; lat[n] = $2; if ($1 != 200) errors++ }
+        END {
+            errors += 0
+            printf "%-8s %8d req %8.0f req/s  p50 %6.1f ms  p99 %7.1f ms  erros %d  threads %s  rss %s\n",
+                mode, n, n / elapsed, lat[int(n * 0.50)] * 1000, lat[int(n * 0.99)] * 1000,
+                errors, threads, rss
+        }'
+
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    pid=
+    rm -f "$log" "$stats"
+}
+
+echo "heap=$HEAP requests=$REQUESTS concurrency=$CONCURRENCY path=$URL_PATH"
+"$(command -v java)" -version 2>&1 | head -1
+for entry in $MODES; do
+    run_mode "${entry%%:*}" "${entry#*:}"
+done
@@ -0,0 +1,97 @@
+#!/usr/bin/env bash
+#
+# Prova o isolamento por filial (filiais.bulkhead): mede a latência de uma filial
+# saudável sozinha e depois com outra filial afogada em chamadas a uma Pagar.me
+# lenta. Com os bulkheads, a latência da filial saudável não deve mudar; a
+# saturação (pagarme.bulkhead.*) aparece só na filial lenta.
+#
+# Uso (a partir de villagiosplit/, com a aplicação já rodando contra um upstream
+# em que a conta da SLOW_FILIAL responde devagar, ex.: um sandbox com atraso):
+#   SLOW_FILIAL=minas-gerais FAST_FILIAL=brauna scripts/load-test-bulkhead.sh
+#
+# Suba a aplicação com --customers.cache.enabled=false --customers.index.warmup=false
+# para que cada requisição vá até a Pagar.me (cada uma usa um filtro name diferente,
+# então também não são coalescidas).
+#
+# Variáveis:
+#   BASE_URL          aplicação (padrão: http://localhost:8080)
+#   SLOW_FILIAL       filial afogada (padrão: minas-gerais)
+#   FAST_FILIAL       filial medida (padrão: brauna)
+#   SLOW_REQUESTS     requisições disparadas na filial lenta (padrão: 2000)
+#   SLOW_CONCURRENCY  conexões simultâneas na filial lenta (padrão: 300)
+#   FAST_REQUESTS     requisições medidas na filial saudável (padrão: 500)
+#   FAST_CONCURRENCY  conexões simultâneas na filial saudável (padrão: 20)
+set -euo pipefail
+
+BASE_URL=${BASE_URL:-http://localhost:8080}
+SLOW_FILIAL=${SLOW_FILIAL:-minas-gerais}
+FAST_FILIAL=${FAST_FILIAL:-brauna}
+SLOW_REQUESTS=${SLOW_REQUESTS:-2000}
+SLOW_CONCURRENCY=${SLOW_CONCURRENCY:-300}
+FAST_REQUESTS=${FAST_REQUESTS:-500}
+FAST_CONCURRENCY=${FAST_CONCURRENCY:-20}
+
+flood=
+trap '[[ -n $flood ]] && kill "$flood" 2>/dev/null; true' EXIT
+
+# Dispara requisições em paralelo e mostra p50/p99 e erros
+measure() {
+    local label=$1 filial=$2 requests=$3 concurrency=$4
+    local stats
+    stats=$(mktemp)
+    curl -s --no-progress-meter -Z --parallel-max "$concurrency" -w '%{stderr}%{http_code} %{time_total}\n' \
+        "$BASE_URL/customers?filialId=$filial&size=10&name=load[1-$requests]" >/dev/null 2>"$stats" || true
+    sort -k2 -n "$stats" | awk -v label="$label" '
+        $1 ~ /^[0-9]+$/ { n++; lat[n] = $2; if ($1 != 200) errors++ }
+        END {
+            errors += 0
+            printf "%-28s %6d req  p50 %7.1f ms  p99 %7.1f ms  erros %d\n",
+                label, n, lat[int(n * 0.50) + 0] * 1000, lat[int(n * 0.99) + 0] * 1000, errors
+        }'
+    rm -f "$stats"
+}
+
+metric() {
+    local name=$1 filial=$2 extra=${3:-}
+    curl -s "$BASE_URL/actuator/metrics/$name?tag=filial:$filial$extra" \
+        | grep -o '"statistic":"[A-Z]*","value":[0-9.E-]*' | head -1 | sed 's/.*"value"://'
+}
+
+bulkhead_state() {
+    local filial
+    for filial in "$SLOW_FILIAL" "$FAST_FILIAL"; do
+        printf "  %-14s ativas %-5s fila %-5s saturação %-6s liberadas %-7s após fila %-7s recusadas %s\n" "$filial" \
+            "$(metric pagarme.bulkhead.active "$filial")" \
+            "$(metric pagarme.bulkhead.queued "$filial")" \
+            "$(metric pagarme.bulkhead.saturation "$filial")" \
+            "$(metric pagarme.bulkhead "$filial" '&tag=result:immediate')" \
+            "$(metric pagarme.bulkhead "$filial" '&tag=result:queued')" \
+            "$(metric pagarme.bulkhead "$filial" '&tag=result:rejected')"
+    done
+}
+
+echo "lenta=$SLOW_FILIAL ($SLOW_REQUESTS req, $SLOW_CONCURRENCY simultâneas)  medida=$FAST_FILIAL ($FAST_REQUESTS req, $FAST_CONCURRENCY simultâneas)"
+
+measure "$FAST_FILIAL sozinha" "$FAST_FILIAL" "$FAST_REQUESTS" "$FAST_CONCURRENCY"
+
+curl -s --no-progress-meter -Z --parallel-max "$SLOW_CONCURRENCY" -o /dev/null \
+    "$BASE_URL/customers?filialId=$SLOW_FILIAL&size=10&name=flood[1-$SLOW_REQUESTS]" >/dev/null 2>&1 &
+flood=$!
+
+# Espera a filial lenta encher as permissões (curl abre as conexões aos poucos)
+for _ in $(seq 1 30); do
+    saturation=$(metric pagarme.bulkhead.saturation "$SLOW_FILIAL")
+    awk -v s="${saturation:-0}" 'BEGIN { exit !(s >= 1) }' && break
+    sleep 1
+done
+
+echo "bulkheads com $SLOW_FILIAL saturada:"
+bulkhead_state
+measure "$FAST_FILIAL com $SLOW_FILIAL lenta" "$FAST_FILIAL" "$FAST_REQUESTS" "$FAST_CONCURRENCY"
+
+kill "$flood" 2>/dev/null || true
+wait "$flood" 2>/dev/null || true
+flood=
+
+echo "bulkheads no fim:"
+bulkhead_state
@@ -0,0 +1,100 @@
+package com.villaggiogirotto.split.villagiosplit.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.RestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Transporte bloqueante: RestClient sobre o java.net.http.HttpClient da filial
+ * (pool de conexões keep-alive do próprio JDK).
+ *
+ * Cada chamada roda inteira numa thread do scheduler recebido. Com
+ * spring.threads.virtual.enabled em Java 21 ele cria uma virtual thread por
+ * chamada, que estaciona barato enquanto espera a Pagar.me; fora disso cai no
+ * boundedElastic do Reactor (threads de plataforma, limitadas).
+ *
+ * O passthrough (stream) lê a resposta inteira antes de entregá-la.
+ */
+class BlockingPagarmeClient extends PagarmeClient {
+
+    private final RestClient restClient;
+    private final Scheduler scheduler;
+
+    BlockingPagarmeClient(String filialId, String secretKey, String poolName, RestClient restClient,
+                          Scheduler scheduler, ObjectMapper objectMapper, RequestCoalescer readCoalescer,
+                          PagarmeResilience resilience, PagarmeRateLimiter rateLimiter, PagarmeBulkhead bulkhead) {
+        super(filialId, secretKey, poolName, objectMapper, readCoalescer, resilience, rateLimiter, bulkhead);
+        this.restClient = restClient;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public String getTransport() {
+        return "blocking";
+    }
+
+    @Override
+    int getMaxConnections() {
+        return -1;
+    }
+
+    @Override
+    protected <T> Mono<T> exchange(HttpMethod method, String uri, Object body, ResponseReader<T> reader) {
+        return Mono.fromCallable(() -> restClient.method(method)
+                        .uri(uri)
+                        .body(toJsonBytes(body))
+                        .exchange((request, response) -> {
+                            try (InputStream in = response.getBody()) {
+                                if (response.getStatusCode().isError()) {
+                                    throw apiError(response.getStatusCode(), StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+                                }
+                                return read(in, reader);
+                            }
+                        }))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    protected Mono<byte[]> fetch(String uri) {
+        return Mono.fromCallable(() -> restClient.get()
+                        .uri(uri)
+                        .exchange((request, response) -> readBody(response.getStatusCode(), response.getBody())))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    protected Mono<Flux<DataBuffer>> open(String uri) {
+        return fetch(uri).map(body -> Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body))));
+    }
+
+    @Override
+    Mono<Void> warmup() {
+        return Mono.empty();
+    }
+
+    @Override
+    void dispose() {
+        // O HttpClient do JDK fecha as conexões ociosas sozinho quando deixa de ser referenciado
+    }
+
+    private byte[] readBody(HttpStatusCode status, InputStream body) throws IOException {
+        try (InputStream in = body) {
+            byte[] bytes = in.readAllBytes();
+            if (status.isError()) {
+                throw apiError(status, new String(bytes, StandardCharsets.UTF_8));
+            }
+            return bytes;
+        }
+    }
+}
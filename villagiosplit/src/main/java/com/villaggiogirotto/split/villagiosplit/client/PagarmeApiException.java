@@ -0,0 +1,26 @@
+package com.villaggiogirotto.split.villagiosplit.client;
+
+/**
+ * Resposta de erro (4xx/5xx) da API Pagar.me, com o status HTTP.
+ * A mensagem mantém o formato "Erro na API Pagar.me [status]: corpo".
+ */
+public class PagarmeApiException extends RuntimeException {
+
+    private final int status;
+
+    public PagarmeApiException(int status, String statusText, String body) {
+        super("Erro na API Pagar.me [" + statusText + "]: " + body);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Erros que indicam problema do lado da Pagar.me (5xx) ou limite de taxa (429)
+     */
+    public boolean isUpstreamFailure() {
+        return status >= 500 || status == 429;
+    }
+}
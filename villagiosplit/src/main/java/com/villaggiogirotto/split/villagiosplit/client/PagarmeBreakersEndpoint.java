@@ -0,0 +1,51 @@
+package com.villaggiogirotto.split.villagiosplit.client;
+
+import com.villaggiogirotto.split.villagiosplit.config.PagarmeResilienceConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Estado dos circuit breakers da Pagar.me, por filial e endpoint
+ * GET /actuator/pagarmebreakers
+ */
+@Component
+@Endpoint(id = "pagarmebreakers")
+public class PagarmeBreakersEndpoint {
+
+    private final PagarmeResilience resilience;
+    private final PagarmeResilienceConfig config;
+
+    public PagarmeBreakersEndpoint(PagarmeResilience resilience, PagarmeResilienceConfig config) {
+        this.resilience = resilience;
+        this.config = config;
+    }
+
+    @ReadOperation
+    public Map<String, Object> breakers() {
+        Map<String, Object> breakers = new TreeMap<>();
+        for (CircuitBreaker breaker : resilience.getBreakers()) {
+            CircuitBreaker.Metrics metrics = breaker.getMetrics();
+            Map<String, Object> state = new HashMap<>();
+            state.put("state", breaker.getState().name());
+            state.put("failureRate", metrics.getFailureRate());
+            state.put("slowCallRate", metrics.getSlowCallRate());
+            state.put("bufferedCalls", metrics.getNumberOfBufferedCalls());
+            state.put("failedCalls", metrics.getNumberOfFailedCalls());
+            state.put("slowCalls", metrics.getNumberOfSlowCalls());
+            state.put("notPermittedCalls", metrics.getNumberOfNotPermittedCalls());
+            breakers.put(breaker.getName(), state);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("enabled", config.isEnabled());
+        response.put("deadline", config.getDeadline().toString());
+        response.put("breakers", breakers);
+        return response;
+    }
+}
@@ -0,0 +1,239 @@
+package com.villaggiogirotto.split.villagiosplit.client;
+
+import com.villaggiogirotto.split.villagiosplit.config.FiliaisConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bulkhead de uma filial: limita as chamadas simultâneas à Pagar.me e enfileira
+ * as excedentes, sem bloquear threads. Uma filial com a Pagar.me lenta ou
+ * estrangulada ocupa só as próprias permissões (e o próprio pool de conexões,
+ * montado pelo {@link PagarmeClientRegistry}); as outras seguem atendendo.
+ *
+ * A fila é FIFO e limitada: com ela cheia, ou depois de maxWait esperando,
+ * a chamada falha na hora em vez de ocupar memória e o prazo de quem chamou.
+ * Recusas do bulkhead não contam no circuit breaker: são saturação local,
+ * não falha da Pagar.me.
+ *
+ * Fica preso ao ID da filial, como os breakers: sobrevive à troca de cliente
+ * e aceita novos limites a quente (recarga de filiais).
+ *
+ * Métricas: pagarme.bulkhead{filial, result=immediate|queued|rejected},
+ * pagarme.bulkhead.active, pagarme.bulkhead.queued, pagarme.bulkhead.saturation
+ * (ativas / limite) e pagarme.bulkhead.wait{filial}
+ */
+final class PagarmeBulkhead {
+
+    private final String filialId;
+    private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+    private final Counter immediate;
+    private final Counter queued;
+    private final Counter rejected;
+    private final Timer waitTimer;
+    private final List<Meter> meters = new ArrayList<>();
+    private volatile FiliaisConfig.BulkheadConfig config;
+    private int active;
+
+    PagarmeBulkhead(String filialId, FiliaisConfig.BulkheadConfig config, MeterRegistry meterRegistry) {
+        this.filialId = filialId;
+        this.config = config;
+        this.immediate = meter(counter(meterRegistry, "immediate"));
+        this.queued = meter(counter(meterRegistry, "queued"));
+        this.rejected = meter(counter(meterRegistry, "rejected"));
+        this.waitTimer = meter(Timer.builder("pagarme.bulkhead.wait")
+                .description("Espera na fila do bulkhead da filial")
+                .tag("filial", filialId)
+                .register(meterRegistry));
+        meter(Gauge.builder("pagarme.bulkhead.active", this, PagarmeBulkhead::getActive)
+                .tag("filial", filialId)
+                .register(meterRegistry));
+        meter(Gauge.builder("pagarme.bulkhead.queued", this, PagarmeBulkhead::getQueued)
+                .tag("filial", filialId)
+                .register(meterRegistry));
+        meter(Gauge.builder("pagarme.bulkhead.saturation", this, PagarmeBulkhead::getSaturation)
+                .tag("filial", filialId)
+                .register(meterRegistry));
+    }
+
+    /**
+     * A filial saiu da configuração: some das métricas
+     */
+    void removeMetrics(MeterRegistry meterRegistry) {
+        meters.forEach(meterRegistry::remove);
+    }
+
+    /**
+     * Aplica novos limites. Se o limite subiu, libera quem estava na fila;
+     * se desceu, as chamadas em andamento terminam e as próximas esperam.
+     */
+    void configure(FiliaisConfig.BulkheadConfig config) {
+        this.config = config;
+        grantWaiting();
+    }
+
+    FiliaisConfig.BulkheadConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Executa a chamada (fria) dentro de uma permissão da filial
+     */
+    <T> Mono<T> run(Mono<T> call) {
+        if (!Boolean.TRUE.equals(config.getEnabled())) {
+            return call;
+        }
+        return acquire()
+                .flatMap(permit -> call.doFinally(signal -> permit.release()))
+                .doOnDiscard(Permit.class, Permit::release); // Vez entregue a quem já tinha cancelado
+    }
+
+    synchronized int getActive() {
+        return active;
+    }
+
+    synchronized int getQueued() {
+        return queue.size();
+    }
+
+    double getSaturation() {
+        return getActive() / (double) Math.max(config.getMaxConcurrentCalls(), 1);
+    }
+
+    private Mono<Permit> acquire() {
+        return Mono.create(sink -> {
+            FiliaisConfig.BulkheadConfig current = config;
+            Waiter waiter = null;
+            boolean granted = false;
+            synchronized (this) {
+                if (active < current.getMaxConcurrentCalls() && queue.isEmpty()) {
+                    active++;
+                    granted = true;
+                } else if (queue.size() < current.getMaxQueuedCalls()) {
+                    waiter = new Waiter(sink);
+                    queue.add(waiter);
+                }
+            }
+
+            if (granted) {
+                immediate.increment();
+                sink.success(new Permit());
+                return;
+            }
+            if (waiter == null) {
+                rejected.increment();
+                sink.error(saturated("fila cheia"));
+                return;
+            }
+
+            Waiter enqueued = waiter;
+            sink.onCancel(() -> {
+                if (!dequeue(enqueued)) {
+                    enqueued.permit.release(); // Recebeu a vez junto com o cancelamento
+                }
+            });
+            enqueued.timeout = Schedulers.parallel().schedule(() -> {
+                if (dequeue(enqueued)) {
+                    rejected.increment();
+                    enqueued.sink.error(saturated("espera passou de " + current.getMaxWait()));
+                }
+            }, current.getMaxWait().toNanos(), TimeUnit.NANOSECONDS);
+        });
+    }
+
+    private synchronized boolean dequeue(Waiter waiter) {
+        return queue.remove(waiter);
+    }
+
+    /**
+     * Devolve uma permissão: passa direto para o primeiro da fila, se o limite ainda comportar
+     */
+    private void release() {
+        Waiter next;
+        synchronized (this) {
+            next = active <= config.getMaxConcurrentCalls() ? queue.poll() : null;
+            if (next == null) {
+                active--;
+            }
+        }
+        if (next != null) {
+            grant(next);
+        }
+    }
+
+    private void grantWaiting() {
+        while (true) {
+            Waiter next;
+            synchronized (this) {
+                if (active >= config.getMaxConcurrentCalls() || (next = queue.poll()) == null) {
+                    return;
+                }
+                active++;
+            }
+            grant(next);
+        }
+    }
+
+    private void grant(Waiter waiter) {
+        Disposable timeout = waiter.timeout;
+        if (timeout != null) {
+            timeout.dispose();
+        }
+        queued.increment();
+        waitTimer.record(System.nanoTime() - waiter.enqueuedAt, TimeUnit.NANOSECONDS);
+        waiter.sink.success(waiter.permit);
+    }
+
+    private <M extends Meter> M meter(M meter) {
+        meters.add(meter);
+        return meter;
+    }
+
+    private Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("pagarme.bulkhead")
+                .description("Chamadas à Pagar.me liberadas na hora, após fila ou recusadas pelo bulkhead da filial")
+                .tags("filial", filialId, "result", result)
+                .register(meterRegistry);
+    }
+
+    private RuntimeException saturated(String reason) {
+        return new RuntimeException("Filial " + filialId + " com muitas chamadas simultâneas à Pagar.me ("
+                + reason + "); tente novamente em instantes");
+    }
+
+    /**
+     * Vez de uma chamada; devolvida uma única vez, por quem terminar primeiro
+     */
+    private final class Permit {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                PagarmeBulkhead.this.release();
+            }
+        }
+    }
+
+    private final class Waiter {
+        private final MonoSink<Permit> sink;
+        private final Permit permit = new Permit();
+        private final long enqueuedAt = System.nanoTime();
+        private volatile Disposable timeout;
+
+        private Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+    }
+}
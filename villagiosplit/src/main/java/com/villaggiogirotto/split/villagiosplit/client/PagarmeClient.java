@@ -0,0 +1,223 @@
+package com.villaggiogirotto.split.villagiosplit.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Cliente HTTP de uma filial para a API Pagar.me.
+ *
+ * Instâncias são criadas pelo {@link PagarmeClientRegistry} e ficam presas
+ * ao snapshot de filiais em vigor: o header Authorization e o pool de conexões
+ * são montados uma única vez e reaproveitados por todas as requisições da filial.
+ *
+ * O corpo das respostas chega como bytes e é entregue a um {@link ResponseReader};
+ * os métodos sem reader devolvem a árvore JSON completa.
+ *
+ * Leituras com o corpo inteiro (get/getBytes) passam por um {@link RequestCoalescer}:
+ * chamadas idênticas simultâneas compartilham uma única requisição à Pagar.me.
+ * O passthrough ({@link #stream}) não é coalescido.
+ *
+ * O transporte fica nas subclasses (pagarme.http.transport): {@link ReactorPagarmeClient}
+ * (WebClient sobre Reactor Netty, padrão) ou {@link BlockingPagarmeClient}
+ * (RestClient sobre o HttpClient do JDK, para rodar em virtual threads).
+ * Os serviços só enxergam esta API.
+ *
+ * Toda chamada espera a sua vez no {@link PagarmeRateLimiter} da conta e passa
+ * pela {@link PagarmeResilience} (prazo total, circuit breaker e, para GET e PUT,
+ * retentativas), com cada tentativa dentro do {@link PagarmeBulkhead} da filial;
+ * nas leituras isso fica dentro do coalescer, então chamadas coalescidas
+ * compartilham também a vez e as retentativas.
+ */
+public abstract class PagarmeClient {
+
+    private final String filialId;
+    private final String secretKey;
+    private final String poolName;
+    private final ObjectMapper objectMapper;
+    private final ResponseReader<JsonNode> treeReader;
+    private final RequestCoalescer readCoalescer;
+    private final PagarmeResilience resilience;
+    private final PagarmeRateLimiter rateLimiter;
+    private final PagarmeBulkhead bulkhead;
+
+    PagarmeClient(String filialId, String secretKey, String poolName, ObjectMapper objectMapper,
+                  RequestCoalescer readCoalescer, PagarmeResilience resilience, PagarmeRateLimiter rateLimiter,
+                  PagarmeBulkhead bulkhead) {
+        this.filialId = filialId;
+        this.secretKey = secretKey;
+        this.poolName = poolName;
+        this.objectMapper = objectMapper;
+        this.treeReader = objectMapper::readTree;
+        this.readCoalescer = readCoalescer;
+        this.resilience = resilience;
+        this.rateLimiter = rateLimiter;
+        this.bulkhead = bulkhead;
+    }
+
+    public Mono<JsonNode> post(String uri, Object body) {
+        return post(uri, body, treeReader);
+    }
+
+    public Mono<JsonNode> put(String uri, Object body) {
+        return put(uri, body, treeReader);
+    }
+
+    public Mono<JsonNode> get(String uri) {
+        return get(uri, treeReader);
+    }
+
+    public <T> Mono<T> post(String uri, Object body, ResponseReader<T> reader) {
+        return guarded(uri, false, exchange(HttpMethod.POST, uri, body, reader));
+    }
+
+    public <T> Mono<T> put(String uri, Object body, ResponseReader<T> reader) {
+        return guarded(uri, true, exchange(HttpMethod.PUT, uri, body, reader));
+    }
+
+    public <T> Mono<T> get(String uri, ResponseReader<T> reader) {
+        // Os bytes são compartilhados entre chamadas coalescidas; cada uma faz o seu parse
+        return getBytes(uri).handle((body, sink) -> {
+            T value = read(body, reader);
+            if (value != null) {
+                sink.next(value);
+            }
+        });
+    }
+
+    /**
+     * GET devolvendo o corpo da resposta em bytes, como veio da API.
+     * O array pode ser compartilhado com outras chamadas e não deve ser alterado.
+     */
+    public Mono<byte[]> getBytes(String uri) {
+        return readCoalescer.coalesce("GET " + uri,
+                () -> guarded(uri, true, fetch(uri)));
+    }
+
+    /**
+     * GET sem decodificar o corpo: emite assim que o status da resposta é conhecido
+     * (erros já viram RuntimeException) e entrega os buffers como chegam da rede.
+     *
+     * Não passa pelo coalescer: compartilhar o corpo exigiria copiar e guardar a
+     * resposta inteira. Quem recebe o Flux deve assiná-lo uma vez e liberar cada
+     * buffer; enquanto ninguém lê, a conexão fica presa à resposta.
+     */
+    public Mono<Flux<DataBuffer>> stream(String uri) {
+        return guarded(uri, true, open(uri));
+    }
+
+    /**
+     * Leituras em andamento no coalescer
+     */
+    int getInFlightReads() {
+        return readCoalescer.inFlight();
+    }
+
+    public String getFilialId() {
+        return filialId;
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    /**
+     * "netty" ou "blocking", conforme pagarme.http.transport
+     */
+    public abstract String getTransport();
+
+    /**
+     * Limite de conexões do pool (-1 quando o transporte não impõe limite)
+     */
+    abstract int getMaxConnections();
+
+    boolean usesSecretKey(String key) {
+        return secretKey.equals(key);
+    }
+
+    /**
+     * Requisição com corpo (POST/PUT) cuja resposta é entregue ao reader
+     */
+    protected abstract <T> Mono<T> exchange(HttpMethod method, String uri, Object body, ResponseReader<T> reader);
+
+    /**
+     * GET devolvendo o corpo inteiro, sem coalescer
+     */
+    protected abstract Mono<byte[]> fetch(String uri);
+
+    /**
+     * GET devolvendo o corpo em buffers, sem coalescer; o Flux é lido uma única vez
+     * e quem o assina libera cada buffer
+     */
+    protected abstract Mono<Flux<DataBuffer>> open(String uri);
+
+    /**
+     * Inicializa o que for caro (event loops, DNS, codecs) antes do primeiro uso
+     */
+    abstract Mono<Void> warmup();
+
+    abstract void dispose();
+
+    /**
+     * Vez no limite de requisições, bulkhead, breaker, retentativas e prazo; um 429 esvazia o balde da conta
+     */
+    private <T> Mono<T> guarded(String uri, boolean idempotent, Mono<T> call) {
+        PagarmeEndpoint endpoint = PagarmeEndpoint.of(uri);
+        Mono<T> attempt = call.doOnError(PagarmeApiException.class, ex -> {
+            if (ex.getStatus() == 429) {
+                rateLimiter.throttled(secretKey, endpoint);
+            }
+        });
+        return resilience.decorate(filialId, endpoint, idempotent, rateLimiter.acquire(secretKey, endpoint),
+                bulkhead, attempt);
+    }
+
+    protected PagarmeApiException apiError(HttpStatusCode status, String errorBody) {
+        return new PagarmeApiException(status.value(), status.toString(), errorBody);
+    }
+
+    protected <T> T read(byte[] body, ResponseReader<T> reader) {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            return reader.read(parser);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    protected <T> T read(InputStream body, ResponseReader<T> reader) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            return reader.read(parser);
+        }
+    }
+
+    protected <T> T read(DataBuffer buffer, ResponseReader<T> reader) {
+        try {
+            return read(buffer.asInputStream(), reader);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            DataBufferUtils.release(buffer); // Devolve o buffer ao pool do Netty
+        }
+    }
+
+    protected byte[] toJsonBytes(Object body) {
+        if (body instanceof byte[] bytes) {
+            return bytes; // Payloads já serializados pelos PayloadWriters
+        }
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.villaggiogirotto.split.villagiosplit.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.villaggiogirotto.split.villagiosplit.config.FiliaisConfig;
+import com.villaggiogirotto.split.villagiosplit.config.PagarmeHttpConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registro compartilhado de clientes HTTP da Pagar.me, um por filial.
+ *
+ * Substitui o antigo createWebClient de cada serviço, que montava um
+ * WebClient novo (e recodificava a secret key) a cada chamada. Os clientes
+ * ativos ficam anexados às filiais do snapshot do {@code FilialRegistry}.
+ *
+ * Cada filial é um compartimento isolado (filiais.bulkhead, com exceções por
+ * unidade): pool de conexões e fila de espera por conexão próprios, event loops
+ * próprios se configurado, e um {@link PagarmeBulkhead} com as permissões de
+ * chamadas simultâneas. Uma filial com a Pagar.me lenta não segura as outras.
+ */
+@Component
+public class PagarmeClientRegistry {
+
+    private static final Duration WARMUP_TIMEOUT = Duration.ofSeconds(10);
+
+    @Value("${pagarme.base-url}")
+    private String baseUrl;
+
+    private final PagarmeHttpConfig httpConfig;
+    private final WebClient.Builder webClientBuilder;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final PagarmeResilience resilience;
+    private final PagarmeRateLimiter rateLimiter;
+    private final Map<PagarmeClient, FiliaisConfig.BulkheadConfig> clients = new ConcurrentHashMap<>();
+    private final Map<String, PagarmeBulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final SimpleAsyncTaskExecutor virtualThreads;
+    private final Scheduler blockingScheduler;
+
+    public PagarmeClientRegistry(PagarmeHttpConfig httpConfig, WebClient.Builder webClientBuilder,
+                                 ObjectMapper objectMapper, MeterRegistry meterRegistry, PagarmeResilience resilience,
+                                 PagarmeRateLimiter rateLimiter, Environment environment) {
+        this.httpConfig = httpConfig;
+        this.webClientBuilder = webClientBuilder;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.resilience = resilience;
+        this.rateLimiter = rateLimiter;
+
+        // Transporte bloqueante: uma virtual thread por chamada quando disponível (Java 21 +
+        // spring.threads.virtual.enabled), senão o boundedElastic do Reactor
+        if (Threading.VIRTUAL.isActive(environment)) {
+            this.virtualThreads = new SimpleAsyncTaskExecutor("pagarme-vt-");
+            this.virtualThreads.setVirtualThreads(true);
+            this.blockingScheduler = Schedulers.fromExecutor(virtualThreads);
+        } else {
+            this.virtualThreads = null;
+            this.blockingScheduler = Schedulers.boundedElastic();
+        }
+    }
+
+    /**
+     * Retorna um cliente pronto para a filial.
+     *
+     * Usado na montagem de cada snapshot de filiais: se o cliente atual ainda
+     * usa a mesma secret key e o mesmo pool ele é reaproveitado; caso contrário
+     * um novo é criado e aquecido aqui, fora do caminho das requisições.
+     *
+     * Não mexe nos limites do bulkhead de uma filial que já existe: eles só mudam
+     * em {@link #configureBulkheads}, quando o snapshot novo já foi validado.
+     * Uma filial nova ganha aqui um bulkhead com os seus limites.
+     *
+     * @param bulkheadConfig configuração da unidade já combinada com filiais.bulkhead
+     */
+    public PagarmeClient clientFor(String filialId, String secretKey, FiliaisConfig.BulkheadConfig bulkheadConfig,
+                                   PagarmeClient current) {
+        PagarmeBulkhead bulkhead = bulkheads.computeIfAbsent(filialId,
+                id -> new PagarmeBulkhead(id, bulkheadConfig, meterRegistry));
+
+        FiliaisConfig.BulkheadConfig currentConfig = current != null ? clients.get(current) : null;
+        if (currentConfig != null && current.usesSecretKey(secretKey) && currentConfig.samePool(bulkheadConfig)) {
+            return current;
+        }
+        PagarmeClient client = createClient(filialId, secretKey, bulkheadConfig, bulkhead);
+        clients.put(client, bulkheadConfig);
+        client.warmup().block(WARMUP_TIMEOUT);
+        return client;
+    }
+
+    /**
+     * Descarta um cliente que saiu do snapshot em vigor.
+     * O pool só é fechado após o período de carência, para não derrubar
+     * requisições que ainda estão em andamento com ele.
+     */
+    public void retire(PagarmeClient client, Duration gracePeriod) {
+        if (clients.remove(client) != null) {
+            Mono.delay(gracePeriod).subscribe(tick -> client.dispose());
+        }
+    }
+
+    public Collection<PagarmeClient> getClients() {
+        return clients.keySet();
+    }
+
+    /**
+     * Bulkheads por ID de filial
+     */
+    Map<String, PagarmeBulkhead> getBulkheads() {
+        return bulkheads;
+    }
+
+    /**
+     * Aplica os limites de bulkhead de um snapshot já validado (por ID de filial)
+     */
+    public void configureBulkheads(Map<String, FiliaisConfig.BulkheadConfig> configs) {
+        configs.forEach((filialId, config) -> {
+            PagarmeBulkhead bulkhead = bulkheads.get(filialId);
+            if (bulkhead != null) {
+                bulkhead.configure(config);
+            }
+        });
+    }
+
+    /**
+     * Descarta os bulkheads (e as métricas) das filiais fora da lista. Clientes
+     * ainda no período de carência seguem usando o seu até serem fechados.
+     */
+    public void retainBulkheads(Collection<String> filialIds) {
+        bulkheads.entrySet().removeIf(entry -> {
+            if (filialIds.contains(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().removeMetrics(meterRegistry);
+            return true;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        clients.keySet().forEach(PagarmeClient::dispose);
+        clients.clear();
+    }
+
+    /**
+     * Se as chamadas do transporte bloqueante rodam em virtual threads
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads != null;
+    }
+
+    private PagarmeClient createClient(String filialId, String secretKey, FiliaisConfig.BulkheadConfig bulkheadConfig,
+                                       PagarmeBulkhead bulkhead) {
+        String poolName = "pagarme-" + filialId + "-" + generation.incrementAndGet();
+        // Pagar.me exige que a secretKey seja codificada em Base64 com ":" no final
+        String credentials = secretKey + ":";
+        String authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+
+        if (httpConfig.getTransport() == PagarmeHttpConfig.Transport.BLOCKING) {
+            return createBlockingClient(filialId, secretKey, poolName, authorization, bulkhead);
+        }
+
+        ConnectionProvider provider = ConnectionProvider.builder(poolName)
+                .maxConnections(orDefault(bulkheadConfig.getMaxConnections(), httpConfig.getMaxConnections()))
+                .pendingAcquireMaxCount(orDefault(bulkheadConfig.getPendingAcquireMaxCount(), httpConfig.getPendingAcquireMaxCount()))
+                .pendingAcquireTimeout(orDefault(bulkheadConfig.getPendingAcquireTimeout(), httpConfig.getPendingAcquireTimeout()))
+                .maxIdleTime(httpConfig.getMaxIdleTime())
+                .maxLifeTime(httpConfig.getMaxLifeTime())
+                .evictInBackground(httpConfig.getEvictInBackground())
+                .metrics(true)
+                .build();
+
+        // Event loops próprios só quando pedidos: com I/O não bloqueante, uma Pagar.me
+        // lenta ocupa conexões, não threads, e o pool da filial já isola isso
+        Integer loopThreads = bulkheadConfig.getEventLoopThreads();
+        LoopResources loops = loopThreads != null && loopThreads > 0
+                ? LoopResources.create(poolName, loopThreads, true)
+                : null;
+
+        HttpClient httpClient = HttpClient.create(provider)
+                .keepAlive(httpConfig.isKeepAlive())
+                .option(ChannelOption.SO_KEEPALIVE, httpConfig.isKeepAlive())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) httpConfig.getConnectTimeout().toMillis())
+                .responseTimeout(httpConfig.getResponseTimeout());
+        if (loops != null) {
+            httpClient = httpClient.runOn(loops);
+        }
+        if (httpConfig.isHttp2()) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+
+        WebClient webClient = webClientBuilder.clone()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .defaultHeader(HttpHeaders.AUTHORIZATION, authorization)
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .build();
+
+        return new ReactorPagarmeClient(filialId, secretKey, httpClient, webClient, provider, loops, objectMapper,
+                new RequestCoalescer(filialId, "GET", meterRegistry), resilience, rateLimiter, bulkhead);
+    }
+
+    private PagarmeClient createBlockingClient(String filialId, String secretKey, String poolName, String authorization,
+                                               PagarmeBulkhead bulkhead) {
+        java.net.http.HttpClient.Builder httpClient = java.net.http.HttpClient.newBuilder()
+                .connectTimeout(httpConfig.getConnectTimeout())
+                .version(httpConfig.isHttp2() ? java.net.http.HttpClient.Version.HTTP_2 : java.net.http.HttpClient.Version.HTTP_1_1);
+        if (virtualThreads != null) {
+            httpClient.executor(virtualThreads);
+        }
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient.build());
+        requestFactory.setReadTimeout(httpConfig.getResponseTimeout());
+
+        RestClient restClient = RestClient.builder()
+                .baseUrl(baseUrl)
+                .requestFactory(requestFactory)
+                .defaultHeader(HttpHeaders.AUTHORIZATION, authorization)
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .build();
+
+        return new BlockingPagarmeClient(filialId, secretKey, poolName, restClient, blockingScheduler, objectMapper,
+                new RequestCoalescer(filialId, "GET", meterRegistry), resilience, rateLimiter, bulkhead);
+    }
+
+    private static <T> T orDefault(T value, T fallback) {
+        return value != null ? value : fallback;
+    }
+}
@@ -0,0 +1,95 @@
+package com.villaggiogirotto.split.villagiosplit.client;
+
+import com.villaggiogirotto.split.villagiosplit.config.FiliaisConfig;
+import com.villaggiogirotto.split.villagiosplit.config.PagarmeHttpConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Expõe o estado dos pools de conexão e dos bulkheads da Pagar.me
+ * GET /actuator/pagarmeclients
+ */
+@Component
+@Endpoint(id = "pagarmeclients")
+public class PagarmeClientsEndpoint {
+
+    private static final String METRIC_PREFIX = "reactor.netty.connection.provider.";
+
+    private final PagarmeClientRegistry clientRegistry;
+    private final PagarmeHttpConfig httpConfig;
+    private final MeterRegistry meterRegistry;
+
+    public PagarmeClientsEndpoint(PagarmeClientRegistry clientRegistry, PagarmeHttpConfig httpConfig, MeterRegistry meterRegistry) {
+        this.clientRegistry = clientRegistry;
+        this.httpConfig = httpConfig;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @ReadOperation
+    public Map<String, Object> clients() {
+        Map<String, Object> response = new HashMap<>();
+        Map<String, Object> pools = new HashMap<>();
+
+        for (PagarmeClient client : clientRegistry.getClients()) {
+            Map<String, Object> pool = new HashMap<>();
+            pool.put("name", client.getPoolName());
+            pool.put("filial", client.getFilialId());
+            pool.put("transport", client.getTransport());
+            pool.put("maxConnections", client.getMaxConnections());
+            pool.put("activeConnections", gauge("active.connections", client.getPoolName()));
+            pool.put("idleConnections", gauge("idle.connections", client.getPoolName()));
+            pool.put("totalConnections", gauge("total.connections", client.getPoolName()));
+            pool.put("pendingConnections", gauge("pending.connections", client.getPoolName()));
+            pool.put("activeStreams", gauge("active.streams", client.getPoolName()));
+            pool.put("inFlightReads", client.getInFlightReads());
+            pools.put(client.getPoolName(), pool);
+        }
+
+        Map<String, Object> bulkheads = new HashMap<>();
+        clientRegistry.getBulkheads().forEach((filialId, bulkhead) -> {
+            FiliaisConfig.BulkheadConfig limits = bulkhead.getConfig();
+            Map<String, Object> state = new HashMap<>();
+            state.put("enabled", limits.getEnabled());
+            state.put("maxConcurrentCalls", limits.getMaxConcurrentCalls());
+            state.put("maxQueuedCalls", limits.getMaxQueuedCalls());
+            state.put("maxWait", limits.getMaxWait().toString());
+            state.put("eventLoopThreads", limits.getEventLoopThreads());
+            state.put("activeCalls", bulkhead.getActive());
+            state.put("queuedCalls", bulkhead.getQueued());
+            state.put("saturation", bulkhead.getSaturation());
+            bulkheads.put(filialId, state);
+        });
+
+        Map<String, Object> config = new HashMap<>();
+        config.put("maxConnections", httpConfig.getMaxConnections());
+        config.put("pendingAcquireMaxCount", httpConfig.getPendingAcquireMaxCount());
+        config.put("pendingAcquireTimeout", httpConfig.getPendingAcquireTimeout().toString());
+        config.put("maxIdleTime", httpConfig.getMaxIdleTime().toString());
+        config.put("maxLifeTime", httpConfig.getMaxLifeTime().toString());
+        config.put("connectTimeout", httpConfig.getConnectTimeout().toString());
+        config.put("responseTimeout", httpConfig.getResponseTimeout().toString());
+        config.put("keepAlive", httpConfig.isKeepAlive());
+        config.put("http2", httpConfig.isHttp2());
+        config.put("transport", httpConfig.getTransport());
+        config.put("virtualThreads", clientRegistry.isVirtualThreads());
+
+        response.put("config", config);
+        response.put("pools", pools);
+        response.put("bulkheads", bulkheads);
+        return response;
+    }
+
+    private double gauge(String metric, String poolName) {
+        double total = 0;
+        for (Gauge gauge : meterRegistry.find(METRIC_PREFIX + metric).tag("name", poolName).gauges()) {
+            total += gauge.value();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,40 @@
+package com.villaggiogirotto.split.villagiosplit.client;
+
+/**
+ * Classe de endpoint da API Pagar.me, tirada do primeiro segmento da URI.
+ * Circuit breakers e prazos são separados por filial e por classe de endpoint.
+ */
+public enum PagarmeEndpoint {
+
+    ORDERS("orders"),
+    CUSTOMERS("customers"),
+    PAYMENTLINKS("paymentlinks"),
+    OTHER("other");
+
+    private final String path;
+
+    PagarmeEndpoint(String path) {
+        this.path = path;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Classifica uma URI relativa à base da API ("/orders/or_x", "/customers?page=2"...)
+     */
+    public static PagarmeEndpoint of(String uri) {
+        int start = uri.startsWith("/") ? 1 : 0;
+        for (PagarmeEndpoint endpoint : values()) {
+            String path = endpoint.path;
+            if (uri.startsWith(path, start)) {
+                int end = start + path.length();
+                if (end == uri.length() || uri.charAt(end) == '/' || uri.charAt(end) == '?') {
+                    return endpoint;
+                }
+            }
+        }
+        return OTHER;
+    }
+}
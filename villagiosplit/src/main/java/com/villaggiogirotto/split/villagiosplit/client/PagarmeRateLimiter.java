@@ -0,0 +1,271 @@
+package com.villaggiogirotto.split.villagiosplit.client;
+
+import com.villaggiogirotto.split.villagiosplit.config.FiliaisConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Limite de requisições à Pagar.me por conta (secret key) e classe de endpoint,
+ * para que jobs em lote não estourem o limite da conta e derrubem checkouts com 429.
+ *
+ * Cada conta + endpoint tem um {@link TokenBucket} sem lock. A prioridade vem
+ * do Reactor Context de quem chama: jobs em lote (importação, exportação,
+ * criação em massa, varredura do índice, poller) marcam o fluxo com
+ * {@link #batch()}; o resto é tráfego ao vivo.
+ *
+ * - Ao vivo reserva a próxima vaga e espera por ela até filiais.rate-limit.live-max-wait;
+ *   passando disso, falha na hora.
+ * - Lote nunca reserva vaga futura nem usa a fração batch-reserve do burst: espera o
+ *   balde encher de novo e tenta outra vez, até batch-max-wait. Assim uma fila de
+ *   lote nunca fica na frente de um checkout.
+ *
+ * Um 429 da Pagar.me esvazia o balde correspondente.
+ *
+ * Métricas: pagarme.ratelimit{filial, endpoint, priority, result=immediate|queued|rejected}
+ * e pagarme.ratelimit.available{filial, endpoint}
+ */
+@Component
+public class PagarmeRateLimiter {
+
+    public enum Priority { LIVE, BATCH }
+
+    private static final String PRIORITY_KEY = PagarmeRateLimiter.class.getName() + ".priority";
+    private static final long MIN_BATCH_POLL_NANOS = Duration.ofMillis(5).toNanos();
+    private static final int IMMEDIATE = 0;
+    private static final int QUEUED = 1;
+    private static final int REJECTED = 2;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private volatile Settings settings = new Settings(new FiliaisConfig.RateLimitConfig());
+
+    public PagarmeRateLimiter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Marca um fluxo como lote: {@code flux.contextWrite(PagarmeRateLimiter.batch())}
+     */
+    public static Context batch() {
+        return Context.of(PRIORITY_KEY, Priority.BATCH);
+    }
+
+    static Priority priority(ContextView context) {
+        return context.getOrDefault(PRIORITY_KEY, Priority.LIVE);
+    }
+
+    /**
+     * Monta e valida os limites e orçamentos de um snapshot de filiais, sem aplicar nada.
+     * Baldes cujo orçamento não mudou são reaproveitados (com os tokens já gastos).
+     *
+     * @throws IllegalStateException se algum orçamento for inválido
+     */
+    public synchronized Plan plan(FiliaisConfig filiaisConfig) {
+        FiliaisConfig.RateLimitConfig rateLimit = filiaisConfig.getRateLimit();
+        Settings nextSettings = new Settings(rateLimit);
+        Map<String, Account> nextAccounts = new HashMap<>();
+        Map<String, List<String>> filiaisByKey = new HashMap<>();
+        Map<String, FiliaisConfig.FilialConfig> configByKey = new HashMap<>();
+        filiaisConfig.getUnidades().forEach((id, config) -> {
+            if (config != null && config.getSecretKey() != null && !config.getSecretKey().isBlank()) {
+                filiaisByKey.computeIfAbsent(config.getSecretKey(), key -> new ArrayList<>()).add(id);
+                configByKey.putIfAbsent(config.getSecretKey(), config);
+            }
+        });
+
+        filiaisByKey.forEach((secretKey, ids) -> {
+            Account current = accounts.get(secretKey);
+            Account next = new Account(String.join(",", ids));
+            for (PagarmeEndpoint endpoint : PagarmeEndpoint.values()) {
+                FiliaisConfig.RateBudget budget = configByKey.get(secretKey).getRateLimits().get(endpoint);
+                if (budget == null) {
+                    budget = rateLimit.getEndpoints().get(endpoint);
+                }
+                if (budget == null) {
+                    continue; // Endpoint sem limite
+                }
+                if (budget.getRatePerSecond() <= 0 || budget.getBurst() <= 0) {
+                    throw new IllegalStateException("Orçamento inválido em rate-limit para " + next.filialTag
+                            + " (" + endpoint.getPath() + "): rate-per-second e burst devem ser positivos");
+                }
+                Slot previous = current != null ? current.slots[endpoint.ordinal()] : null;
+                TokenBucket bucket = previous != null && previous.bucket.getBudget().equals(budget)
+                        && current.filialTag.equals(next.filialTag)
+                        ? previous.bucket
+                        : new TokenBucket(budget);
+                next.slots[endpoint.ordinal()] = new Slot(next.filialTag, endpoint, bucket);
+            }
+            nextAccounts.put(secretKey, next);
+        });
+        return new Plan(nextAccounts, nextSettings);
+    }
+
+    /**
+     * Põe em vigor as contas novas ou alteradas e as configurações gerais de um plano.
+     * Contas fora do plano continuam valendo até {@link #retire(Plan)}, para que
+     * filiais do snapshot anterior não fiquem sem limite durante a troca.
+     */
+    public synchronized void apply(Plan plan) {
+        accounts.putAll(plan.accounts);
+        settings = plan.settings;
+    }
+
+    /**
+     * Descarta as contas que não estão no plano (filiais removidas ou com outra secret key)
+     */
+    public synchronized void retire(Plan plan) {
+        accounts.keySet().retainAll(plan.accounts.keySet());
+    }
+
+    /**
+     * Limites prontos para entrar em vigor junto com um snapshot de filiais
+     */
+    public static final class Plan {
+        private final Map<String, Account> accounts;
+        private final Settings settings;
+
+        private Plan(Map<String, Account> accounts, Settings settings) {
+            this.accounts = accounts;
+            this.settings = settings;
+        }
+    }
+
+    /**
+     * Espera pela vez de uma requisição à Pagar.me, conforme a prioridade do Context.
+     * Completa vazio quando a requisição pode seguir.
+     */
+    Mono<Void> acquire(String secretKey, PagarmeEndpoint endpoint) {
+        return Mono.deferContextual(context -> {
+            Settings current = settings;
+            Account account = current.enabled ? accounts.get(secretKey) : null;
+            Slot slot = account != null ? account.slots[endpoint.ordinal()] : null;
+            if (slot == null) {
+                return Mono.empty();
+            }
+
+            if (priority(context) == Priority.BATCH) {
+                int reserved = (int) Math.ceil(slot.bucket.getBurst() * current.batchReserve);
+                return acquireBatch(slot, reserved, System.nanoTime() + current.batchMaxWait, true);
+            }
+
+            long wait = slot.bucket.reserve(current.liveMaxWait);
+            if (wait < 0) {
+                slot.count(Priority.LIVE, REJECTED);
+                return Mono.error(slot.rejected());
+            }
+            if (wait == 0) {
+                slot.count(Priority.LIVE, IMMEDIATE);
+                return Mono.empty();
+            }
+            slot.count(Priority.LIVE, QUEUED);
+            return Mono.delay(Duration.ofNanos(wait)).then();
+        });
+    }
+
+    /**
+     * A Pagar.me respondeu 429 para esta conta + endpoint
+     */
+    void throttled(String secretKey, PagarmeEndpoint endpoint) {
+        Account account = accounts.get(secretKey);
+        Slot slot = account != null ? account.slots[endpoint.ordinal()] : null;
+        if (slot != null) {
+            slot.bucket.drain();
+        }
+    }
+
+    private Mono<Void> acquireBatch(Slot slot, int reserved, long deadline, boolean first) {
+        return Mono.defer(() -> {
+            long wait = slot.bucket.tryAcquire(reserved);
+            if (wait == 0) {
+                slot.count(Priority.BATCH, first ? IMMEDIATE : QUEUED);
+                return Mono.empty();
+            }
+            if (System.nanoTime() + wait > deadline) {
+                slot.count(Priority.BATCH, REJECTED);
+                return Mono.error(slot.rejected());
+            }
+            return Mono.delay(Duration.ofNanos(Math.max(wait, MIN_BATCH_POLL_NANOS)))
+                    .then(acquireBatch(slot, reserved, deadline, false));
+        });
+    }
+
+    private double available(String filialTag, PagarmeEndpoint endpoint) {
+        for (Account account : accounts.values()) {
+            Slot slot = account.slots[endpoint.ordinal()];
+            if (slot != null && account.filialTag.equals(filialTag)) {
+                return slot.bucket.available();
+            }
+        }
+        return 0;
+    }
+
+    private static final class Settings {
+        private final boolean enabled;
+        private final long liveMaxWait;
+        private final long batchMaxWait;
+        private final double batchReserve;
+
+        private Settings(FiliaisConfig.RateLimitConfig config) {
+            this.enabled = config.isEnabled();
+            this.liveMaxWait = config.getLiveMaxWait().toNanos();
+            this.batchMaxWait = config.getBatchMaxWait().toNanos();
+            this.batchReserve = Math.min(Math.max(config.getBatchReserve(), 0), 1);
+        }
+    }
+
+    private final class Account {
+        private final String filialTag;
+        private final Slot[] slots = new Slot[PagarmeEndpoint.values().length];
+
+        private Account(String filialTag) {
+            this.filialTag = filialTag;
+        }
+    }
+
+    private final class Slot {
+        private final String filialTag;
+        private final PagarmeEndpoint endpoint;
+        private final TokenBucket bucket;
+        private final Counter[] counters = new Counter[Priority.values().length * 3];
+
+        private Slot(String filialTag, PagarmeEndpoint endpoint, TokenBucket bucket) {
+            this.filialTag = filialTag;
+            this.endpoint = endpoint;
+            this.bucket = bucket;
+            String[] results = {"immediate", "queued", "rejected"};
+            for (Priority priority : Priority.values()) {
+                for (int result = 0; result < results.length; result++) {
+                    counters[priority.ordinal() * 3 + result] = Counter.builder("pagarme.ratelimit")
+                            .description("Requisições à Pagar.me liberadas na hora, após fila ou recusadas pelo limite")
+                            .tags("filial", filialTag, "endpoint", endpoint.getPath(),
+                                    "priority", priority.name().toLowerCase(), "result", results[result])
+                            .register(meterRegistry);
+                }
+            }
+            Gauge.builder("pagarme.ratelimit.available", PagarmeRateLimiter.this, limiter -> limiter.available(filialTag, endpoint))
+                    .tags("filial", filialTag, "endpoint", endpoint.getPath())
+                    .register(meterRegistry);
+        }
+
+        private void count(Priority priority, int result) {
+            counters[priority.ordinal() * 3 + result].increment();
+        }
+
+        private RuntimeException rejected() {
+            return new RuntimeException("Limite de requisições à Pagar.me atingido para " + filialTag
+                    + " (" + endpoint.getPath() + "); tente novamente em instantes");
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.villaggiogirotto.split.villagiosplit.client;
+
+import com.villaggiogirotto.split.villagiosplit.config.PagarmeResilienceConfig;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.PrematureCloseException;
+import reactor.util.retry.Retry;
+
+import java.util.Collection;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Camada de resiliência de todas as chamadas à Pagar.me, aplicada pelo {@link PagarmeClient}.
+ *
+ * Cada tentativa passa por um circuit breaker da filial + classe de endpoint
+ * (ver {@link PagarmeEndpoint}): com a Pagar.me falhando ou lenta demais, o
+ * breaker abre e as chamadas seguintes falham na hora, sem ocupar conexões,
+ * até a hora de testar de novo. Só 5xx, 429, timeouts e falhas de conexão contam
+ * como falha; um 4xx é erro do pedido, não da Pagar.me.
+ *
+ * Leituras (GET) e PUT são repetidos com backoff exponencial e jitter quando a
+ * falha é desse tipo. A chamada inteira, retentativas incluídas, tem um prazo total.
+ *
+ * Os breakers ficam presos ao ID da filial, não ao cliente HTTP: sobrevivem a
+ * recargas de filiais e à troca de secret key.
+ */
+@Component
+public class PagarmeResilience {
+
+    private final PagarmeResilienceConfig config;
+    private final MeterRegistry meterRegistry;
+    private final CircuitBreakerRegistry breakers;
+
+    public PagarmeResilience(PagarmeResilienceConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+
+        PagarmeResilienceConfig.BreakerConfig breaker = config.getBreaker();
+        this.breakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(breaker.getWindowSize())
+                .minimumNumberOfCalls(breaker.getMinimumCalls())
+                .failureRateThreshold(breaker.getFailureRateThreshold())
+                .slowCallDurationThreshold(breaker.getSlowCallDuration())
+                .slowCallRateThreshold(breaker.getSlowCallRateThreshold())
+                .waitDurationInOpenState(breaker.getOpenDuration())
+                .permittedNumberOfCallsInHalfOpenState(breaker.getHalfOpenCalls())
+                .automaticTransitionFromOpenToHalfOpenEnabled(false)
+                .recordException(PagarmeResilience::isUpstreamFailure)
+                .build());
+    }
+
+    /**
+     * Aplica breaker, retentativas (se idempotente) e prazo total a uma chamada.
+     * A chamada precisa ser "fria": cada assinatura faz uma nova requisição.
+     *
+     * Cada tentativa segue a ordem: permissão do breaker, permit (vez no
+     * {@link PagarmeRateLimiter}), vaga no {@link PagarmeBulkhead} da filial e só
+     * então a requisição. Com o breaker aberto a tentativa falha na hora, sem gastar
+     * permit nem vaga; a sondagem do meio-aberto passa pelos dois como qualquer
+     * chamada. A espera pelo primeiro permit fica fora do prazo total (um job em
+     * lote pode esperar minutos na fila).
+     *
+     * O breaker só mede a requisição: a espera no limitador e na fila do bulkhead
+     * não conta como chamada lenta, e a recusa por saturação não conta como falha
+     * (a permissão do breaker é devolvida).
+     */
+    <T> Mono<T> decorate(String filialId, PagarmeEndpoint endpoint, boolean idempotent,
+                         Mono<Void> permit, PagarmeBulkhead bulkhead, Mono<T> call) {
+        if (!config.isEnabled()) {
+            return permit.then(bulkhead.run(call));
+        }
+        CircuitBreaker breaker = breaker(filialId, endpoint);
+
+        return Mono.defer(() -> {
+            BreakerPermission first = BreakerPermission.acquire(breaker);
+            Mono<T> attempt = first.run(bulkhead, call);
+            if (idempotent && config.getRetry().getMaxAttempts() > 1) {
+                PagarmeResilienceConfig.RetryConfig retry = config.getRetry();
+                AtomicBoolean retrying = new AtomicBoolean();
+                Mono<T> firstAttempt = attempt;
+                attempt = Mono.defer(() -> retrying.getAndSet(true)
+                                ? retryAttempt(breaker, permit, bulkhead, call)
+                                : firstAttempt)
+                        .retryWhen(Retry.backoff(retry.getMaxAttempts() - 1, retry.getInitialBackoff())
+                                .maxBackoff(retry.getMaxBackoff())
+                                .jitter(retry.getJitter())
+                                .filter(PagarmeResilience::isUpstreamFailure)
+                                .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+            }
+
+            Mono<T> deadline = attempt
+                    .timeout(config.deadlineFor(endpoint))
+                    .onErrorMap(TimeoutException.class, ex -> new RuntimeException(
+                            "Tempo esgotado na API Pagar.me (" + filialId + ", " + endpoint.getPath() + ")", ex));
+            return first.await(permit).then(deadline);
+        }).onErrorMap(CallNotPermittedException.class, ex -> new RuntimeException(
+                "API Pagar.me indisponível para " + filialId + " (" + endpoint.getPath()
+                        + "): circuit breaker aberto, tente novamente em instantes", ex));
+    }
+
+    private static <T> Mono<T> retryAttempt(CircuitBreaker breaker, Mono<Void> permit, PagarmeBulkhead bulkhead,
+                                            Mono<T> call) {
+        return Mono.defer(() -> {
+            BreakerPermission permission = BreakerPermission.acquire(breaker);
+            return permission.await(permit).then(permission.run(bulkhead, call));
+        });
+    }
+
+    public CircuitBreaker breaker(String filialId, PagarmeEndpoint endpoint) {
+        String name = filialId + ":" + endpoint.getPath();
+        return breakers.find(name).orElseGet(() -> {
+            CircuitBreaker breaker = breakers.circuitBreaker(name);
+            // 0 = fechado, 1 = aberto, 2 = meio-aberto (demais estados administrativos = 3)
+            Gauge.builder("pagarme.breaker.state", breaker, PagarmeResilience::stateValue)
+                    .tag("filial", filialId)
+                    .tag("endpoint", endpoint.getPath())
+                    .register(meterRegistry);
+            return breaker;
+        });
+    }
+
+    public Collection<CircuitBreaker> getBreakers() {
+        return breakers.getAllCircuitBreakers();
+    }
+
+    /**
+     * Falha que diz respeito à saúde da Pagar.me: 5xx, 429, timeout ou conexão
+     */
+    static boolean isUpstreamFailure(Throwable ex) {
+        if (ex instanceof PagarmeApiException api) {
+            return api.isUpstreamFailure();
+        }
+        return ex instanceof TimeoutException
+                || ex instanceof WebClientRequestException
+                || ex instanceof ResourceAccessException
+                || ex instanceof PrematureCloseException;
+    }
+
+    /**
+     * Permissão do breaker para uma tentativa. Se a requisição chegou a sair, vira
+     * sucesso ou falha com a duração dela; se a tentativa parou antes (permit,
+     * bulkhead, cancelamento), é devolvida, o que libera a vaga de sondagem do meio-aberto.
+     */
+    private static final class BreakerPermission {
+        private final CircuitBreaker breaker;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private BreakerPermission(CircuitBreaker breaker) {
+            this.breaker = breaker;
+        }
+
+        /**
+         * @throws CallNotPermittedException com o breaker aberto (ou sem vaga de sondagem)
+         */
+        static BreakerPermission acquire(CircuitBreaker breaker) {
+            breaker.acquirePermission();
+            return new BreakerPermission(breaker);
+        }
+
+        Mono<Void> await(Mono<Void> permit) {
+            return permit
+                    .doOnError(ex -> release())
+                    .doOnCancel(this::release);
+        }
+
+        <T> Mono<T> run(PagarmeBulkhead bulkhead, Mono<T> call) {
+            return bulkhead.run(Mono.defer(() -> {
+                        long start = breaker.getCurrentTimestamp();
+                        return call
+                                .doOnSuccess(value -> {
+                                    if (settle()) {
+                                        breaker.onSuccess(breaker.getCurrentTimestamp() - start, breaker.getTimestampUnit());
+                                    }
+                                })
+                                .doOnError(ex -> {
+                                    if (settle()) {
+                                        breaker.onError(breaker.getCurrentTimestamp() - start, breaker.getTimestampUnit(), ex);
+                                    }
+                                });
+                    }))
+                    .doOnError(ex -> release())
+                    .doOnCancel(this::release);
+        }
+
+        private void release() {
+            if (settle()) {
+                breaker.releasePermission();
+            }
+        }
+
+        private boolean settle() {
+            return settled.compareAndSet(false, true);
+        }
+    }
+
+    private static double stateValue(CircuitBreaker breaker) {
+        switch (breaker.getState()) {
+            case CLOSED:
+                return 0;
+            case OPEN:
+                return 1;
+            case HALF_OPEN:
+                return 2;
+            default:
+                return 3;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.villaggiogirotto.split.villagiosplit.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Transporte padrão: WebClient sobre um pool Reactor Netty próprio da filial
+ * (e, com bulkhead.event-loop-threads, event loops próprios também).
+ * Nenhuma thread fica parada esperando a Pagar.me.
+ */
+class ReactorPagarmeClient extends PagarmeClient {
+
+    private final HttpClient httpClient;
+    private final WebClient webClient;
+    private final ConnectionProvider connectionProvider;
+    private final LoopResources loops; // null = event loops compartilhados do Reactor Netty
+
+    ReactorPagarmeClient(String filialId, String secretKey, HttpClient httpClient, WebClient webClient,
+                         ConnectionProvider connectionProvider, LoopResources loops, ObjectMapper objectMapper,
+                         RequestCoalescer readCoalescer,
+                         PagarmeResilience resilience, PagarmeRateLimiter rateLimiter, PagarmeBulkhead bulkhead) {
+        super(filialId, secretKey, connectionProvider.name(), objectMapper, readCoalescer, resilience, rateLimiter, bulkhead);
+        this.httpClient = httpClient;
+        this.webClient = webClient;
+        this.connectionProvider = connectionProvider;
+        this.loops = loops;
+    }
+
+    @Override
+    public String getTransport() {
+        return "netty";
+    }
+
+    @Override
+    int getMaxConnections() {
+        return connectionProvider.maxConnections();
+    }
+
+    @Override
+    protected <T> Mono<T> exchange(HttpMethod method, String uri, Object body, ResponseReader<T> reader) {
+        return checkStatus(webClient.method(method).uri(uri).bodyValue(body))
+                .bodyToMono(DataBuffer.class)
+                .handle((buffer, sink) -> {
+                    T value = read(buffer, reader);
+                    if (value != null) {
+                        sink.next(value);
+                    }
+                });
+    }
+
+    @Override
+    protected Mono<byte[]> fetch(String uri) {
+        return checkStatus(webClient.get().uri(uri)).bodyToMono(byte[].class);
+    }
+
+    /**
+     * Os buffers do Netty seguem sem cópia para quem assina o corpo
+     */
+    @Override
+    protected Mono<Flux<DataBuffer>> open(String uri) {
+        return checkStatus(webClient.get().uri(uri))
+                .toEntityFlux(DataBuffer.class)
+                .map(ResponseEntity::getBody);
+    }
+
+    @Override
+    Mono<Void> warmup() {
+        return httpClient.warmup();
+    }
+
+    @Override
+    void dispose() {
+        Mono<Void> disposal = connectionProvider.disposeLater();
+        if (loops != null) {
+            disposal = disposal.then(loops.disposeLater());
+        }
+        disposal.subscribe();
+    }
+
+    private WebClient.ResponseSpec checkStatus(WebClient.RequestHeadersSpec<?> spec) {
+        return spec.retrieve()
+                .onStatus(
+                        status -> status.isError(),
+                        response -> response.bodyToMono(String.class)
+                                .flatMap(errorBody -> Mono.error(apiError(response.statusCode(), errorBody)))
+                );
+    }
+}
@@ -0,0 +1,75 @@
+package com.villaggiogirotto.split.villagiosplit.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight para leituras de um {@link PagarmeClient}: chamadas idênticas
+ * (mesmo método e URI) feitas enquanto uma já está em andamento assinam o
+ * mesmo Mono em vez de abrir outra requisição à Pagar.me.
+ *
+ * A entrada sai do mapa quando a requisição termina, falha ou é cancelada.
+ * O Mono compartilhado só cancela a requisição quando todos os assinantes
+ * cancelam, então um operador que fecha a tela não derruba os demais.
+ *
+ * A requisição roda com o Context de quem a abriu, então leituras ao vivo e de
+ * lote ({@link PagarmeRateLimiter#batch()}) não se juntam: uma tela nunca espera
+ * na fila de lote, nem um job passa à frente como tráfego ao vivo.
+ *
+ * Métricas: pagarme.client.coalescing{filial, method, result=leader|joined}
+ */
+final class RequestCoalescer {
+
+    private static final String METRIC = "pagarme.client.coalescing";
+
+    private final Map<String, Mono<?>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter joined;
+
+    RequestCoalescer(String filialId, String method, MeterRegistry meterRegistry) {
+        this.leaders = Counter.builder(METRIC)
+                .description("Leituras enviadas à Pagar.me (leader) ou atendidas por uma já em andamento (joined)")
+                .tags("filial", filialId, "method", method, "result", "leader")
+                .register(meterRegistry);
+        this.joined = Counter.builder(METRIC)
+                .description("Leituras enviadas à Pagar.me (leader) ou atendidas por uma já em andamento (joined)")
+                .tags("filial", filialId, "method", method, "result", "joined")
+                .register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> Mono<T> coalesce(String key, Supplier<Mono<T>> call) {
+        return Mono.deferContextual(context -> {
+            String entry = PagarmeRateLimiter.priority(context) + " " + key;
+            Mono<?> existing = inFlight.get(entry);
+            if (existing != null) {
+                joined.increment();
+                return (Mono<T>) existing;
+            }
+
+            AtomicReference<Mono<T>> self = new AtomicReference<>();
+            Mono<T> shared = call.get()
+                    .doFinally(signal -> inFlight.remove(entry, self.get()))
+                    .share();
+            self.set(shared);
+
+            existing = inFlight.putIfAbsent(entry, shared);
+            if (existing != null) {
+                joined.increment();
+                return (Mono<T>) existing;
+            }
+            leaders.increment();
+            return shared;
+        });
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+}
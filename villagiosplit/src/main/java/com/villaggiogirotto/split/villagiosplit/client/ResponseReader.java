@@ -0,0 +1,15 @@
+package com.villaggiogirotto.split.villagiosplit.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * Lê o corpo de uma resposta da Pagar.me direto do {@link JsonParser},
+ * sem precisar materializar a árvore JSON inteira.
+ */
+@FunctionalInterface
+public interface ResponseReader<T> {
+
+    T read(JsonParser parser) throws IOException;
+}
@@ -0,0 +1,96 @@
+package com.villaggiogirotto.split.villagiosplit.client;
+
+import com.villaggiogirotto.split.villagiosplit.config.FiliaisConfig;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Balde de tokens sem lock, no formato GCRA: todo o estado é um único long
+ * (o "TAT", instante em que o balde volta a estar cheio) atualizado por CAS.
+ *
+ * Uma requisição pode seguir quando {@code agora >= tat - tolerância}; cada
+ * requisição empurra o tat um intervalo (1 / taxa) para frente. A tolerância
+ * é o burst: com (burst - 1) intervalos de folga, cabem burst requisições de uma vez.
+ */
+final class TokenBucket {
+
+    private final FiliaisConfig.RateBudget budget;
+    private final long interval;
+    private final long tolerance;
+    private final AtomicLong tat = new AtomicLong(System.nanoTime());
+
+    TokenBucket(FiliaisConfig.RateBudget budget) {
+        this.budget = budget;
+        this.interval = (long) (1_000_000_000L / Math.max(budget.getRatePerSecond(), 0.001));
+        this.tolerance = (Math.max(budget.getBurst(), 1) - 1) * interval;
+    }
+
+    FiliaisConfig.RateBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Reserva a próxima vaga, mesmo que ela seja no futuro (fila).
+     *
+     * @return nanos a esperar antes de enviar (0 = já), ou -1 se a espera passaria de maxWait
+     */
+    long reserve(long maxWait) {
+        while (true) {
+            long now = System.nanoTime();
+            long current = tat.get();
+            long wait = Math.max(0, current - tolerance - now);
+            if (wait > maxWait) {
+                return -1;
+            }
+            if (tat.compareAndSet(current, Math.max(current, now) + interval)) {
+                return wait;
+            }
+        }
+    }
+
+    /**
+     * Pega um token só se sobrarem mais que reservedTokens no balde; não reserva vaga futura.
+     *
+     * @return 0 se pegou, senão os nanos até valer a pena tentar de novo
+     */
+    long tryAcquire(int reservedTokens) {
+        long limit = Math.max(0, tolerance - (long) reservedTokens * interval);
+        while (true) {
+            long now = System.nanoTime();
+            long current = tat.get();
+            long wait = current - limit - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (tat.compareAndSet(current, Math.max(current, now) + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Esvazia o balde (a Pagar.me respondeu 429): as próximas requisições esperam a reposição
+     */
+    void drain() {
+        while (true) {
+            long current = tat.get();
+            long empty = System.nanoTime() + tolerance + interval;
+            if (current >= empty || tat.compareAndSet(current, empty)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tokens disponíveis agora (aproximado, para métricas)
+     */
+    double available() {
+        long now = System.nanoTime();
+        long used = Math.max(0, tat.get() - now);
+        return Math.max(0, (tolerance + interval - used) / (double) interval);
+    }
+
+    int getBurst() {
+        return Math.max(budget.getBurst(), 1);
+    }
+}
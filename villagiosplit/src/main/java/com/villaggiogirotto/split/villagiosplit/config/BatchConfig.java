@@ -0,0 +1,42 @@
+package com.villaggiogirotto.split.villagiosplit.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Limites dos endpoints em lote (pedidos, links de pagamento, clientes).
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "batch")
+public class BatchConfig {
+    private OrdersBatch orders = new OrdersBatch();
+    private PaymentLinksBatch paymentLinks = new PaymentLinksBatch();
+    private CustomersImport customers = new CustomersImport();
+    private CustomersExport customersExport = new CustomersExport();
+
+    @Data
+    public static class OrdersBatch {
+        private int concurrencyPerFilial = 4; // Pedidos simultâneos na Pagar.me por filial
+        private int maxItems = 1000; // Itens aceitos por requisição
+    }
+
+    @Data
+    public static class PaymentLinksBatch {
+        private int concurrency = 8; // Links sendo criados ao mesmo tempo (todas as filiais)
+    }
+
+    @Data
+    public static class CustomersImport {
+        private int concurrency = 4; // Cadastros simultâneos na Pagar.me durante a importação
+        private int progressEvery = 1000; // Linha de progresso a cada N clientes processados
+    }
+
+    @Data
+    public static class CustomersExport {
+        private int window = 8; // Páginas buscadas em paralelo
+        private int pageSize = 100; // Clientes por página na Pagar.me
+        private int maxPages = 1000; // Teto de páginas por exportação
+    }
+}
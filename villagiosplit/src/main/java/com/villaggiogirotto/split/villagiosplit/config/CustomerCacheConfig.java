@@ -0,0 +1,20 @@
+package com.villaggiogirotto.split.villagiosplit.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Cache das listagens/buscas de clientes (GET /customers), por filial.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "customers.cache")
+public class CustomerCacheConfig {
+    private boolean enabled = true;
+    private Duration ttl = Duration.ofSeconds(60); // Tempo máximo de uma página em cache
+    private long maxWeightBytes = 32L * 1024 * 1024; // Limite total, medido pelo tamanho das respostas
+    private int maxEntryBytes = 1024 * 1024; // Respostas maiores que isso não entram no cache
+}
@@ -0,0 +1,21 @@
+package com.villaggiogirotto.split.villagiosplit.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Índice local de clientes (documento/e-mail/código → ID Pagar.me), por filial.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "customers.index")
+public class CustomerIndexConfig {
+    private boolean enabled = true;
+    private boolean warmup = true; // Varre todos os clientes de cada filial ao subir
+    private Duration warmupDelay = Duration.ofSeconds(10); // Espera antes da varredura
+    private int warmupPageSize = 100;
+    private int warmupMaxPages = 500; // Teto de páginas por filial
+}
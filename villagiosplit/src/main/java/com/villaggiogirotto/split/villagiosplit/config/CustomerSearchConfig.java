@@ -0,0 +1,17 @@
+package com.villaggiogirotto.split.villagiosplit.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Busca de clientes em todas as filiais (GET /customers sem filialId).
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "customers.search")
+public class CustomerSearchConfig {
+    private Duration timeout = Duration.ofSeconds(3); // Por filial; quem passar disso fica de fora do resultado
+}
@@ -1,24 +1,161 @@
 package com.villaggiogirotto.split.villagiosplit.config;
 
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeEndpoint;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Data
 @Configuration
 @ConfigurationProperties(prefix = "filiais")
 public class FiliaisConfig {
-    private FilialConfig brauna;
-    private FilialConfig minasGerais;
+    // Chave = ID da filial (ex: "brauna", "minas-gerais")
+    private Map<String, FilialConfig> unidades = new LinkedHashMap<>();
+
+    // Recarga a quente (sem restart) das filiais e recebedores
+    private ReloadConfig reload = new ReloadConfig();
+
+    // Limite de requisições à Pagar.me por conta (secret key) e endpoint
+    private RateLimitConfig rateLimit = new RateLimitConfig();
+
+    // Isolamento por filial (bulkhead); cada unidade pode sobrescrever em unidades.<id>.bulkhead
+    private BulkheadConfig bulkhead = BulkheadConfig.defaults();
 
     @Data
     public static class FilialConfig {
         private String nome;
+        private String publicId; // Chave da filial em GET /filiais (padrão: o próprio ID)
         private String secretKey;
         private String publicKey;
+        private List<String> aliases = new ArrayList<>(); // Outros IDs aceitos para a mesma filial
         private List<RecebedorConfig> recebedores;
+        private Map<PagarmeEndpoint, RateBudget> rateLimits = new EnumMap<>(PagarmeEndpoint.class); // Exceções a rate-limit.endpoints
+        private BulkheadConfig bulkhead = new BulkheadConfig(); // Exceções a filiais.bulkhead
+    }
+
+    @Data
+    public static class ReloadConfig {
+        private String file; // YAML externo com "filiais.unidades"; vazio = só application.yml
+        private boolean watch = true; // Recarrega sozinho quando o arquivo muda
+        private Duration gracePeriod = Duration.ofSeconds(30); // Espera antes de fechar pools antigos
+    }
+
+    /**
+     * Tráfego ao vivo (checkout) espera na fila até liveMaxWait; jobs em lote esperam
+     * até batchMaxWait, mas nunca usam a fração batchReserve do burst.
+     */
+    @Data
+    public static class RateLimitConfig {
+        private boolean enabled = true;
+        private Duration liveMaxWait = Duration.ofSeconds(2);
+        private Duration batchMaxWait = Duration.ofMinutes(5);
+        private double batchReserve = 0.5; // Fração do burst guardada para o tráfego ao vivo
+        private Map<PagarmeEndpoint, RateBudget> endpoints = defaultBudgets();
+
+        private static Map<PagarmeEndpoint, RateBudget> defaultBudgets() {
+            Map<PagarmeEndpoint, RateBudget> budgets = new EnumMap<>(PagarmeEndpoint.class);
+            budgets.put(PagarmeEndpoint.ORDERS, new RateBudget(20, 40));
+            budgets.put(PagarmeEndpoint.CUSTOMERS, new RateBudget(20, 40));
+            budgets.put(PagarmeEndpoint.PAYMENTLINKS, new RateBudget(10, 20));
+            budgets.put(PagarmeEndpoint.OTHER, new RateBudget(10, 20));
+            return budgets;
+        }
+    }
+
+    @Data
+    public static class RateBudget {
+        private double ratePerSecond; // Reposição contínua
+        private int burst; // Requisições de uma vez com o balde cheio
+
+        public RateBudget() {
+        }
+
+        public RateBudget(double ratePerSecond, int burst) {
+            this.ratePerSecond = ratePerSecond;
+            this.burst = burst;
+        }
+    }
+
+    /**
+     * Limites que isolam as chamadas de uma filial à Pagar.me das demais.
+     *
+     * Campos vazios herdam: os da unidade vêm de filiais.bulkhead, e os do pool
+     * (maxConnections, pendingAcquire*) de pagarme.http. Pool e event loops só
+     * valem no transporte netty; as permissões valem nos dois.
+     */
+    @Data
+    public static class BulkheadConfig {
+        private Boolean enabled;
+        private Integer maxConcurrentCalls; // Chamadas simultâneas à Pagar.me
+        private Integer maxQueuedCalls; // Chamadas esperando vez; com a fila cheia, recusa na hora
+        private Duration maxWait; // Espera máxima na fila
+        private Integer maxConnections; // Pool de conexões próprio da filial
+        private Integer pendingAcquireMaxCount;
+        private Duration pendingAcquireTimeout;
+        private Integer eventLoopThreads; // > 0 = event loops próprios em vez dos compartilhados
+
+        static BulkheadConfig defaults() {
+            BulkheadConfig config = new BulkheadConfig();
+            config.setEnabled(true);
+            config.setMaxConcurrentCalls(50);
+            config.setMaxQueuedCalls(200);
+            config.setMaxWait(Duration.ofSeconds(5));
+            return config;
+        }
+
+        /**
+         * Esta configuração com os campos vazios preenchidos pelos de defaults
+         */
+        public BulkheadConfig withDefaults(BulkheadConfig defaults) {
+            BulkheadConfig merged = new BulkheadConfig();
+            merged.setEnabled(enabled != null ? enabled : defaults.getEnabled());
+            merged.setMaxConcurrentCalls(maxConcurrentCalls != null ? maxConcurrentCalls : defaults.getMaxConcurrentCalls());
+            merged.setMaxQueuedCalls(maxQueuedCalls != null ? maxQueuedCalls : defaults.getMaxQueuedCalls());
+            merged.setMaxWait(maxWait != null ? maxWait : defaults.getMaxWait());
+            merged.setMaxConnections(maxConnections != null ? maxConnections : defaults.getMaxConnections());
+            merged.setPendingAcquireMaxCount(pendingAcquireMaxCount != null ? pendingAcquireMaxCount : defaults.getPendingAcquireMaxCount());
+            merged.setPendingAcquireTimeout(pendingAcquireTimeout != null ? pendingAcquireTimeout : defaults.getPendingAcquireTimeout());
+            merged.setEventLoopThreads(eventLoopThreads != null ? eventLoopThreads : defaults.getEventLoopThreads());
+            return merged;
+        }
+
+        /**
+         * Confere uma configuração já combinada com os padrões
+         *
+         * @throws IllegalStateException se algum limite for inválido
+         */
+        public void validate(String filialId) {
+            if (enabled == null || maxConcurrentCalls == null || maxConcurrentCalls < 1
+                    || maxQueuedCalls == null || maxQueuedCalls < 0 || maxWait == null || maxWait.isNegative()) {
+                throw new IllegalStateException("bulkhead inválido para a filial " + filialId
+                        + ": max-concurrent-calls >= 1, max-queued-calls >= 0 e max-wait são obrigatórios");
+            }
+            if ((maxConnections != null && maxConnections < 1)
+                    || (pendingAcquireMaxCount != null && pendingAcquireMaxCount < -1)
+                    || (eventLoopThreads != null && eventLoopThreads < 0)) {
+                throw new IllegalStateException("bulkhead inválido para a filial " + filialId
+                        + ": limites de pool e event loops fora da faixa");
+            }
+        }
+
+        /**
+         * Se o pool de conexões montado com esta configuração serve para a outra
+         * (as permissões podem mudar sem trocar de pool)
+         */
+        public boolean samePool(BulkheadConfig other) {
+            return Objects.equals(maxConnections, other.getMaxConnections())
+                    && Objects.equals(pendingAcquireMaxCount, other.getPendingAcquireMaxCount())
+                    && Objects.equals(pendingAcquireTimeout, other.getPendingAcquireTimeout())
+                    && Objects.equals(eventLoopThreads, other.getEventLoopThreads());
+        }
     }
 
     @Data
@@ -0,0 +1,56 @@
+package com.villaggiogirotto.split.villagiosplit.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Consulta e recarga da configuração de filiais
+ * GET  /actuator/filiais - snapshot em vigor
+ * POST /actuator/filiais - recarrega do arquivo (ou do Environment)
+ */
+@Component
+@Endpoint(id = "filiais")
+public class FiliaisEndpoint {
+
+    private final FilialRegistry filialRegistry;
+    private final FiliaisReloader reloader;
+
+    public FiliaisEndpoint(FilialRegistry filialRegistry, FiliaisReloader reloader) {
+        this.filialRegistry = filialRegistry;
+        this.reloader = reloader;
+    }
+
+    @ReadOperation
+    public Map<String, Object> snapshot() {
+        return describe(filialRegistry.getSnapshot());
+    }
+
+    @WriteOperation
+    public Map<String, Object> reload() {
+        try {
+            Map<String, Object> response = describe(reloader.reload());
+            response.put("success", true);
+            return response;
+        } catch (IllegalStateException ex) {
+            Map<String, Object> errorResponse = describe(filialRegistry.getSnapshot());
+            errorResponse.put("success", false);
+            errorResponse.put("error", ex.getMessage());
+            return errorResponse;
+        }
+    }
+
+    private Map<String, Object> describe(FilialRegistry.Snapshot snapshot) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("version", snapshot.getVersion());
+        response.put("source", snapshot.getSource());
+        response.put("loadedAt", snapshot.getLoadedAt().toString());
+        response.put("filiais", snapshot.getFilialIds());
+        response.put("file", reloader.getFile() != null ? reloader.getFile().toString() : null);
+        return response;
+    }
+}
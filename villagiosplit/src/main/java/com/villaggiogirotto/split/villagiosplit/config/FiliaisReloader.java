@@ -0,0 +1,158 @@
+package com.villaggiogirotto.split.villagiosplit.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.PropertySourcesPlaceholdersResolver;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Recarrega filiais e recebedores sem restart.
+ *
+ * A fonte é o arquivo em filiais.reload.file (mesmo formato do application.yml,
+ * com placeholders ${...} resolvidos pelo ambiente) ou, sem arquivo, o próprio
+ * Environment. O snapshot novo é montado numa thread dedicada e publicado pelo
+ * {@link FilialRegistry}; se a configuração for inválida o snapshot atual continua.
+ */
+@Component
+public class FiliaisReloader {
+
+    private static final Logger log = LoggerFactory.getLogger(FiliaisReloader.class);
+    private static final long DEBOUNCE_MILLIS = 300; // Editores costumam gravar o arquivo em várias etapas
+
+    private final FilialRegistry filialRegistry;
+    private final FiliaisConfig.ReloadConfig reloadConfig;
+    private final ConfigurableEnvironment environment;
+    private final ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "filiais-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private WatchService watchService;
+
+    public FiliaisReloader(FilialRegistry filialRegistry, FiliaisConfig filiaisConfig, ConfigurableEnvironment environment) {
+        this.filialRegistry = filialRegistry;
+        this.reloadConfig = filiaisConfig.getReload();
+        this.environment = environment;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Path file = getFile();
+        if (file == null) {
+            return;
+        }
+        if (Files.exists(file)) {
+            reload();
+        }
+        if (reloadConfig.isWatch()) {
+            watch(file);
+        }
+    }
+
+    /**
+     * Recarrega a configuração e aguarda o novo snapshot ser publicado.
+     */
+    public FilialRegistry.Snapshot reload() {
+        try {
+            return reloadExecutor.submit(this::load).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Recarga de filiais interrompida", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Falha ao recarregar filiais: " + ex.getCause().getMessage(), ex.getCause());
+        }
+    }
+
+    public Path getFile() {
+        String file = reloadConfig.getFile();
+        return (file == null || file.isBlank()) ? null : Path.of(file).toAbsolutePath();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        reloadExecutor.shutdownNow();
+    }
+
+    private FilialRegistry.Snapshot load() throws IOException {
+        Path file = getFile();
+        FiliaisConfig filiaisConfig;
+        String source;
+
+        if (file != null) {
+            List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                    .load("filiais-reload", new FileSystemResource(file));
+            Binder binder = new Binder(ConfigurationPropertySources.from(sources),
+                    new PropertySourcesPlaceholdersResolver(environment));
+            filiaisConfig = binder.bind("filiais", FiliaisConfig.class).orElseGet(FiliaisConfig::new);
+            source = file.toString();
+        } else {
+            filiaisConfig = Binder.get(environment).bind("filiais", FiliaisConfig.class).orElseGet(FiliaisConfig::new);
+            source = "environment";
+        }
+
+        FilialRegistry.Snapshot snapshot = filialRegistry.install(filiaisConfig, source);
+        log.info("Filiais recarregadas de {} (versão {}): {}", source, snapshot.getVersion(), snapshot.getFilialIds());
+        return snapshot;
+    }
+
+    private void watch(Path file) throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        Thread watcher = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watchService.take();
+                    boolean changed = false;
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (file.getFileName().equals(event.context())) {
+                            changed = true;
+                        }
+                    }
+                    key.reset();
+                    if (changed) {
+                        Thread.sleep(DEBOUNCE_MILLIS);
+                        reloadExecutor.submit(() -> {
+                            try {
+                                return load();
+                            } catch (Exception ex) {
+                                log.error("Arquivo de filiais inválido, mantendo configuração atual: {}", ex.getMessage());
+                                return null;
+                            }
+                        });
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                // Aplicação encerrando
+            }
+        }, "filiais-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+}
@@ -0,0 +1,103 @@
+package com.villaggiogirotto.split.villagiosplit.config;
+
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeClient;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Filial já resolvida e imutável, montada a partir do {@link FiliaisConfig}
+ * a cada snapshot do {@link FilialRegistry}, junto com o seu cliente Pagar.me.
+ */
+public final class Filial {
+
+    private final String id;
+    private final String publicId;
+    private final String nome;
+    private final String secretKey;
+    private final String publicKey;
+    private final List<String> aliases;
+    private final List<FiliaisConfig.RecebedorConfig> recebedores;
+    private final Map<String, Object> publicView;
+    private final PagarmeClient client;
+
+    Filial(String id, FiliaisConfig.FilialConfig config, PagarmeClient client) {
+        this.id = id;
+        this.publicId = config.getPublicId() != null && !config.getPublicId().isBlank() ? config.getPublicId() : id;
+        this.nome = config.getNome();
+        this.secretKey = config.getSecretKey();
+        this.publicKey = config.getPublicKey();
+        this.aliases = config.getAliases() != null ? List.copyOf(config.getAliases()) : List.of();
+        this.recebedores = config.getRecebedores() != null ? List.copyOf(config.getRecebedores()) : List.of();
+        this.publicView = buildPublicView();
+        this.client = client;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Chave da filial em GET /filiais, que o frontend usa como ID
+     */
+    public String getPublicId() {
+        return publicId;
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public String getSecretKey() {
+        return secretKey;
+    }
+
+    public String getPublicKey() {
+        return publicKey;
+    }
+
+    public List<String> getAliases() {
+        return aliases;
+    }
+
+    public List<FiliaisConfig.RecebedorConfig> getRecebedores() {
+        return recebedores;
+    }
+
+    /**
+     * Cliente HTTP da filial (null se a filial não tiver secret key)
+     */
+    public PagarmeClient getClient() {
+        return client;
+    }
+
+    public boolean hasSecretKey() {
+        return secretKey != null && !secretKey.isBlank();
+    }
+
+    /**
+     * Dados públicos da filial (sem secretKey), no formato de GET /filiais
+     */
+    public Map<String, Object> getPublicView() {
+        return publicView;
+    }
+
+    private Map<String, Object> buildPublicView() {
+        Map<String, Object> filialMap = new LinkedHashMap<>();
+        filialMap.put("nome", nome);
+        filialMap.put("publicKey", publicKey);
+        filialMap.put("recebedores", recebedores.stream()
+                .map(r -> {
+                    Map<String, Object> recebedorMap = new LinkedHashMap<>();
+                    recebedorMap.put("id", r.getId());
+                    recebedorMap.put("nome", r.getNome());
+                    recebedorMap.put("liable", r.isLiable());
+                    return Collections.unmodifiableMap(recebedorMap);
+                })
+                .collect(Collectors.toUnmodifiableList()));
+        return Collections.unmodifiableMap(filialMap);
+    }
+}
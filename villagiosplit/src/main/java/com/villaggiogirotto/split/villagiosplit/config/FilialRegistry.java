@@ -0,0 +1,307 @@
+package com.villaggiogirotto.split.villagiosplit.config;
+
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeClient;
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeClientRegistry;
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeRateLimiter;
+import com.villaggiogirotto.split.villagiosplit.service.cache.CustomerIndex;
+import com.villaggiogirotto.split.villagiosplit.service.cache.CustomerListCache;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Registro das filiais configuradas em {@link FiliaisConfig}.
+ *
+ * Todo o estado fica num {@link Snapshot} imutável. Uma recarga monta um
+ * snapshot novo por completo (inclusive os clientes HTTP das filiais cuja
+ * secret key mudou) e só então o publica com uma única escrita volátil,
+ * no estilo copy-on-write: quem está no caminho da requisição lê o snapshot
+ * atual sem lock e nunca enxerga uma configuração pela metade.
+ *
+ * A busca por ID/alias é O(1) e não aloca: o ID recebido é normalizado
+ * caractere a caractere (ignora maiúsculas, hífens, underscores e espaços)
+ * direto na tabela hash, sem toLowerCase(). Assim "minas-gerais",
+ * "minasGerais" e "MINAS_GERAIS" resolvem para a mesma filial.
+ */
+@Component
+public class FilialRegistry {
+
+    private final PagarmeClientRegistry clientRegistry;
+    private final PagarmeRateLimiter rateLimiter;
+    private final CustomerIndex customerIndex;
+    private final CustomerListCache customerListCache;
+    private final FiliaisConfig.ReloadConfig reloadConfig;
+    private volatile Snapshot snapshot;
+
+    public FilialRegistry(FiliaisConfig filiaisConfig, PagarmeClientRegistry clientRegistry, PagarmeRateLimiter rateLimiter,
+                          CustomerIndex customerIndex, CustomerListCache customerListCache) {
+        this.clientRegistry = clientRegistry;
+        this.rateLimiter = rateLimiter;
+        this.customerIndex = customerIndex;
+        this.customerListCache = customerListCache;
+        this.reloadConfig = filiaisConfig.getReload();
+        install(filiaisConfig, "application.yml");
+    }
+
+    /**
+     * Resolve uma filial pelo ID ou alias.
+     *
+     * @return a filial, ou null se não existir
+     */
+    public Filial find(String filialId) {
+        if (filialId == null) {
+            return null;
+        }
+        return snapshot.find(filialId);
+    }
+
+    public Collection<Filial> getFiliais() {
+        return snapshot.filiais.values();
+    }
+
+    /**
+     * Todas as filiais no formato público de GET /filiais (sem secretKey)
+     */
+    public Map<String, Object> getPublicView() {
+        return snapshot.publicView;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Monta um snapshot novo a partir da configuração e o publica atomicamente.
+     *
+     * Tudo é montado e validado antes de qualquer mudança em vigor: snapshot,
+     * limites de requisições (filiais.rate-limit) e de bulkhead. Uma configuração
+     * inválida não muda nada. Na troca, os limites novos entram logo antes do
+     * snapshot e os das filiais removidas só saem depois dele, então nenhuma
+     * filial visível fica sem os seus limites. Clientes que deixaram de ser
+     * usados são fechados após o período de carência.
+     *
+     * Se a secret key de uma filial mudou (outra conta Pagar.me) ou a filial saiu,
+     * o índice e o cache de listagem de clientes dela são descartados logo após a
+     * troca: os IDs guardados são da conta antiga.
+     *
+     * Só escritores passam por aqui (recarga de arquivo ou actuator), por isso
+     * o synchronized não afeta quem lê.
+     */
+    public synchronized Snapshot install(FiliaisConfig filiaisConfig, String source) {
+        Snapshot previous = snapshot;
+        Map<String, FiliaisConfig.BulkheadConfig> bulkheads = bulkheadConfigs(filiaisConfig);
+        PagarmeRateLimiter.Plan rateLimits = rateLimiter.plan(filiaisConfig);
+        Snapshot next = build(filiaisConfig, bulkheads, source, previous != null ? previous.version + 1 : 1, previous);
+
+        rateLimiter.apply(rateLimits);
+        clientRegistry.configureBulkheads(bulkheads);
+        snapshot = next;
+        rateLimiter.retire(rateLimits);
+        clientRegistry.retainBulkheads(next.getFilialIds());
+
+        if (previous == null) {
+            return next;
+        }
+        for (Filial old : previous.filiais.values()) {
+            PagarmeClient client = old.getClient();
+            if (client != null && !next.usesClient(client)) {
+                clientRegistry.retire(client, reloadConfig.getGracePeriod());
+            }
+            Filial current = next.filiais.get(old.getId());
+            if (current == null || !Objects.equals(current.getSecretKey(), old.getSecretKey())) {
+                customerIndex.clear(old.getId());
+                customerListCache.invalidateFilial(old.getId());
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Limites de bulkhead de cada unidade com secret key, já combinados com filiais.bulkhead e validados
+     */
+    private static Map<String, FiliaisConfig.BulkheadConfig> bulkheadConfigs(FiliaisConfig filiaisConfig) {
+        Map<String, FiliaisConfig.BulkheadConfig> configs = new LinkedHashMap<>();
+        filiaisConfig.getUnidades().forEach((id, config) -> {
+            if (config != null && config.getSecretKey() != null && !config.getSecretKey().isBlank()) {
+                FiliaisConfig.BulkheadConfig merged = config.getBulkhead().withDefaults(filiaisConfig.getBulkhead());
+                merged.validate(id);
+                configs.put(id, merged);
+            }
+        });
+        return configs;
+    }
+
+    private Snapshot build(FiliaisConfig filiaisConfig, Map<String, FiliaisConfig.BulkheadConfig> bulkheads,
+                           String source, long version, Snapshot previous) {
+        Map<String, Filial> byId = new LinkedHashMap<>();
+        Map<String, Object> view = new LinkedHashMap<>();
+        List<String> aliases = new ArrayList<>();
+        List<Filial> targets = new ArrayList<>();
+        List<PagarmeClient> created = new ArrayList<>();
+
+        try {
+            filiaisConfig.getUnidades().forEach((id, config) -> {
+                if (config == null) {
+                    return;
+                }
+                PagarmeClient client = null;
+                if (config.getSecretKey() != null && !config.getSecretKey().isBlank()) {
+                    Filial current = previous != null ? previous.filiais.get(id) : null;
+                    PagarmeClient currentClient = current != null ? current.getClient() : null;
+                    client = clientRegistry.clientFor(id, config.getSecretKey(), bulkheads.get(id), currentClient);
+                    if (client != currentClient) {
+                        created.add(client);
+                    }
+                }
+                Filial filial = new Filial(id, config, client);
+                byId.put(id, filial);
+                if (view.put(filial.getPublicId(), filial.getPublicView()) != null) {
+                    throw new IllegalStateException("public-id de filial duplicado: " + filial.getPublicId());
+                }
+
+                aliases.add(id);
+                targets.add(filial);
+                for (String alias : filial.getAliases()) {
+                    aliases.add(alias);
+                    targets.add(filial);
+                }
+            });
+
+            return new Snapshot(version, source, byId, view, aliases, targets);
+        } catch (RuntimeException ex) {
+            // Configuração inválida: o snapshot atual continua valendo
+            created.forEach(client -> clientRegistry.retire(client, Duration.ZERO));
+            if (previous != null) {
+                clientRegistry.retainBulkheads(previous.getFilialIds());
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Configuração de filiais imutável em vigor num dado momento.
+     */
+    public static final class Snapshot {
+
+        private final long version;
+        private final String source;
+        private final Instant loadedAt = Instant.now();
+        private final Map<String, Filial> filiais;
+        private final Map<String, Object> publicView;
+        private final String[] keys;
+        private final Filial[] values;
+        private final int mask;
+
+        private Snapshot(long version, String source, Map<String, Filial> filiais, Map<String, Object> publicView,
+                         List<String> aliases, List<Filial> targets) {
+            this.version = version;
+            this.source = source;
+            this.filiais = Collections.unmodifiableMap(filiais);
+            this.publicView = Collections.unmodifiableMap(publicView);
+
+            int capacity = Integer.highestOneBit(Math.max(aliases.size(), 1) * 4 - 1) << 1;
+            this.keys = new String[capacity];
+            this.values = new Filial[capacity];
+            this.mask = capacity - 1;
+            for (int i = 0; i < aliases.size(); i++) {
+                put(aliases.get(i), targets.get(i));
+            }
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public Instant getLoadedAt() {
+            return loadedAt;
+        }
+
+        public Collection<String> getFilialIds() {
+            return filiais.keySet();
+        }
+
+        private Filial find(String filialId) {
+            int index = hash(filialId) & mask;
+            while (keys[index] != null) {
+                if (sameId(keys[index], filialId)) {
+                    return values[index];
+                }
+                index = (index + 1) & mask;
+            }
+            return null;
+        }
+
+        private boolean usesClient(PagarmeClient client) {
+            for (Filial filial : filiais.values()) {
+                if (filial.getClient() == client) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void put(String alias, Filial filial) {
+            int index = hash(alias) & mask;
+            while (keys[index] != null) {
+                if (sameId(keys[index], alias)) {
+                    if (values[index] != filial) {
+                        throw new IllegalStateException("Alias de filial duplicado: " + alias);
+                    }
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[index] = alias;
+            values[index] = filial;
+        }
+    }
+
+    private static int hash(String id) {
+        int h = 0;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (isSeparator(c)) {
+                continue;
+            }
+            h = 31 * h + Character.toLowerCase(c);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean sameId(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (true) {
+            while (i < a.length() && isSeparator(a.charAt(i))) {
+                i++;
+            }
+            while (j < b.length() && isSeparator(b.charAt(j))) {
+                j++;
+            }
+            if (i == a.length() || j == b.length()) {
+                return i == a.length() && j == b.length();
+            }
+            if (Character.toLowerCase(a.charAt(i)) != Character.toLowerCase(b.charAt(j))) {
+                return false;
+            }
+            i++;
+            j++;
+        }
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '-' || c == '_' || c == ' ';
+    }
+}
@@ -0,0 +1,21 @@
+package com.villaggiogirotto.split.villagiosplit.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Deduplicação de POST /orders por Idempotency-Key (ou code do pedido).
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "orders.idempotency")
+public class IdempotencyConfig {
+    private boolean enabled = true;
+    private Duration ttl = Duration.ofHours(24); // Por quanto tempo uma chave é lembrada
+    private long maxEntries = 100_000;
+    private String file; // Arquivo append-only para sobreviver a restarts; vazio = só memória
+    private boolean codeAsKey = true; // Sem header Idempotency-Key, o code do pedido vira a chave
+}
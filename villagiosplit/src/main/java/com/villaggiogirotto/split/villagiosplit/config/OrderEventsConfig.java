@@ -0,0 +1,18 @@
+package com.villaggiogirotto.split.villagiosplit.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Stream SSE de status do pedido (GET /orders/{id}/events).
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "orders.events")
+public class OrderEventsConfig {
+    private Duration heartbeat = Duration.ofSeconds(15); // Comentário vazio para proxies não fecharem a conexão
+    private Duration timeout = Duration.ofMinutes(5); // Encerra com evento "timeout"; o EventSource reconecta sozinho
+}
@@ -0,0 +1,30 @@
+package com.villaggiogirotto.split.villagiosplit.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Consulta periódica dos pedidos pix/boleto pendentes na Pagar.me, para
+ * ambientes sem webhook (ex.: staging).
+ *
+ * O intervalo entre consultas de um pedido cresce com a idade dele (um décimo
+ * da idade), dentro dos limites de cada método de pagamento.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "orders.poller")
+public class OrderPollerConfig {
+    private boolean enabled = false; // Ligue em ambientes sem webhook (ORDERS_POLLER_ENABLED=true)
+    private Duration tick = Duration.ofSeconds(1); // Frequência com que os pedidos vencidos são selecionados
+    private double maxPollsPerSecond = 5; // Orçamento global de consultas (todas as filiais)
+    private int concurrencyPerFilial = 2; // Consultas simultâneas por filial
+    private int maxTracked = 50_000;
+    private Duration pixMinInterval = Duration.ofSeconds(5);
+    private Duration pixMaxInterval = Duration.ofMinutes(2);
+    private Duration boletoMinInterval = Duration.ofMinutes(10);
+    private Duration boletoMaxInterval = Duration.ofHours(2);
+    private Duration boletoGrace = Duration.ofDays(3); // Compensação do boleto após o vencimento
+}
@@ -0,0 +1,19 @@
+package com.villaggiogirotto.split.villagiosplit.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Estado local dos pedidos, usado por GET /orders/{id}.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "orders.state")
+public class OrderStateConfig {
+    private long maxEntries = 200_000;
+    private Duration retention = Duration.ofDays(7); // Pedidos sem novidade há mais tempo são esquecidos
+    private Duration staleAfter = Duration.ofSeconds(30); // Pedido pendente sem notícia há mais tempo é relido da Pagar.me
+}
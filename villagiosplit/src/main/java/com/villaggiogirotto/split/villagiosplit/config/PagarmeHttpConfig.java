@@ -0,0 +1,37 @@
+package com.villaggiogirotto.split.villagiosplit.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuração do pool de conexões HTTP usado para falar com a Pagar.me.
+ *
+ * Cada filial recebe um cliente próprio, de vida longa, com o seu próprio
+ * pool construído a partir destes valores. O transporte padrão é o Reactor
+ * Netty; com transport=blocking o cliente usa o HttpClient do JDK, e os
+ * limites de pool (maxConnections, pendingAcquire*) deixam de valer.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "pagarme.http")
+public class PagarmeHttpConfig {
+    private int maxConnections = 50; // Conexões simultâneas por filial
+    private int pendingAcquireMaxCount = 200; // Requisições aguardando conexão livre
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+    private Duration maxIdleTime = Duration.ofSeconds(30); // Fecha conexões ociosas
+    private Duration maxLifeTime = Duration.ofMinutes(5); // Recicla conexões antigas
+    private Duration evictInBackground = Duration.ofSeconds(30);
+    private Duration connectTimeout = Duration.ofSeconds(10);
+    private Duration responseTimeout = Duration.ofSeconds(10); // Por tentativa, até a resposta chegar
+    private boolean keepAlive = true;
+    private boolean http2 = true; // Negocia HTTP/2 via ALPN quando a Pagar.me oferecer
+    private Transport transport = Transport.NETTY;
+
+    public enum Transport {
+        NETTY, // WebClient sobre Reactor Netty, sem bloquear threads
+        BLOCKING // RestClient sobre o HttpClient do JDK; feito para virtual threads (perfil "virtual", Java 21)
+    }
+}
@@ -0,0 +1,57 @@
+package com.villaggiogirotto.split.villagiosplit.config;
+
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeEndpoint;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Prazos, retentativas e circuit breakers das chamadas à Pagar.me.
+ *
+ * O prazo de conexão e o de resposta de cada tentativa ficam no transporte
+ * (pagarme.http.connect-timeout e response-timeout); aqui fica o prazo total
+ * da chamada, retentativas incluídas.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "pagarme.resilience")
+public class PagarmeResilienceConfig {
+    private boolean enabled = true;
+    private Duration deadline = Duration.ofSeconds(15); // Prazo total de uma chamada
+    private Map<PagarmeEndpoint, Duration> deadlines = new EnumMap<>(PagarmeEndpoint.class); // Exceções por endpoint
+    private RetryConfig retry = new RetryConfig();
+    private BreakerConfig breaker = new BreakerConfig();
+
+    public Duration deadlineFor(PagarmeEndpoint endpoint) {
+        return deadlines.getOrDefault(endpoint, deadline);
+    }
+
+    /**
+     * Só GET e PUT são repetidos; POST não é idempotente na Pagar.me sem Idempotency-Key
+     */
+    @Data
+    public static class RetryConfig {
+        private int maxAttempts = 3; // Tentativas no total, incluindo a primeira
+        private Duration initialBackoff = Duration.ofMillis(200);
+        private Duration maxBackoff = Duration.ofSeconds(2);
+        private double jitter = 0.5; // Fração aleatória de cada espera (0 a 1)
+    }
+
+    /**
+     * Um circuit breaker por filial e endpoint, com janela por contagem de chamadas
+     */
+    @Data
+    public static class BreakerConfig {
+        private int windowSize = 50; // Últimas chamadas consideradas
+        private int minimumCalls = 20; // Abaixo disso o breaker não abre
+        private float failureRateThreshold = 50; // % de falhas (5xx, 429, timeout, conexão) que abre o breaker
+        private Duration slowCallDuration = Duration.ofSeconds(5);
+        private float slowCallRateThreshold = 80; // % de chamadas lentas que abre o breaker
+        private Duration openDuration = Duration.ofSeconds(30); // Tempo falhando rápido antes de testar de novo
+        private int halfOpenCalls = 5; // Chamadas de teste no meio-aberto
+    }
+}
@@ -0,0 +1,38 @@
+package com.villaggiogirotto.split.villagiosplit.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.villaggiogirotto.split.villagiosplit.controller.support.ReactiveStreamedBodyArgumentResolver;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+
+/**
+ * Modo reativo do servidor (perfil "reactive" ou spring.main.web-application-type=reactive).
+ *
+ * O Tomcat continua no classpath por causa do modo servlet, e o Spring Boot
+ * o escolheria também para o WebFlux; declarar a fábrica do Netty aqui faz o
+ * servidor ser o mesmo event loop do Reactor Netty usado pelos clientes Pagar.me.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class WebFluxConfig implements WebFluxConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+    public WebFluxConfig(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        configurer.addCustomResolver(new ReactiveStreamedBodyArgumentResolver(objectMapper));
+    }
+}
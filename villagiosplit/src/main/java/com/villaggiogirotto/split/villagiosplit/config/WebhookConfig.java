@@ -0,0 +1,27 @@
+package com.villaggiogirotto.split.villagiosplit.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Recebimento de webhooks da Pagar.me (POST /webhooks/pagarme).
+ *
+ * A Pagar.me envia as credenciais cadastradas no webhook via HTTP Basic;
+ * sem username/password configurados, todo webhook é recusado.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "webhooks.pagarme")
+public class WebhookConfig {
+    private String username;
+    private String password;
+    private int queueCapacity = 10_000; // Eventos aguardando processamento; cheio = 503 (a Pagar.me reenvia)
+    private int workers = 2; // Lotes aplicados ao mesmo tempo
+    private int batchSize = 200; // Eventos aplicados por vez
+    private Duration batchWait = Duration.ofMillis(100); // Espera máxima para completar um lote
+    private Duration dedupeTtl = Duration.ofHours(24); // Por quanto tempo um event id é lembrado
+    private long dedupeMaxEntries = 200_000;
+}
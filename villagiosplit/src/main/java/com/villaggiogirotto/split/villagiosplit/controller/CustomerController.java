@@ -2,18 +2,26 @@ package com.villaggiogirotto.split.villagiosplit.controller;
 
 import com.villaggiogirotto.split.villagiosplit.controller.requests.CreateCustomerRequest;
 import com.villaggiogirotto.split.villagiosplit.controller.requests.ListCustomersRequest;
+import com.villaggiogirotto.split.villagiosplit.controller.support.StreamedBody;
 import com.villaggiogirotto.split.villagiosplit.service.PagarmeCustomerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/customers")
 public class CustomerController {
 
+    private static final Logger log = LoggerFactory.getLogger(CustomerController.class);
+
     private final PagarmeCustomerService customerService;
 
     public CustomerController(PagarmeCustomerService customerService) {
@@ -23,9 +31,29 @@ public class CustomerController {
     /**
      * Cria um cliente na API Pagar.me
      * POST /customers
+     *
+     * Com ?reuseExisting=true, se o índice local já conhece um cliente com o mesmo
+     * documento, e-mail ou código, devolve o ID dele em vez de criar um duplicado.
      */
     @PostMapping
-    public Mono<ResponseEntity<Map<String, Object>>> createCustomer(@RequestBody CreateCustomerRequest req) {
+    public Mono<ResponseEntity<Map<String, Object>>> createCustomer(
+            @RequestBody CreateCustomerRequest req,
+            @RequestParam(defaultValue = "false") boolean reuseExisting
+    ) {
+        if (reuseExisting) {
+            String existingId = customerService.findExistingCustomer(req);
+            if (existingId != null) {
+                Map<String, Object> customer = new HashMap<>();
+                customer.put("id", existingId);
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("reused", true);
+                response.put("customer", customer);
+                return Mono.just(ResponseEntity.ok(response));
+            }
+        }
+
         return customerService.createCustomer(req)
                 .map(customerResponse -> {
                     Map<String, Object> response = new HashMap<>();
@@ -34,7 +62,7 @@ public class CustomerController {
                     return ResponseEntity.ok(response);
                 })
                 .onErrorResume(ex -> {
-                    ex.printStackTrace();
+                    log.error("Falha ao criar cliente", ex);
                     Map<String, Object> errorResponse = new HashMap<>();
                     errorResponse.put("success", false);
                     errorResponse.put("error", ex.getMessage());
@@ -42,14 +70,68 @@ public class CustomerController {
                 });
     }
 
+    /**
+     * Importa clientes em massa
+     * POST /customers/import (Content-Type: text/csv)
+     *
+     * Planilha com cabeçalho (separador "," ou ";") com as colunas de
+     * POST /customers: filialId, name, email, document, documentType, type,
+     * code, gender e birthdate.
+     *
+     * Responde em NDJSON: uma linha por cliente (created, existing, duplicate
+     * ou error), uma linha de progresso a cada N clientes e uma linha "done".
+     */
+    @PostMapping(value = "/import", consumes = "text/csv", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> importCustomersCsv(
+            @StreamedBody Flux<CreateCustomerRequest> requests,
+            @RequestParam(defaultValue = "false") boolean reuseExisting
+    ) {
+        return importCustomers(requests, reuseExisting);
+    }
+
+    /**
+     * Importa clientes em massa a partir de um array JSON ou NDJSON
+     * no mesmo formato de POST /customers
+     */
+    @PostMapping(value = "/import", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> importCustomers(
+            @StreamedBody Flux<CreateCustomerRequest> requests,
+            @RequestParam(defaultValue = "false") boolean reuseExisting
+    ) {
+        return customerService.importCustomers(requests, reuseExisting)
+                .map(result -> {
+                    Map<String, Object> response = new LinkedHashMap<>();
+                    if (result.getIndex() != null) {
+                        response.put("index", result.getIndex());
+                        response.put("status", result.getStatus());
+                        response.put("code", result.getCode());
+                        response.put("customer_id", result.getCustomerId());
+                        if (result.getError() != null) {
+                            response.put("error", result.getError());
+                        }
+                    } else {
+                        response.put("status", result.getStatus());
+                        response.put("processed", result.getProcessed());
+                        response.put("created", result.getCreated());
+                        response.put("existing", result.getExisting());
+                        response.put("duplicates", result.getDuplicates());
+                        response.put("errors", result.getErrors());
+                    }
+                    return response;
+                });
+    }
+
     /**
      * Lista clientes da API Pagar.me
      * GET /customers
+     *
+     * Sem filialId, busca em todas as filiais em paralelo e junta os resultados
+     * (cada cliente com o seu filialId). Filiais que não respondem a tempo ficam
+     * de fora, com "partial": true e a situação de cada uma em "filiais".
      */
     @GetMapping
-
     public Mono<ResponseEntity<Map<String, Object>>> listCustomers(
-            @RequestParam String filialId,
+            @RequestParam(required = false) String filialId,
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String document,
             @RequestParam(required = false) String email,
@@ -58,15 +140,26 @@ public class CustomerController {
             @RequestParam(defaultValue = "1") Integer page,
             @RequestParam(defaultValue = "10") Integer size
     ) {
-        ListCustomersRequest req = new ListCustomersRequest();
-        req.setFilialId(filialId);
-        req.setName(name);
-        req.setDocument(document);
-        req.setEmail(email);
-        req.setGender(gender);
-        req.setCode(code);
-        req.setPage(page);
-        req.setSize(size);
+        ListCustomersRequest req = buildListRequest(filialId, name, document, email, gender, code, page, size);
+
+        if (filialId == null || filialId.isBlank()) {
+            return customerService.searchAllFiliais(req)
+                    .map(result -> {
+                        Map<String, Object> response = new HashMap<>();
+                        response.put("success", true);
+                        response.put("partial", result.isPartial());
+                        response.put("data", result.getData());
+                        response.put("filiais", result.getFiliais());
+                        return ResponseEntity.ok(response);
+                    })
+                    .onErrorResume(ex -> {
+                        log.error("Falha ao buscar clientes em todas as filiais", ex);
+                        Map<String, Object> errorResponse = new HashMap<>();
+                        errorResponse.put("success", false);
+                        errorResponse.put("error", ex.getMessage());
+                        return Mono.just(ResponseEntity.badRequest().body(errorResponse));
+                    });
+        }
 
         return customerService.listCustomers(req)
                 .map(customersResponse -> {
@@ -76,7 +169,7 @@ public class CustomerController {
                     return ResponseEntity.ok(response);
                 })
                 .onErrorResume(ex -> {
-                    ex.printStackTrace();
+                    log.error("Falha ao listar clientes da filial {}", filialId, ex);
                     Map<String, Object> errorResponse = new HashMap<>();
                     errorResponse.put("success", false);
                     errorResponse.put("error", ex.getMessage());
@@ -84,6 +177,36 @@ public class CustomerController {
                 });
     }
 
+    /**
+     * Busca o ID Pagar.me de um cliente pelo documento, e-mail ou código
+     * GET /customers/lookup
+     *
+     * Responde só com o índice local (alimentado por cadastros, atualizações,
+     * listagens e pela varredura inicial), sem chamar a Pagar.me.
+     */
+    @GetMapping("/lookup")
+    public ResponseEntity<Map<String, Object>> lookupCustomer(
+            @RequestParam String filialId,
+            @RequestParam(required = false) String document,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String code
+    ) {
+        try {
+            String customerId = customerService.lookupCustomer(filialId, document, email, code);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("found", customerId != null);
+            response.put("customer_id", customerId);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException ex) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", ex.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
     /**
      * Atualiza um cliente na API Pagar.me
      * PUT /customers/{customerId}
@@ -101,11 +224,25 @@ public class CustomerController {
                     return ResponseEntity.ok(response);
                 })
                 .onErrorResume(ex -> {
-                    ex.printStackTrace();
+                    log.error("Falha ao atualizar o cliente {}", customerId, ex);
                     Map<String, Object> errorResponse = new HashMap<>();
                     errorResponse.put("success", false);
                     errorResponse.put("error", ex.getMessage());
                     return Mono.just(ResponseEntity.badRequest().body(errorResponse));
                 });
     }
+
+    static ListCustomersRequest buildListRequest(String filialId, String name, String document, String email,
+                                                         String gender, String code, Integer page, Integer size) {
+        ListCustomersRequest req = new ListCustomersRequest();
+        req.setFilialId(filialId);
+        req.setName(name);
+        req.setDocument(document);
+        req.setEmail(email);
+        req.setGender(gender);
+        req.setCode(code);
+        req.setPage(page);
+        req.setSize(size);
+        return req;
+    }
 }
@@ -0,0 +1,148 @@
+package com.villaggiogirotto.split.villagiosplit.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.villaggiogirotto.split.villagiosplit.controller.requests.ListCustomersRequest;
+import com.villaggiogirotto.split.villagiosplit.service.PagarmeCustomerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Endpoints de /customers que escrevem bytes direto na resposta, no modo servlet (Tomcat).
+ * No modo reativo quem atende as mesmas rotas é o {@link ReactiveCustomerStreamingController}.
+ */
+@RestController
+@RequestMapping("/customers")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CustomerStreamingController {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerStreamingController.class);
+
+    // Envelope da listagem em modo passthrough, já em bytes: {"success":true,"data":<resposta da Pagar.me>}
+    static final byte[] PASSTHROUGH_PREFIX = "{\"success\":true,\"data\":".getBytes(StandardCharsets.UTF_8);
+    static final byte[] PASSTHROUGH_SUFFIX = "}".getBytes(StandardCharsets.UTF_8);
+
+    private final PagarmeCustomerService customerService;
+    private final ObjectMapper objectMapper;
+
+    public CustomerStreamingController(PagarmeCustomerService customerService, ObjectMapper objectMapper) {
+        this.customerService = customerService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Lista clientes em modo passthrough
+     * GET /customers?passthrough=true
+     *
+     * Mesmo formato de GET /customers, mas a resposta da Pagar.me não é
+     * decodificada nem serializada de novo: os buffers recebidos são copiados
+     * para a resposta dentro do envelope pré-montado. Indicado para páginas grandes.
+     */
+    @GetMapping(params = "passthrough=true")
+    public Mono<ResponseEntity<StreamingResponseBody>> listCustomersPassthrough(
+            @RequestParam String filialId,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String document,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String gender,
+            @RequestParam(required = false) String code,
+            @RequestParam(defaultValue = "1") Integer page,
+            @RequestParam(defaultValue = "10") Integer size
+    ) {
+        ListCustomersRequest req = CustomerController.buildListRequest(filialId, name, document, email, gender, code, page, size);
+
+        return customerService.streamCustomers(req)
+                .map(body -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(passthrough(body)))
+                .onErrorResume(ex -> {
+                    log.error("Falha ao listar clientes da filial {} (passthrough)", filialId, ex);
+                    Map<String, Object> errorResponse = new HashMap<>();
+                    errorResponse.put("success", false);
+                    errorResponse.put("error", ex.getMessage());
+                    StreamingResponseBody errorBody = out -> objectMapper.writeValue(out, errorResponse);
+                    return Mono.just(ResponseEntity.badRequest()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(errorBody));
+                });
+    }
+
+    /**
+     * Exporta todos os clientes da filial
+     * GET /customers/export
+     *
+     * Responde em NDJSON, um cliente da Pagar.me por linha, na ordem das páginas.
+     * As páginas são buscadas em paralelo (batch.customers-export.window). Se uma
+     * página falhar no meio da exportação, a última linha traz {"success":false,"error":...}.
+     */
+    @GetMapping("/export")
+    public Mono<ResponseEntity<StreamingResponseBody>> exportCustomers(
+            @RequestParam String filialId,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String document,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String gender,
+            @RequestParam(required = false) String code
+    ) {
+        ListCustomersRequest req = CustomerController.buildListRequest(filialId, name, document, email, gender, code, null, null);
+
+        return customerService.exportCustomers(req)
+                .map(pages -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .body(export(pages)))
+                .onErrorResume(ex -> {
+                    log.error("Falha ao exportar clientes da filial {}", filialId, ex);
+                    Map<String, Object> errorResponse = new HashMap<>();
+                    errorResponse.put("success", false);
+                    errorResponse.put("error", ex.getMessage());
+                    StreamingResponseBody errorBody = out -> objectMapper.writeValue(out, errorResponse);
+                    return Mono.just(ResponseEntity.badRequest()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(errorBody));
+                });
+    }
+
+    private static StreamingResponseBody passthrough(Flux<DataBuffer> body) {
+        return out -> {
+            out.write(PASSTHROUGH_PREFIX);
+            DataBufferUtils.write(body, out)
+                    .doOnNext(DataBufferUtils::release)
+                    .blockLast();
+            out.write(PASSTHROUGH_SUFFIX);
+        };
+    }
+
+    private StreamingResponseBody export(Flux<byte[]> pages) {
+        return out -> {
+            try {
+                // Uma página por vez: a próxima só é pedida depois que esta foi escrita
+                for (byte[] lines : pages.toIterable(1)) {
+                    out.write(lines);
+                    out.flush();
+                }
+            } catch (RuntimeException ex) {
+                log.error("Exportação de clientes interrompida no meio", ex);
+                Map<String, Object> errorLine = new HashMap<>();
+                errorLine.put("success", false);
+                errorLine.put("error", ex.getMessage());
+                out.write(objectMapper.writeValueAsBytes(errorLine));
+                out.write('\n');
+            }
+        };
+    }
+}
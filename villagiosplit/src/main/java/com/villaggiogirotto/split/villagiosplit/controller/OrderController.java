@@ -1,12 +1,21 @@
 package com.villaggiogirotto.split.villagiosplit.controller;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.villaggiogirotto.split.villagiosplit.config.OrderEventsConfig;
 import com.villaggiogirotto.split.villagiosplit.controller.requests.CreateOrderRequest;
+import com.villaggiogirotto.split.villagiosplit.controller.support.StreamedBody;
+import com.villaggiogirotto.split.villagiosplit.dto.OrderSummaryDTO;
 import com.villaggiogirotto.split.villagiosplit.service.PagarmeOrderService;
+import com.villaggiogirotto.split.villagiosplit.service.state.OrderState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -14,10 +23,14 @@ import java.util.Map;
 @RequestMapping("/orders")
 public class OrderController {
 
+    private static final Logger log = LoggerFactory.getLogger(OrderController.class);
+
     private final PagarmeOrderService orderService;
+    private final OrderEventsConfig eventsConfig;
 
-    public OrderController(PagarmeOrderService orderService) {
+    public OrderController(PagarmeOrderService orderService, OrderEventsConfig eventsConfig) {
         this.orderService = orderService;
+        this.eventsConfig = eventsConfig;
     }
 
     /**
@@ -28,45 +41,23 @@ public class OrderController {
      * - pix: PIX
      * - boleto: Boleto bancário
      * - debit_card: Cartão de débito
+     *
+     * O pedido completo da Pagar.me só é devolvido com ?include=order
+     *
+     * Retentativas com o mesmo header Idempotency-Key (ou o mesmo code) não criam
+     * um segundo pedido: recebem a resposta da primeira tentativa.
      */
     @PostMapping
-    public Mono<ResponseEntity<Map<String, Object>>> createOrder(@RequestBody CreateOrderRequest req) {
-        return orderService.createOrder(req)
-                .map(orderResponse -> {
-                    Map<String, Object> response = new HashMap<>();
-                    response.put("success", true);
-                    response.put("order", orderResponse);
-
-                    // Extrair informações importantes baseado no método de pagamento
-                    JsonNode charges = orderResponse.path("charges");
-                    if (charges.isArray() && charges.size() > 0) {
-                        JsonNode charge = charges.get(0);
-                        JsonNode lastTransaction = charge.path("last_transaction");
-
-                        String paymentMethod = lastTransaction.path("transaction_type").asText();
-
-                        switch (paymentMethod) {
-                            case "pix":
-                                response.put("pix_qr_code", lastTransaction.path("qr_code").asText());
-                                response.put("pix_qr_code_url", lastTransaction.path("qr_code_url").asText());
-                                break;
-                            case "boleto":
-                                response.put("boleto_url", lastTransaction.path("url").asText());
-                                response.put("boleto_barcode", lastTransaction.path("barcode").asText());
-                                response.put("boleto_pdf", lastTransaction.path("pdf").asText());
-                                break;
-                            case "credit_card":
-                            case "debit_card":
-                                response.put("transaction_id", lastTransaction.path("id").asText());
-                                response.put("status", charge.path("status").asText());
-                                break;
-                        }
-                    }
-
-                    return ResponseEntity.ok(response);
-                })
+    public Mono<ResponseEntity<Map<String, Object>>> createOrder(
+            @RequestBody CreateOrderRequest req,
+            @RequestParam(required = false) String include,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
+    ) {
+        boolean includeOrder = includes(include, "order");
+        return orderService.createOrder(req, includeOrder, idempotencyKey)
+                .map(summary -> ResponseEntity.ok(toResponse(summary, includeOrder)))
                 .onErrorResume(ex -> {
-                    ex.printStackTrace();
+                    log.error("Falha ao criar pedido", ex);
                     Map<String, Object> errorResponse = new HashMap<>();
                     errorResponse.put("success", false);
                     errorResponse.put("error", ex.getMessage());
@@ -74,30 +65,195 @@ public class OrderController {
                 });
     }
 
+    /**
+     * Cria pedidos em lote
+     * POST /orders/batch
+     *
+     * Aceita um array JSON ou NDJSON de pedidos (mesmo formato de POST /orders)
+     * e responde em NDJSON, uma linha por pedido, à medida que cada um termina.
+     * Cada linha traz o index do item no lote; falhas não interrompem o lote.
+     */
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> createOrders(@StreamedBody Flux<CreateOrderRequest> requests) {
+        return orderService.createOrders(requests)
+                .map(result -> {
+                    Map<String, Object> response;
+                    if (result.getError() == null && result.getSummary() != null) {
+                        response = toResponse(result.getSummary(), false);
+                    } else {
+                        response = new HashMap<>();
+                        response.put("success", false);
+                        response.put("error", result.getError() != null ? result.getError() : "Resposta vazia da Pagar.me");
+                    }
+                    response.put("index", result.getIndex());
+                    response.put("code", result.getCode());
+                    response.put("filialId", result.getFilialId());
+                    return response;
+                });
+    }
+
     /**
      * Exemplo de endpoint para pagamento com PIX
      */
     @PostMapping("/pix")
-    public Mono<ResponseEntity<Map<String, Object>>> createPixOrder(@RequestBody CreateOrderRequest req) {
+    public Mono<ResponseEntity<Map<String, Object>>> createPixOrder(
+            @RequestBody CreateOrderRequest req,
+            @RequestParam(required = false) String include,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
+    ) {
         req.setPaymentMethod("pix");
-        return createOrder(req);
+        return createOrder(req, include, idempotencyKey);
     }
 
     /**
      * Exemplo de endpoint para pagamento com Boleto
      */
     @PostMapping("/boleto")
-    public Mono<ResponseEntity<Map<String, Object>>> createBoletoOrder(@RequestBody CreateOrderRequest req) {
+    public Mono<ResponseEntity<Map<String, Object>>> createBoletoOrder(
+            @RequestBody CreateOrderRequest req,
+            @RequestParam(required = false) String include,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
+    ) {
         req.setPaymentMethod("boleto");
-        return createOrder(req);
+        return createOrder(req, include, idempotencyKey);
     }
 
     /**
      * Exemplo de endpoint para pagamento com Cartão de Crédito
      */
     @PostMapping("/credit-card")
-    public Mono<ResponseEntity<Map<String, Object>>> createCreditCardOrder(@RequestBody CreateOrderRequest req) {
+    public Mono<ResponseEntity<Map<String, Object>>> createCreditCardOrder(
+            @RequestBody CreateOrderRequest req,
+            @RequestParam(required = false) String include,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
+    ) {
         req.setPaymentMethod("credit_card");
-        return createOrder(req);
+        return createOrder(req, include, idempotencyKey);
+    }
+
+    /**
+     * Status de um pedido
+     * GET /orders/{orderId}
+     *
+     * Aceita o ID da Pagar.me ou o code do pedido. Responde do estado local
+     * (atualizado por webhooks) e só consulta a Pagar.me quando o status não é
+     * final e está desatualizado. Pedidos criados fora desta API precisam de ?filialId=.
+     */
+    @GetMapping("/{orderId}")
+    public Mono<ResponseEntity<Map<String, Object>>> getOrderStatus(
+            @PathVariable String orderId,
+            @RequestParam(required = false) String filialId
+    ) {
+        return orderService.getOrderStatus(orderId, filialId)
+                .map(state -> ResponseEntity.ok(toStatusResponse(state)))
+                .onErrorResume(ex -> {
+                    log.error("Falha ao consultar o pedido {}", orderId, ex);
+                    Map<String, Object> errorResponse = new HashMap<>();
+                    errorResponse.put("success", false);
+                    errorResponse.put("error", ex.getMessage());
+                    return Mono.just(ResponseEntity.badRequest().body(errorResponse));
+                });
+    }
+
+    /**
+     * Acompanha o status de um pedido por Server-Sent Events
+     * GET /orders/{orderId}/events
+     *
+     * Envia o status atual e depois cada mudança (evento "status") assim que a API
+     * fica sabendo dela (webhook), encerrando no status final. Enquanto espera,
+     * manda um comentário a cada orders.events.heartbeat; depois de
+     * orders.events.timeout envia "timeout" e fecha (o EventSource reconecta).
+     * A conexão aberta não ocupa thread: o servlet fica em modo assíncrono.
+     */
+    @GetMapping(value = "/{orderId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Map<String, Object>>> orderEvents(
+            @PathVariable String orderId,
+            @RequestParam(required = false) String filialId
+    ) {
+        return orderService.watchOrder(orderId, filialId)
+                .map(state -> ServerSentEvent.<Map<String, Object>>builder(toStatusResponse(state))
+                        .event("status")
+                        .id(Long.toString(state.getUpdatedAt()))
+                        .build())
+                .onErrorResume(ex -> {
+                    Map<String, Object> errorResponse = new HashMap<>();
+                    errorResponse.put("success", false);
+                    errorResponse.put("error", ex.getMessage());
+                    return Mono.just(ServerSentEvent.<Map<String, Object>>builder(errorResponse).event("error").build());
+                })
+                .publish(statuses -> Flux.merge(
+                        statuses,
+                        Flux.interval(eventsConfig.getHeartbeat())
+                                .map(tick -> ServerSentEvent.<Map<String, Object>>builder().comment("").build())
+                                .takeUntilOther(statuses.then()),
+                        Mono.delay(eventsConfig.getTimeout())
+                                .map(tick -> ServerSentEvent.<Map<String, Object>>builder().event("timeout").build())
+                                .takeUntilOther(statuses.then())))
+                .takeUntil(event -> "timeout".equals(event.event()));
+    }
+
+    /**
+     * Resposta de consulta de status (GET /orders/{id} e eventos SSE)
+     */
+    private static Map<String, Object> toStatusResponse(OrderState state) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("order_id", state.getOrderId());
+        response.put("code", state.getCode());
+        response.put("filialId", state.getFilialId());
+        response.put("status", state.getStatus());
+        response.put("charge_id", state.getChargeId());
+        response.put("charge_status", state.getChargeStatus());
+        response.put("updated_at", Instant.ofEpochMilli(state.getUpdatedAt()).toString());
+        return response;
+    }
+
+    /**
+     * Resposta de criação de pedido: dados do método de pagamento usado
+     */
+    private static Map<String, Object> toResponse(OrderSummaryDTO summary, boolean includeOrder) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("order_id", summary.getOrderId());
+        if (includeOrder) {
+            response.put("order", summary.getOrder());
+        }
+
+        // Extrair informações importantes baseado no método de pagamento
+        String paymentMethod = summary.getTransactionType() != null ? summary.getTransactionType() : "";
+
+        switch (paymentMethod) {
+            case "pix":
+                response.put("pix_qr_code", summary.getQrCode());
+                response.put("pix_qr_code_url", summary.getQrCodeUrl());
+                break;
+            case "boleto":
+                response.put("boleto_url", summary.getUrl());
+                response.put("boleto_barcode", summary.getBarcode());
+                response.put("boleto_pdf", summary.getPdf());
+                break;
+            case "credit_card":
+            case "debit_card":
+                response.put("transaction_id", summary.getTransactionId());
+                response.put("status", summary.getChargeStatus());
+                break;
+        }
+
+        return response;
+    }
+
+    /**
+     * Verifica se a lista separada por vírgulas de ?include= contém a opção
+     */
+    private static boolean includes(String include, String option) {
+        if (include == null || include.isEmpty()) {
+            return false;
+        }
+        for (String part : include.split(",")) {
+            if (part.trim().equalsIgnoreCase(option)) {
+                return true;
+            }
+        }
+        return false;
     }
 }
\ No newline at end of file
@@ -1,9 +1,16 @@
 package com.villaggiogirotto.split.villagiosplit.controller;
 
 import com.villaggiogirotto.split.villagiosplit.controller.requests.CreatePaymentRequest;
+import com.villaggiogirotto.split.villagiosplit.controller.requests.PaymentLinkCsvRow;
+import com.villaggiogirotto.split.villagiosplit.controller.support.StreamedBody;
+import com.villaggiogirotto.split.villagiosplit.dto.PaymentLinkBatchResultDTO;
 import com.villaggiogirotto.split.villagiosplit.service.PagarmePaymentLinkService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.HashMap;
@@ -21,6 +28,8 @@ import java.util.Map;
 @RequestMapping("/")
 public class PaymentLinkController {
 
+    private static final Logger log = LoggerFactory.getLogger(PaymentLinkController.class);
+
     private final PagarmePaymentLinkService paymentLinkService;
 
     public PaymentLinkController(PagarmePaymentLinkService paymentLinkService) {
@@ -77,11 +86,54 @@ public class PaymentLinkController {
                     return ResponseEntity.ok(response);
                 })
                 .onErrorResume(ex -> {
-                    ex.printStackTrace();
+                    log.error("Falha ao criar link de pagamento", ex);
                     Map<String, Object> errorResponse = new HashMap<>();
                     errorResponse.put("success", false);
                     errorResponse.put("error", ex.getMessage());
                     return Mono.just(ResponseEntity.badRequest().body(errorResponse));
                 });
     }
+
+    /**
+     * Gera links de pagamento em lote a partir de uma planilha CSV
+     * POST /payment-links/bulk (Content-Type: text/csv)
+     *
+     * Colunas (cabeçalho obrigatório, separador "," ou ";"):
+     * filialId, name, description, amount, quantity, installments,
+     * statementDescriptor, split ("re_x:90:true|re_y:10:false") e splitType.
+     *
+     * Responde em NDJSON, uma linha por link, à medida que cada um fica pronto.
+     */
+    @PostMapping(value = "/payment-links/bulk", consumes = "text/csv",
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> createPaymentLinksFromCsv(@StreamedBody Flux<PaymentLinkCsvRow> rows) {
+        return paymentLinkService.createPaymentLinksFromCsv(rows).map(PaymentLinkController::toBulkResponse);
+    }
+
+    /**
+     * Gera links de pagamento em lote a partir de um array JSON ou NDJSON
+     * no mesmo formato de POST /
+     */
+    @PostMapping(value = "/payment-links/bulk", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Map<String, Object>> createPaymentLinks(@StreamedBody Flux<CreatePaymentRequest> requests) {
+        return paymentLinkService.createPaymentLinks(requests).map(PaymentLinkController::toBulkResponse);
+    }
+
+    private static Map<String, Object> toBulkResponse(PaymentLinkBatchResultDTO result) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("index", result.getIndex());
+        response.put("filialId", result.getFilialId());
+        if (result.getError() == null && result.getCheckoutUrl() != null) {
+            response.put("success", true);
+            response.put("checkout_url", result.getCheckoutUrl());
+            response.put("link_id", result.getLinkId());
+            if (result.getShortUrl() != null && !result.getShortUrl().isEmpty()) {
+                response.put("short_url", result.getShortUrl());
+            }
+        } else {
+            response.put("success", false);
+            response.put("error", result.getError() != null ? result.getError() : "Resposta sem checkout_url da Pagar.me");
+        }
+        return response;
+    }
 }
@@ -0,0 +1,130 @@
+package com.villaggiogirotto.split.villagiosplit.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.villaggiogirotto.split.villagiosplit.controller.requests.ListCustomersRequest;
+import com.villaggiogirotto.split.villagiosplit.service.PagarmeCustomerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Versão reativa (WebFlux/Netty) do {@link CustomerStreamingController}: mesmas
+ * rotas e formatos, mas o corpo é um Flux de buffers escrito pelo próprio event
+ * loop conforme o cliente consome, sem thread presa esperando a Pagar.me.
+ */
+@RestController
+@RequestMapping("/customers")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCustomerStreamingController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveCustomerStreamingController.class);
+
+    private static final DataBufferFactory BUFFERS = DefaultDataBufferFactory.sharedInstance;
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final PagarmeCustomerService customerService;
+    private final ObjectMapper objectMapper;
+
+    public ReactiveCustomerStreamingController(PagarmeCustomerService customerService, ObjectMapper objectMapper) {
+        this.customerService = customerService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Lista clientes em modo passthrough
+     * GET /customers?passthrough=true
+     *
+     * Os buffers recebidos da Pagar.me vão direto para o socket do cliente,
+     * entre o prefixo e o sufixo do envelope.
+     */
+    @GetMapping(params = "passthrough=true")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> listCustomersPassthrough(
+            @RequestParam String filialId,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String document,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String gender,
+            @RequestParam(required = false) String code,
+            @RequestParam(defaultValue = "1") Integer page,
+            @RequestParam(defaultValue = "10") Integer size
+    ) {
+        ListCustomersRequest req = CustomerController.buildListRequest(filialId, name, document, email, gender, code, page, size);
+
+        return customerService.streamCustomers(req)
+                .map(body -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(Flux.concat(
+                                Mono.fromSupplier(() -> BUFFERS.wrap(CustomerStreamingController.PASSTHROUGH_PREFIX)),
+                                body,
+                                Mono.fromSupplier(() -> BUFFERS.wrap(CustomerStreamingController.PASSTHROUGH_SUFFIX)))))
+                .onErrorResume(ex -> {
+                    log.error("Falha ao listar clientes da filial {} (passthrough)", filialId, ex);
+                    return Mono.just(ResponseEntity.badRequest()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(Flux.just(BUFFERS.wrap(errorBytes(ex)))));
+                });
+    }
+
+    /**
+     * Exporta todos os clientes da filial
+     * GET /customers/export
+     *
+     * Responde em NDJSON, uma página da Pagar.me por vez (a próxima só é
+     * pedida quando o Netty pede mais dados). Se uma página falhar no meio da
+     * exportação, a última linha traz {"success":false,"error":...}.
+     */
+    @GetMapping("/export")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> exportCustomers(
+            @RequestParam String filialId,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String document,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String gender,
+            @RequestParam(required = false) String code
+    ) {
+        ListCustomersRequest req = CustomerController.buildListRequest(filialId, name, document, email, gender, code, null, null);
+
+        return customerService.exportCustomers(req)
+                .map(pages -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .body(pages
+                                .limitRate(1)
+                                .map(BUFFERS::wrap)
+                                .onErrorResume(ex -> {
+                                    log.error("Exportação de clientes da filial {} interrompida no meio", filialId, ex);
+                                    return Flux.just(BUFFERS.wrap(errorBytes(ex)), BUFFERS.wrap(NEWLINE));
+                                })))
+                .onErrorResume(ex -> {
+                    log.error("Falha ao exportar clientes da filial {}", filialId, ex);
+                    return Mono.just(ResponseEntity.badRequest()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(Flux.just(BUFFERS.wrap(errorBytes(ex)))));
+                });
+    }
+
+    private byte[] errorBytes(Throwable ex) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("success", false);
+        errorResponse.put("error", ex.getMessage());
+        try {
+            return objectMapper.writeValueAsBytes(errorResponse);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.villaggiogirotto.split.villagiosplit.controller;
+
+import com.villaggiogirotto.split.villagiosplit.config.WebhookConfig;
+import com.villaggiogirotto.split.villagiosplit.service.webhook.WebhookProcessor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Recebe os webhooks da Pagar.me (order.paid, charge.paid, ...)
+ *
+ * URL a cadastrar no dashboard: POST /webhooks/pagarme?filialId=<filial>,
+ * com autenticação HTTP Basic igual a webhooks.pagarme.username/password.
+ */
+@RestController
+@RequestMapping("/webhooks")
+public class WebhookController {
+
+    private final WebhookProcessor webhookProcessor;
+    private final byte[] expectedAuthorization;
+
+    public WebhookController(WebhookProcessor webhookProcessor, WebhookConfig config) {
+        this.webhookProcessor = webhookProcessor;
+        this.expectedAuthorization = basicAuthorization(config.getUsername(), config.getPassword());
+    }
+
+    /**
+     * Confere o remetente, enfileira o evento e responde na hora; o evento é
+     * aplicado ao estado local dos pedidos em segundo plano.
+     */
+    @PostMapping("/pagarme")
+    public ResponseEntity<Map<String, Object>> receivePagarme(
+            @RequestBody byte[] body,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+            @RequestParam(required = false) String filialId
+    ) {
+        Map<String, Object> response = new HashMap<>();
+        if (!authorized(authorization)) {
+            response.put("success", false);
+            response.put("error", "Webhook não autorizado");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+
+        if (!webhookProcessor.offer(body, filialId)) {
+            response.put("success", false);
+            response.put("error", "Fila de webhooks cheia, tente novamente");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+
+        response.put("success", true);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Comparação em tempo constante, para não revelar quantos bytes da credencial batem
+     */
+    private boolean authorized(String authorization) {
+        if (expectedAuthorization == null || authorization == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(expectedAuthorization, authorization.trim().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] basicAuthorization(String username, String password) {
+        if (username == null || username.isBlank() || password == null || password.isBlank()) {
+            return null; // Sem credenciais configuradas: recusa todos
+        }
+        String credentials = Base64.getEncoder()
+                .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        return ("Basic " + credentials).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,69 @@
+package com.villaggiogirotto.split.villagiosplit.controller.requests;
+
+import com.villaggiogirotto.split.villagiosplit.dto.CartItemDTO;
+import com.villaggiogirotto.split.villagiosplit.dto.SplitInputDTO;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Linha da planilha de POST /payment-links/bulk (CSV com cabeçalho).
+ *
+ * Exemplo:
+ * filialId;name;amount;quantity;installments;statementDescriptor;split
+ * brauna;Pacote Massagem;15000;1;6;VILLAGGIO;re_abc:90:true|re_def:10:false
+ */
+@Data
+public class PaymentLinkCsvRow {
+    private String filialId;
+    private String name; // Nome do item (um item por linha)
+    private String description;
+    private Integer amount; // Valor unitário em centavos
+    private Integer quantity;
+    private Integer installments;
+    private String statementDescriptor;
+    private String split; // Regras "recipientId:amount[:liable]" separadas por "|"
+    private String splitType; // "percentage" (padrão) ou "flat"
+
+    /**
+     * Converte a linha no mesmo formato de POST /
+     *
+     * @throws IllegalArgumentException se a coluna split estiver malformada
+     */
+    public CreatePaymentRequest toPaymentRequest() {
+        CreatePaymentRequest req = new CreatePaymentRequest();
+        req.setFilialId(filialId);
+        req.setInstallments(installments);
+        req.setStatementDescriptor(statementDescriptor);
+
+        if (name != null) {
+            CartItemDTO item = new CartItemDTO();
+            item.setName(name);
+            item.setDescription(description);
+            item.setAmount(amount);
+            item.setDefaultQuantity(quantity);
+            req.setItems(List.of(item));
+        } else {
+            req.setAmount(amount);
+        }
+
+        if (split != null && !split.isBlank()) {
+            List<SplitInputDTO> rules = new ArrayList<>();
+            for (String rule : split.split("\\|")) {
+                String[] parts = rule.trim().split(":");
+                if (parts.length < 2) {
+                    throw new IllegalArgumentException("Regra de split inválida: " + rule);
+                }
+                try {
+                    Boolean liable = parts.length > 2 ? Boolean.valueOf(parts[2].trim()) : Boolean.FALSE;
+                    rules.add(new SplitInputDTO(parts[0].trim(), Integer.valueOf(parts[1].trim()), splitType, liable));
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException("Valor de split inválido: " + rule);
+                }
+            }
+            req.setSplit(rules);
+        }
+        return req;
+    }
+}
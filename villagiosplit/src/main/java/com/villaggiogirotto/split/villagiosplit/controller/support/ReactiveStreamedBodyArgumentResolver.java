@@ -0,0 +1,125 @@
+package com.villaggiogirotto.split.villagiosplit.controller.support;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.reactive.result.method.HandlerMethodArgumentResolver;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Resolve parâmetros {@code @StreamedBody Flux<T>} no modo reativo (WebFlux/Netty).
+ *
+ * Mesmo contrato do {@link StreamedBodyArgumentResolver}, mas sem thread
+ * bloqueada: o JSON (array ou NDJSON) é tokenizado pelo Jackson2JsonDecoder
+ * conforme os buffers chegam do socket, e o CSV é quebrado em linhas pelo
+ * StringDecoder. A primeira linha do CSV é o cabeçalho; o separador ("," ou ";")
+ * é detectado nela e cada linha seguinte vira um T.
+ *
+ * Limitação do CSV neste modo: um campo entre aspas não pode conter quebra de linha.
+ */
+public class ReactiveStreamedBodyArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private static final ResolvableType STRING_TYPE = ResolvableType.forClass(String.class);
+
+    private final Jackson2JsonDecoder jsonDecoder;
+    private final StringDecoder lineDecoder = StringDecoder.allMimeTypes();
+    private final CsvMapper csvMapper = CsvMapper.builder()
+            .enable(CsvParser.Feature.TRIM_SPACES)
+            .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    public ReactiveStreamedBodyArgumentResolver(ObjectMapper objectMapper) {
+        this.jsonDecoder = new Jackson2JsonDecoder(objectMapper);
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(StreamedBody.class)
+                && Flux.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Mono<Object> resolveArgument(MethodParameter parameter, BindingContext bindingContext,
+                                        ServerWebExchange exchange) {
+        ResolvableType elementType = ResolvableType.forMethodParameter(parameter).getGeneric(0);
+        MediaType contentType = exchange.getRequest().getHeaders().getContentType();
+        Flux<DataBuffer> body = exchange.getRequest().getBody();
+
+        boolean csv = contentType != null && StreamedBodyArgumentResolver.TEXT_CSV.isCompatibleWith(contentType);
+        Flux<?> values = csv
+                ? decodeCsv(body, elementType.resolve(Object.class))
+                : jsonDecoder.decode(body, elementType, isJson(contentType) ? contentType : MediaType.APPLICATION_JSON, null);
+        return Mono.just(values);
+    }
+
+    private Flux<Object> decodeCsv(Flux<DataBuffer> body, Class<?> elementType) {
+        return lineDecoder.decode(body, STRING_TYPE, null, null)
+                .filter(line -> !line.isBlank())
+                .switchOnFirst((first, lines) -> {
+                    if (!first.hasValue()) {
+                        return Flux.empty();
+                    }
+                    ObjectReader reader = csvReader(elementType, first.get());
+                    return lines.skip(1).map(line -> readRow(reader, line));
+                });
+    }
+
+    private ObjectReader csvReader(Class<?> elementType, String header) {
+        char separator = detectSeparator(header);
+        try {
+            String[] columns = csvMapper.readerFor(String[].class)
+                    .with(CsvSchema.emptySchema().withColumnSeparator(separator))
+                    .readValue(header);
+
+            CsvSchema.Builder schema = CsvSchema.builder().setColumnSeparator(separator);
+            for (String column : columns) {
+                schema.addColumn(column);
+            }
+            return csvMapper.readerFor(elementType).with(schema.build());
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("Cabeçalho CSV inválido: " + ex.getMessage());
+        }
+    }
+
+    private static Object readRow(ObjectReader reader, String line) {
+        try {
+            return reader.readValue(line);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static char detectSeparator(String header) {
+        int commas = 0;
+        int semicolons = 0;
+        for (int i = 0; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (c == ',') {
+                commas++;
+            } else if (c == ';') {
+                semicolons++;
+            }
+        }
+        return semicolons > commas ? ';' : ',';
+    }
+
+    private boolean isJson(MediaType contentType) {
+        return contentType != null && jsonDecoder.getDecodableMimeTypes().stream().anyMatch(contentType::isCompatibleWith);
+    }
+}
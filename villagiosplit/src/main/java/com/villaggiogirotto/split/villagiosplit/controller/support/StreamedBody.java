@@ -0,0 +1,21 @@
+package com.villaggiogirotto.split.villagiosplit.controller.support;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Corpo da requisição entregue como {@code Flux<T>}, decodificado item a item
+ * conforme chega: aceita um array JSON, NDJSON (um objeto por linha) ou,
+ * com Content-Type text/csv, uma planilha CSV com cabeçalho.
+ *
+ * Diferente de {@code @RequestBody List<T>}, o corpo nunca é carregado inteiro
+ * na memória; o processamento dos primeiros itens começa antes do fim do upload.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface StreamedBody {
+}
@@ -0,0 +1,114 @@
+package com.villaggiogirotto.split.villagiosplit.controller.support;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Resolve parâmetros {@code @StreamedBody Flux<T>} no Spring MVC.
+ *
+ * Lê o InputStream do servlet com um MappingIterator do Jackson, que percorre
+ * tanto os elementos de um array JSON quanto uma sequência de objetos (NDJSON).
+ * Com Content-Type text/csv, cada linha (com cabeçalho) vira um T; o separador
+ * ("," ou ";", como o Excel em português exporta) é detectado pela primeira linha.
+ *
+ * A leitura é bloqueante e por isso roda no boundedElastic, sob demanda:
+ * o próximo item só é decodificado quando o anterior foi pedido (backpressure).
+ */
+public class StreamedBodyArgumentResolver implements HandlerMethodArgumentResolver {
+
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private static final int SEPARATOR_PROBE_BYTES = 8192;
+
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper = CsvMapper.builder()
+            .enable(CsvParser.Feature.TRIM_SPACES)
+            .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    public StreamedBodyArgumentResolver(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(StreamedBody.class)
+                && Flux.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+        Class<?> elementType = ResolvableType.forMethodParameter(parameter).getGeneric(0).resolve(Object.class);
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        boolean csv = request.getContentType() != null
+                && TEXT_CSV.isCompatibleWith(MediaType.parseMediaType(request.getContentType()));
+        InputStream body = csv ? new BufferedInputStream(request.getInputStream()) : request.getInputStream();
+
+        return Flux.using(
+                        () -> csv ? csvReader(elementType, body).readValues(body) : objectMapper.readerFor(elementType).readValues(body),
+                        iterator -> Flux.fromIterable(() -> iterator),
+                        StreamedBodyArgumentResolver::close)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private ObjectReader csvReader(Class<?> elementType, InputStream body) throws IOException {
+        CsvSchema schema = CsvSchema.emptySchema()
+                .withHeader()
+                .withColumnSeparator(detectSeparator(body));
+        return csvMapper.readerFor(elementType).with(schema);
+    }
+
+    /**
+     * Conta vírgulas e ponto e vírgulas do cabeçalho, sem consumir o stream
+     */
+    private static char detectSeparator(InputStream body) throws IOException {
+        body.mark(SEPARATOR_PROBE_BYTES);
+        int commas = 0;
+        int semicolons = 0;
+        try {
+            for (int i = 0; i < SEPARATOR_PROBE_BYTES; i++) {
+                int b = body.read();
+                if (b == -1 || b == '\n') {
+                    break;
+                }
+                if (b == ',') {
+                    commas++;
+                } else if (b == ';') {
+                    semicolons++;
+                }
+            }
+        } finally {
+            body.reset();
+        }
+        return semicolons > commas ? ';' : ',';
+    }
+
+    private static void close(MappingIterator<?> iterator) {
+        try {
+            iterator.close();
+        } catch (IOException ex) {
+            // Nada a fazer: o corpo já foi lido ou a conexão caiu
+        }
+    }
+}
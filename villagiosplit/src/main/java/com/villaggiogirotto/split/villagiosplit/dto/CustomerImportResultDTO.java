@@ -0,0 +1,26 @@
+package com.villaggiogirotto.split.villagiosplit.dto;
+
+import lombok.Data;
+
+/**
+ * Linha de resultado de POST /customers/import
+ *
+ * Linhas de cliente trazem index, status (created, existing, duplicate ou error)
+ * e customerId/error. Linhas de progresso (status "progress" e, ao final, "done")
+ * trazem só os contadores.
+ */
+@Data
+public class CustomerImportResultDTO {
+    private Long index; // Posição da linha no arquivo (a partir de 0, sem contar o cabeçalho)
+    private String status;
+    private String code;
+    private String customerId;
+    private String error;
+
+    // Contadores (só nas linhas de progresso)
+    private Long processed;
+    private Long created;
+    private Long existing;
+    private Long duplicates;
+    private Long errors;
+}
@@ -0,0 +1,28 @@
+package com.villaggiogirotto.split.villagiosplit.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de GET /customers sem filialId: clientes de todas as filiais
+ * (cada um com o campo filialId) e a situação da busca em cada filial.
+ */
+@Data
+public class CustomerSearchResultDTO {
+    private List<JsonNode> data = new ArrayList<>();
+    private Map<String, FilialResult> filiais = new LinkedHashMap<>();
+    private boolean partial; // true se alguma filial falhou ou estourou o tempo
+
+    @Data
+    public static class FilialResult {
+        private String status; // "ok", "timeout" ou "error"
+        private int count;
+        private long elapsedMs;
+        private String error;
+    }
+}
@@ -0,0 +1,15 @@
+package com.villaggiogirotto.split.villagiosplit.dto;
+
+import lombok.Data;
+
+/**
+ * Resultado de um item de POST /orders/batch
+ */
+@Data
+public class OrderBatchResultDTO {
+    private long index; // Posição do item no lote (a partir de 0)
+    private String code;
+    private String filialId;
+    private OrderSummaryDTO summary; // Preenchido em caso de sucesso
+    private String error; // Preenchido em caso de falha
+}
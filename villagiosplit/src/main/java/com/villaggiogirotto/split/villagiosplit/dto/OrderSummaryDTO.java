@@ -0,0 +1,27 @@
+package com.villaggiogirotto.split.villagiosplit.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Data;
+
+/**
+ * Campos de um pedido Pagar.me usados pela API (pedido, primeira cobrança e sua última transação)
+ */
+@Data
+public class OrderSummaryDTO {
+    private String orderId;
+    private String orderCode;
+    private String orderStatus;
+    private String chargeId;
+    private String chargeStatus;
+    private String transactionId;
+    private String transactionType; // "pix", "boleto", "credit_card", "debit_card"
+    private String transactionStatus;
+    private String qrCode; // PIX
+    private String qrCodeUrl; // PIX
+    private String expiresAt; // PIX
+    private String url; // Boleto
+    private String barcode; // Boleto
+    private String pdf; // Boleto
+    private String dueAt; // Boleto
+    private JsonNode order; // Pedido completo, só quando solicitado (?include=order)
+}
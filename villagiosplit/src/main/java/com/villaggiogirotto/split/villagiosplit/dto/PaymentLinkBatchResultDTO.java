@@ -0,0 +1,16 @@
+package com.villaggiogirotto.split.villagiosplit.dto;
+
+import lombok.Data;
+
+/**
+ * Resultado de uma linha de POST /payment-links/bulk
+ */
+@Data
+public class PaymentLinkBatchResultDTO {
+    private long index; // Posição da linha (a partir de 0, sem contar o cabeçalho)
+    private String filialId;
+    private String linkId;
+    private String checkoutUrl;
+    private String shortUrl;
+    private String error; // Preenchido em caso de falha
+}
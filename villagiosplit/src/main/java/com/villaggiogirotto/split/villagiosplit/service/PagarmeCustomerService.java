@@ -1,32 +1,66 @@
 package com.villaggiogirotto.split.villagiosplit.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.villaggiogirotto.split.villagiosplit.controller.requests.CreateCustomerRequest;
 import com.villaggiogirotto.split.villagiosplit.controller.requests.ListCustomersRequest;
 
 import com.villaggiogirotto.split.villagiosplit.dto.AddressDTO;
-import com.villaggiogirotto.split.villagiosplit.config.FiliaisConfig;
-import org.springframework.beans.factory.annotation.Value;
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeClient;
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeRateLimiter;
+import com.villaggiogirotto.split.villagiosplit.config.BatchConfig;
+import com.villaggiogirotto.split.villagiosplit.config.CustomerSearchConfig;
+import com.villaggiogirotto.split.villagiosplit.config.Filial;
+import com.villaggiogirotto.split.villagiosplit.config.FilialRegistry;
+import com.villaggiogirotto.split.villagiosplit.dto.CustomerImportResultDTO;
+import com.villaggiogirotto.split.villagiosplit.dto.CustomerSearchResultDTO;
+import com.villaggiogirotto.split.villagiosplit.service.cache.CustomerIndex;
+import com.villaggiogirotto.split.villagiosplit.service.cache.CustomerListCache;
+import com.villaggiogirotto.split.villagiosplit.service.cache.DocumentSet;
+import com.villaggiogirotto.split.villagiosplit.service.payload.CustomerPage;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
 
 @Service
 public class PagarmeCustomerService {
 
-    @Value("${pagarme.base-url}")
-    private String baseUrl;
+    // Pontuação ignorada ao comparar documentos numa importação (mesma do CustomerIndex)
+    private static final Pattern DOCUMENT_SEPARATORS = Pattern.compile("[.\\-/ ]");
 
-    private final FiliaisConfig filiaisConfig;
+    private final FilialRegistry filialRegistry;
+    private final CustomerListCache customerListCache;
+    private final CustomerIndex customerIndex;
+    private final ObjectMapper objectMapper;
+    private final BatchConfig.CustomersImport importConfig;
+    private final BatchConfig.CustomersExport exportConfig;
+    private final CustomerSearchConfig searchConfig;
 
-    public PagarmeCustomerService(FiliaisConfig filiaisConfig) {
-        this.filiaisConfig = filiaisConfig;
+    public PagarmeCustomerService(FilialRegistry filialRegistry, CustomerListCache customerListCache,
+                                  CustomerIndex customerIndex, ObjectMapper objectMapper, BatchConfig batchConfig,
+                                  CustomerSearchConfig searchConfig) {
+        this.filialRegistry = filialRegistry;
+        this.customerListCache = customerListCache;
+        this.customerIndex = customerIndex;
+        this.objectMapper = objectMapper;
+        this.importConfig = batchConfig.getCustomers();
+        this.exportConfig = batchConfig.getCustomersExport();
+        this.searchConfig = searchConfig;
     }
 
     /**
@@ -38,8 +72,8 @@ public class PagarmeCustomerService {
             return Mono.error(new IllegalArgumentException("ID da filial é obrigatório"));
         }
 
-        String secretKey = getSecretKeyByFilialId(req.getFilialId());
-        if (secretKey == null) {
+        Filial filial = filialRegistry.find(req.getFilialId());
+        if (filial == null || !filial.hasSecretKey()) {
             return Mono.error(new IllegalArgumentException("Filial não encontrada ou sem chave configurada: " + req.getFilialId()));
         }
 
@@ -47,21 +81,128 @@ public class PagarmeCustomerService {
             return Mono.error(new IllegalArgumentException("Nome do cliente é obrigatório"));
         }
 
-        WebClient webClient = createWebClient(secretKey);
+        PagarmeClient client = filial.getClient();
         Map<String, Object> payload = buildCustomerPayload(req);
 
-        return webClient.post()
-                .uri("/customers")
-                .bodyValue(payload)
-                .retrieve()
-                .onStatus(
-                        status -> status.isError(),
-                        response -> response.bodyToMono(String.class)
-                                .flatMap(errorBody -> Mono.error(new RuntimeException(
-                                        "Erro na API Pagar.me [" + response.statusCode() + "]: " + errorBody
-                                )))
-                )
-                .bodyToMono(JsonNode.class);
+        return client.post("/customers", payload)
+                .doOnNext(customer -> {
+                    customerListCache.invalidate(filial.getId(), req, null);
+                    customerIndex.index(filial.getId(), customer);
+                });
+    }
+
+    /**
+     * Importa clientes em massa, no máximo batch.customers.concurrency cadastros ao mesmo tempo.
+     *
+     * As linhas são lidas sob demanda (backpressure): só entra uma linha nova
+     * quando há vaga. A memória cresce apenas com os documentos já cadastrados
+     * nesta importação: 16 a 32 bytes por CPF/CNPJ distinto ({@link DocumentSet}),
+     * ~100 bytes por outro documento; 1 milhão de CPFs fica em até ~32 MB.
+     *
+     * Um documento repetido na mesma filial vira "duplicate" sem chamar a API, mas
+     * só depois que a linha anterior com ele foi cadastrada: se ela falhou, a
+     * repetição é cadastrada no lugar dela. Com reuseExisting, clientes já
+     * conhecidos pelo índice local viram "existing".
+     *
+     * Emite uma linha por cliente à medida que termina, uma linha "progress" a
+     * cada batch.customers.progress-every clientes e uma linha "done" no final.
+     */
+    public Flux<CustomerImportResultDTO> importCustomers(Flux<CreateCustomerRequest> requests, boolean reuseExisting) {
+        return Flux.defer(() -> {
+            ImportDedupe seen = new ImportDedupe();
+            ImportProgress progress = new ImportProgress();
+
+            return requests
+                    .index()
+                    .map(indexed -> prepareImportRow(indexed.getT1(), indexed.getT2(), seen, reuseExisting))
+                    .onErrorResume(ex -> Flux.just(ImportRow.failed(-1, null, "Arquivo inválido: " + ex.getMessage())))
+                    .flatMap(this::importRow, importConfig.getConcurrency())
+                    .concatMap(result -> progress.record(result, importConfig.getProgressEvery())
+                            ? Flux.just(result, progress.snapshot("progress"))
+                            : Flux.just(result))
+                    .concatWith(Mono.fromSupplier(() -> progress.snapshot("done")));
+        }).contextWrite(PagarmeRateLimiter.batch());
+    }
+
+    /**
+     * Validação e deduplicação de uma linha, na ordem do arquivo (antes do paralelismo)
+     */
+    private ImportRow prepareImportRow(long index, CreateCustomerRequest req, ImportDedupe seen, boolean reuseExisting) {
+        if (req.getFilialId() == null || req.getFilialId().isEmpty()) {
+            return ImportRow.failed(index, req, "ID da filial é obrigatório");
+        }
+        Filial filial = filialRegistry.find(req.getFilialId());
+        if (filial == null || !filial.hasSecretKey()) {
+            return ImportRow.failed(index, req, "Filial não encontrada ou sem chave configurada: " + req.getFilialId());
+        }
+
+        boolean hasDocument = req.getDocument() != null && !req.getDocument().isBlank();
+        if (hasDocument && seen.isCreated(filial.getId(), req.getDocument())) {
+            return new ImportRow(index, req, "duplicate", null, null);
+        }
+        if (reuseExisting) {
+            String existingId = customerIndex.find(filial.getId(), req.getDocument(), req.getEmail(), req.getCode());
+            if (existingId != null) {
+                if (hasDocument) {
+                    seen.markCreated(filial.getId(), req.getDocument());
+                }
+                return new ImportRow(index, req, "existing", existingId, null);
+            }
+        }
+        ImportRow row = new ImportRow(index, req, null, null, null);
+        if (hasDocument) {
+            seen.claim(row, filial.getId(), req.getDocument());
+        }
+        return row;
+    }
+
+    private Mono<CustomerImportResultDTO> importRow(ImportRow row) {
+        CustomerImportResultDTO result = new CustomerImportResultDTO();
+        result.setIndex(row.index);
+        result.setCode(row.request != null ? row.request.getCode() : null);
+        if (row.status != null) {
+            result.setStatus(row.status);
+            result.setCustomerId(row.customerId);
+            result.setError(row.error);
+            return Mono.just(result);
+        }
+
+        if (row.claim == null) {
+            return createImportedCustomer(row, result);
+        }
+        // Repetição de um documento ainda em cadastro: espera o resultado da linha anterior
+        Mono<CustomerImportResultDTO> created = row.previous == null
+                ? createImportedCustomer(row, result)
+                : row.previous.asMono().flatMap(exists -> {
+                    if (exists) {
+                        result.setStatus("duplicate");
+                        return Mono.just(result);
+                    }
+                    return createImportedCustomer(row, result);
+                });
+        return created
+                .doOnNext(done -> row.claim.settle("created".equals(done.getStatus())
+                        || "duplicate".equals(done.getStatus())))
+                .doOnCancel(() -> row.claim.settle(false));
+    }
+
+    private Mono<CustomerImportResultDTO> createImportedCustomer(ImportRow row, CustomerImportResultDTO result) {
+        return createCustomer(row.request)
+                .map(customer -> {
+                    result.setStatus("created");
+                    result.setCustomerId(customer.path("id").asText(null));
+                    return result;
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    result.setStatus("error");
+                    result.setError("Resposta vazia da Pagar.me");
+                    return result;
+                }))
+                .onErrorResume(ex -> {
+                    result.setStatus("error");
+                    result.setError(ex.getMessage());
+                    return Mono.just(result);
+                });
     }
 
     /**
@@ -69,17 +210,226 @@ public class PagarmeCustomerService {
      * GET https://api.pagar.me/core/v5/customers
      */
     public Mono<JsonNode> listCustomers(ListCustomersRequest req) {
-        if (req.getFilialId() == null || req.getFilialId().isEmpty()) {
-            return Mono.error(new IllegalArgumentException("ID da filial é obrigatório"));
+        Filial filial;
+        try {
+            filial = resolveFilial(req.getFilialId());
+        } catch (IllegalArgumentException ex) {
+            return Mono.error(ex);
         }
 
-        String secretKey = getSecretKeyByFilialId(req.getFilialId());
-        if (secretKey == null) {
-            return Mono.error(new IllegalArgumentException("Filial não encontrada ou sem chave configurada: " + req.getFilialId()));
+        // Consultas repetidas saem do cache, sem ida à Pagar.me
+        CustomerListCache.Key key = CustomerListCache.key(filial.getId(), req);
+        byte[] cached = customerListCache.get(key);
+        if (cached != null) {
+            return Mono.fromCallable(() -> objectMapper.readTree(cached));
         }
 
-        WebClient webClient = createWebClient(secretKey);
-        
+        return filial.getClient().getBytes(buildListUri(req))
+                .doOnNext(body -> {
+                    customerListCache.put(key, body);
+                    customerIndex.indexList(filial.getId(), body);
+                })
+                .map(this::readTree);
+    }
+
+    /**
+     * Mesma consulta de {@link #listCustomers}, mas sem decodificar a resposta:
+     * os buffers da Pagar.me seguem como vieram para quem for escrevê-los no cliente.
+     */
+    public Mono<Flux<DataBuffer>> streamCustomers(ListCustomersRequest req) {
+        Filial filial;
+        try {
+            filial = resolveFilial(req.getFilialId());
+        } catch (IllegalArgumentException ex) {
+            return Mono.error(ex);
+        }
+
+        CustomerListCache.Key key = CustomerListCache.key(filial.getId(), req);
+        byte[] cached = customerListCache.get(key);
+        if (cached != null) {
+            return Mono.just(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(cached)));
+        }
+
+        return filial.getClient().stream(buildListUri(req))
+                .map(body -> customerListCache.recording(key, body,
+                        bytes -> customerIndex.indexList(filial.getId(), bytes)));
+    }
+
+    /**
+     * Busca clientes em todas as filiais com secret key, em paralelo
+     * (mesmos filtros e paginação de {@link #listCustomers}, aplicados em cada filial).
+     *
+     * Cada filial tem customers.search.timeout para responder; quem estoura o
+     * tempo ou falha fica de fora e o resultado sai marcado como parcial. Assim
+     * a latência é a da filial mais lenta (limitada ao timeout), não a soma delas.
+     */
+    public Mono<CustomerSearchResultDTO> searchAllFiliais(ListCustomersRequest req) {
+        List<Filial> filiais = filialRegistry.getFiliais().stream()
+                .filter(Filial::hasSecretKey)
+                .toList();
+        if (filiais.isEmpty()) {
+            return Mono.error(new IllegalArgumentException("Nenhuma filial com chave configurada"));
+        }
+
+        return Flux.fromIterable(filiais)
+                .flatMapSequential(filial -> searchFilial(filial, req), filiais.size())
+                .collectList()
+                .map(results -> {
+                    CustomerSearchResultDTO merged = new CustomerSearchResultDTO();
+                    for (FilialSearch search : results) {
+                        merged.getFiliais().put(search.filialId, search.result);
+                        merged.getData().addAll(search.customers);
+                        if (!"ok".equals(search.result.getStatus())) {
+                            merged.setPartial(true);
+                        }
+                    }
+                    return merged;
+                });
+    }
+
+    private Mono<FilialSearch> searchFilial(Filial filial, ListCustomersRequest filters) {
+        ListCustomersRequest req = new ListCustomersRequest();
+        req.setFilialId(filial.getId());
+        req.setName(filters.getName());
+        req.setDocument(filters.getDocument());
+        req.setEmail(filters.getEmail());
+        req.setGender(filters.getGender());
+        req.setCode(filters.getCode());
+        req.setPage(filters.getPage());
+        req.setSize(filters.getSize());
+
+        CustomerSearchResultDTO.FilialResult result = new CustomerSearchResultDTO.FilialResult();
+        long start = System.nanoTime();
+
+        return listCustomers(req)
+                .timeout(searchConfig.getTimeout())
+                .map(response -> {
+                    // Árvore nova a cada chamada (lida do cache ou da resposta): pode ser alterada
+                    List<JsonNode> customers = new ArrayList<>();
+                    for (JsonNode customer : response.path("data")) {
+                        if (customer instanceof ObjectNode node) {
+                            node.put("filialId", filial.getId());
+                        }
+                        customers.add(customer);
+                    }
+                    result.setStatus("ok");
+                    result.setCount(customers.size());
+                    return new FilialSearch(filial.getId(), result, customers);
+                })
+                .onErrorResume(ex -> {
+                    result.setStatus(ex instanceof TimeoutException ? "timeout" : "error");
+                    result.setError(ex instanceof TimeoutException
+                            ? "Sem resposta em " + searchConfig.getTimeout().toMillis() + " ms"
+                            : ex.getMessage());
+                    return Mono.just(new FilialSearch(filial.getId(), result, List.of()));
+                })
+                .doOnNext(search -> result.setElapsedMs((System.nanoTime() - start) / 1_000_000));
+    }
+
+    /**
+     * Exporta todos os clientes da filial (com os filtros de req) em NDJSON.
+     *
+     * A primeira página informa paging.total; as demais são buscadas até
+     * batch.customers-export.window ao mesmo tempo e emitidas na ordem das
+     * páginas. Páginas prontas fora de ordem esperam na janela, e uma página nova
+     * só é pedida quando outra sai dela, então quem consome devagar segura as
+     * buscas (backpressure). Sem paging.total, lê página a página até a primeira incompleta.
+     *
+     * O Mono termina com a primeira página (erros de filial/API aparecem aqui);
+     * o Flux emite um bloco de linhas por página.
+     */
+    public Mono<Flux<byte[]>> exportCustomers(ListCustomersRequest req) {
+        Filial filial;
+        try {
+            filial = resolveFilial(req.getFilialId());
+        } catch (IllegalArgumentException ex) {
+            return Mono.error(ex);
+        }
+
+        PagarmeClient client = filial.getClient();
+        int size = exportConfig.getPageSize();
+        int maxPages = exportConfig.getMaxPages();
+
+        return fetchCustomerPage(client, req, 1, size)
+                .map(first -> {
+                    Flux<CustomerPage> rest;
+                    if (first.getTotal() >= 0) {
+                        long pages = Math.min((first.getTotal() + size - 1) / size, maxPages);
+                        rest = Flux.range(2, (int) Math.max(pages - 1, 0))
+                                .flatMapSequential(page -> fetchCustomerPage(client, req, page, size),
+                                        exportConfig.getWindow(), 1);
+                    } else if (first.getCount() < size) {
+                        rest = Flux.empty();
+                    } else {
+                        rest = Flux.range(2, Math.max(maxPages - 1, 0))
+                                .concatMap(page -> fetchCustomerPage(client, req, page, size))
+                                .takeUntil(page -> page.getCount() < size);
+                    }
+                    return Flux.just(first).concatWith(rest).map(CustomerPage::getLines)
+                            .contextWrite(PagarmeRateLimiter.batch());
+                })
+                .contextWrite(PagarmeRateLimiter.batch());
+    }
+
+    private Mono<CustomerPage> fetchCustomerPage(PagarmeClient client, ListCustomersRequest filters, int page, int size) {
+        ListCustomersRequest req = new ListCustomersRequest();
+        req.setName(filters.getName());
+        req.setDocument(filters.getDocument());
+        req.setEmail(filters.getEmail());
+        req.setGender(filters.getGender());
+        req.setCode(filters.getCode());
+        req.setPage(page);
+        req.setSize(size);
+
+        return client.getBytes(buildListUri(req))
+                .map(body -> CustomerPage.parse(objectMapper.getFactory(), body));
+    }
+
+    /**
+     * Procura um cliente no índice local da filial (documento, e-mail ou código),
+     * sem consultar a Pagar.me.
+     *
+     * @return o ID do cliente, ou null se não estiver indexado
+     */
+    public String lookupCustomer(String filialId, String document, String email, String code) {
+        Filial filial = resolveFilial(filialId);
+        return customerIndex.find(filial.getId(), document, email, code);
+    }
+
+    /**
+     * Cliente já existente com o mesmo documento, e-mail ou código do cadastro, pelo índice local
+     *
+     * @return o ID do cliente, ou null se não houver (ou a filial for inválida)
+     */
+    public String findExistingCustomer(CreateCustomerRequest req) {
+        Filial filial = req.getFilialId() != null ? filialRegistry.find(req.getFilialId()) : null;
+        if (filial == null) {
+            return null;
+        }
+        return customerIndex.find(filial.getId(), req.getDocument(), req.getEmail(), req.getCode());
+    }
+
+    private JsonNode readTree(byte[] body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private Filial resolveFilial(String filialId) {
+        if (filialId == null || filialId.isEmpty()) {
+            throw new IllegalArgumentException("ID da filial é obrigatório");
+        }
+
+        Filial filial = filialRegistry.find(filialId);
+        if (filial == null || !filial.hasSecretKey()) {
+            throw new IllegalArgumentException("Filial não encontrada ou sem chave configurada: " + filialId);
+        }
+        return filial;
+    }
+
+    private String buildListUri(ListCustomersRequest req) {
         // Construir query params
         UriComponentsBuilder uriBuilder = UriComponentsBuilder.fromPath("/customers");
         
@@ -105,19 +455,7 @@ public class PagarmeCustomerService {
             uriBuilder.queryParam("size", req.getSize());
         }
 
-        String uri = uriBuilder.build().toUriString();
-
-        return webClient.get()
-                .uri(uri)
-                .retrieve()
-                .onStatus(
-                        status -> status.isError(),
-                        response -> response.bodyToMono(String.class)
-                                .flatMap(errorBody -> Mono.error(new RuntimeException(
-                                        "Erro na API Pagar.me [" + response.statusCode() + "]: " + errorBody
-                                )))
-                )
-                .bodyToMono(JsonNode.class);
+        return uriBuilder.build().toUriString();
     }
 
     /**
@@ -129,8 +467,8 @@ public class PagarmeCustomerService {
             return Mono.error(new IllegalArgumentException("ID da filial é obrigatório"));
         }
 
-        String secretKey = getSecretKeyByFilialId(req.getFilialId());
-        if (secretKey == null) {
+        Filial filial = filialRegistry.find(req.getFilialId());
+        if (filial == null || !filial.hasSecretKey()) {
             return Mono.error(new IllegalArgumentException("Filial não encontrada ou sem chave configurada: " + req.getFilialId()));
         }
 
@@ -138,33 +476,14 @@ public class PagarmeCustomerService {
             return Mono.error(new IllegalArgumentException("Customer ID é obrigatório"));
         }
 
-        WebClient webClient = createWebClient(secretKey);
+        PagarmeClient client = filial.getClient();
         Map<String, Object> payload = buildCustomerPayload(req);
 
-        return webClient.put()
-                .uri("/customers/" + customerId)
-                .bodyValue(payload)
-                .retrieve()
-                .onStatus(
-                        status -> status.isError(),
-                        response -> response.bodyToMono(String.class)
-                                .flatMap(errorBody -> Mono.error(new RuntimeException(
-                                        "Erro na API Pagar.me [" + response.statusCode() + "]: " + errorBody
-                                )))
-                )
-                .bodyToMono(JsonNode.class);
-    }
-
-    private WebClient createWebClient(String secretKey) {
-        // Pagar.me exige que a secretKey seja codificada em Base64 com ":" no final
-        String credentials = secretKey + ":";
-        String encodedCredentials = Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
-        
-        return WebClient.builder()
-                .baseUrl(baseUrl)
-                .defaultHeader("Authorization", "Basic " + encodedCredentials)
-                .defaultHeader("Content-Type", "application/json")
-                .build();
+        return client.put("/customers/" + customerId, payload)
+                .doOnNext(customer -> {
+                    customerListCache.invalidate(filial.getId(), req, customerId);
+                    customerIndex.index(filial.getId(), customer);
+                });
     }
 
     private Map<String, Object> buildCustomerPayload(CreateCustomerRequest req) {
@@ -228,17 +547,129 @@ public class PagarmeCustomerService {
 
         return addressMap;
     }
-    private String getSecretKeyByFilialId(String filialId) {
-        FiliaisConfig.FilialConfig filial = null;
-        switch (filialId.toLowerCase()) {
-            case "brauna":
-                filial = filiaisConfig.getBrauna();
-                break;
-            case "minasgerais":
-            case "minas-gerais":
-                filial = filiaisConfig.getMinasGerais();
-                break;
-        }
-        return (filial != null) ? filial.getSecretKey() : null;
+
+    private static final class ImportRow {
+        final long index;
+        final CreateCustomerRequest request;
+        final String status; // null = ainda precisa ser cadastrado
+        final String customerId;
+        final String error;
+        ImportDedupe.Claim claim; // Documento desta linha em cadastro
+        Sinks.One<Boolean> previous; // Linha anterior com o mesmo documento, ainda em cadastro
+
+        ImportRow(long index, CreateCustomerRequest request, String status, String customerId, String error) {
+            this.index = index;
+            this.request = request;
+            this.status = status;
+            this.customerId = customerId;
+            this.error = error;
+        }
+
+        static ImportRow failed(long index, CreateCustomerRequest request, String error) {
+            return new ImportRow(index, request, "error", null, error);
+        }
+    }
+
+    /**
+     * Documentos de uma importação, por filial.
+     *
+     * Um documento só entra em {@code created} depois que o cadastro dá certo.
+     * Enquanto uma linha está sendo cadastrada o documento fica em {@code pending}
+     * (no máximo uma entrada por linha em andamento); repetições lidas nesse meio
+     * tempo esperam, em fila e na ordem do arquivo, o resultado da anterior.
+     * A validação roda numa thread só, a conclusão em qualquer uma, daí o lock.
+     */
+    private static final class ImportDedupe {
+        private final DocumentSet created = new DocumentSet();
+        private final Map<String, Sinks.One<Boolean>> pending = new HashMap<>();
+
+        synchronized boolean isCreated(String filialId, String document) {
+            return created.contains(filialId, document);
+        }
+
+        synchronized void markCreated(String filialId, String document) {
+            created.add(filialId, document);
+        }
+
+        synchronized void claim(ImportRow row, String filialId, String document) {
+            Claim claim = new Claim(filialId, document);
+            row.previous = pending.put(claim.key, claim.outcome);
+            row.claim = claim;
+        }
+
+        final class Claim {
+            final String filialId;
+            final String document;
+            final String key;
+            final Sinks.One<Boolean> outcome = Sinks.one();
+
+            Claim(String filialId, String document) {
+                this.filialId = filialId;
+                this.document = document;
+                this.key = filialId + '\u0000' + DOCUMENT_SEPARATORS.matcher(document).replaceAll("").toUpperCase(Locale.ROOT);
+            }
+
+            /**
+             * @param exists se o documento ficou cadastrado (por esta linha ou pela anterior)
+             */
+            void settle(boolean exists) {
+                synchronized (ImportDedupe.this) {
+                    if (exists) {
+                        created.add(filialId, document);
+                    }
+                    pending.remove(key, outcome);
+                }
+                outcome.tryEmitValue(exists);
+            }
+        }
+    }
+
+    /**
+     * Contadores de uma importação. Os resultados chegam serializados pelo
+     * flatMap, então não precisam de sincronização.
+     */
+    private static final class ImportProgress {
+        long processed;
+        long created;
+        long existing;
+        long duplicates;
+        long errors;
+
+        /**
+         * @return true se é hora de emitir uma linha de progresso
+         */
+        boolean record(CustomerImportResultDTO result, int every) {
+            processed++;
+            switch (result.getStatus() != null ? result.getStatus() : "error") {
+                case "created" -> created++;
+                case "existing" -> existing++;
+                case "duplicate" -> duplicates++;
+                default -> errors++;
+            }
+            return every > 0 && processed % every == 0;
+        }
+
+        CustomerImportResultDTO snapshot(String status) {
+            CustomerImportResultDTO line = new CustomerImportResultDTO();
+            line.setStatus(status);
+            line.setProcessed(processed);
+            line.setCreated(created);
+            line.setExisting(existing);
+            line.setDuplicates(duplicates);
+            line.setErrors(errors);
+            return line;
+        }
+    }
+
+    private static final class FilialSearch {
+        final String filialId;
+        final CustomerSearchResultDTO.FilialResult result;
+        final List<JsonNode> customers;
+
+        FilialSearch(String filialId, CustomerSearchResultDTO.FilialResult result, List<JsonNode> customers) {
+            this.filialId = filialId;
+            this.result = result;
+            this.customers = customers;
+        }
     }
 }
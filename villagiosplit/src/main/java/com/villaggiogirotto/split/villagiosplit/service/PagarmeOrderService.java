@@ -1,38 +1,94 @@
 package com.villaggiogirotto.split.villagiosplit.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.villaggiogirotto.split.villagiosplit.controller.requests.CreateOrderRequest;
-import com.villaggiogirotto.split.villagiosplit.dto.*;
-import com.villaggiogirotto.split.villagiosplit.dto.*;
-import com.villaggiogirotto.split.villagiosplit.config.FiliaisConfig;
-import org.springframework.beans.factory.annotation.Value;
+import com.villaggiogirotto.split.villagiosplit.config.BatchConfig;
+import com.villaggiogirotto.split.villagiosplit.dto.OrderBatchResultDTO;
+import com.villaggiogirotto.split.villagiosplit.dto.OrderSummaryDTO;
+import com.villaggiogirotto.split.villagiosplit.dto.SplitInputDTO;
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeClient;
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeRateLimiter;
+import com.villaggiogirotto.split.villagiosplit.config.Filial;
+import com.villaggiogirotto.split.villagiosplit.config.FilialRegistry;
+import com.villaggiogirotto.split.villagiosplit.service.idempotency.IdempotencyStore;
+import com.villaggiogirotto.split.villagiosplit.service.payload.OrderPayloadWriter;
+import com.villaggiogirotto.split.villagiosplit.service.payload.OrderSummaryReader;
+import com.villaggiogirotto.split.villagiosplit.service.state.OrderState;
+import com.villaggiogirotto.split.villagiosplit.service.state.OrderStateStore;
+import com.villaggiogirotto.split.villagiosplit.service.state.OrderStatusBroadcaster;
+import com.villaggiogirotto.split.villagiosplit.service.state.PendingOrderPoller;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
-import java.util.*;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
 
 @Service
 public class PagarmeOrderService {
 
-    @Value("${pagarme.base-url}")
-    private String baseUrl;
-
-    private final FiliaisConfig filiaisConfig;
+    // IDs e codes aceitos em GET /orders/{id} (vão direto para a URL da Pagar.me)
+    private static final Pattern ORDER_REF = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    // Cartões da requisição e os campos que não entram na impressão digital
+    private static final List<String> CARD_FIELDS = List.of("creditCard", "debitCard");
+    private static final List<String> CARD_SECRETS = List.of("number", "cvv", "expMonth", "expYear", "holderName");
+
+    private final FilialRegistry filialRegistry;
+    private final OrderPayloadWriter orderPayloadWriter;
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+    private final BatchConfig.OrdersBatch batchConfig;
+    private final OrderStateStore orderStateStore;
+    private final OrderStatusBroadcaster orderStatusBroadcaster;
+    private final PendingOrderPoller pendingOrderPoller;
+
+    public PagarmeOrderService(FilialRegistry filialRegistry, OrderPayloadWriter orderPayloadWriter,
+                               IdempotencyStore idempotencyStore, ObjectMapper objectMapper, BatchConfig batchConfig,
+                               OrderStateStore orderStateStore, OrderStatusBroadcaster orderStatusBroadcaster,
+                               PendingOrderPoller pendingOrderPoller) {
+        this.filialRegistry = filialRegistry;
+        this.orderPayloadWriter = orderPayloadWriter;
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.batchConfig = batchConfig.getOrders();
+        this.orderStateStore = orderStateStore;
+        this.orderStatusBroadcaster = orderStatusBroadcaster;
+        this.pendingOrderPoller = pendingOrderPoller;
+    }
 
-    public PagarmeOrderService(FiliaisConfig filiaisConfig) {
-        this.filiaisConfig = filiaisConfig;
+    public Mono<OrderSummaryDTO> createOrder(CreateOrderRequest req) {
+        return createOrder(req, false, null);
     }
 
-    public Mono<JsonNode> createOrder(CreateOrderRequest req) {
+    /**
+     * Cria o pedido e devolve só os campos usados pela API.
+     *
+     * Com chave de idempotência (header Idempotency-Key ou, na falta dele, o code
+     * do pedido) o pedido é criado uma única vez: repetições devolvem o resultado
+     * guardado e duplicatas simultâneas aguardam a primeira chamada. O uso do code
+     * como chave vale para todo pedido que tem code; orders.idempotency.code-as-key=false
+     * desliga, deixando só o header.
+     *
+     * O resultado guardado pode não ter o pedido completo (a primeira chamada foi
+     * sem include=order, ou veio do arquivo): uma repetição com include=order relê
+     * o pedido na Pagar.me em vez de devolvê-lo sem ele.
+     *
+     * @param includeOrder   se true, o pedido completo da Pagar.me vem junto em {@link OrderSummaryDTO#getOrder()}
+     * @param idempotencyKey valor do header Idempotency-Key (opcional)
+     */
+    public Mono<OrderSummaryDTO> createOrder(CreateOrderRequest req, boolean includeOrder, String idempotencyKey) {
         if (req.getFilialId() == null || req.getFilialId().isEmpty()) {
             return Mono.error(new IllegalArgumentException("ID da filial é obrigatório"));
         }
 
-        String secretKey = getSecretKeyByFilialId(req.getFilialId());
-        if (secretKey == null) {
+        Filial filial = filialRegistry.find(req.getFilialId());
+        if (filial == null || !filial.hasSecretKey()) {
             return Mono.error(new IllegalArgumentException("Filial não encontrada ou sem chave configurada: " + req.getFilialId()));
         }
 
@@ -57,363 +113,206 @@ public class PagarmeOrderService {
             }
         }
 
-        WebClient webClient = createWebClient(secretKey);
-        Map<String, Object> payload = buildOrderPayload(req);
-
-        return webClient.post()
-                .uri("/orders")
-                .bodyValue(payload)
-                .retrieve()
-                .onStatus(
-                        status -> status.isError(),
-                        response -> response.bodyToMono(String.class)
-                                .flatMap(errorBody -> Mono.error(new RuntimeException(
-                                        "Erro na API Pagar.me [" + response.statusCode() + "]: " + errorBody
-                                )))
-                )
-                .bodyToMono(JsonNode.class);
-    }
-
-    private WebClient createWebClient(String secretKey) {
-        // Pagar.me exige que a secretKey seja codificada em Base64 com ":" no final
-        String credentials = secretKey + ":";
-        String encodedCredentials = Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
-        
-        return WebClient.builder()
-                .baseUrl(baseUrl)
-                .defaultHeader("Authorization", "Basic " + encodedCredentials)
-                .defaultHeader("Content-Type", "application/json")
-                .build();
-    }
-
-    private Map<String, Object> buildOrderPayload(CreateOrderRequest req) {
-        Map<String, Object> root = new HashMap<>();
-
-        // Code (opcional - identificador no seu sistema)
-        if (req.getCode() != null && !req.getCode().isEmpty()) {
-            root.put("code", req.getCode());
-        }
-
-        // Items (obrigatório)
-        root.put("items", buildItems(req.getItems(), req.getAmount()));
-
-        // Customer (obrigatório se customer_id não for informado)
-        if (req.getCustomer() != null) {
-            root.put("customer", buildCustomer(req.getCustomer()));
-        } else if (req.getCustomerId() != null && !req.getCustomerId().isEmpty()) {
-            root.put("customer_id", req.getCustomerId());
-        } else {
-            throw new IllegalArgumentException("Customer ou customer_id deve ser informado");
-        }
-
-        // Payments (obrigatório)
-        root.put("payments", buildPayments(req));
-
-        // Split (opcional)
-        if (req.getSplit() != null && !req.getSplit().isEmpty()) {
-            root.put("split", buildSplit(req.getSplit()));
+        PagarmeClient client = filial.getClient();
+        byte[] payload;
+        try {
+            payload = orderPayloadWriter.write(req);
+        } catch (IllegalArgumentException ex) {
+            return Mono.error(ex);
         }
 
-        // Closed (default: true)
-        root.put("closed", req.getClosed() != null ? req.getClosed() : true);
+        Mono<OrderSummaryDTO> call = client.post("/orders", payload, OrderSummaryReader.of(includeOrder))
+                .doOnNext(summary -> {
+                    orderStateStore.record(filial.getId(), summary);
+                    pendingOrderPoller.track(filial.getId(), summary, req);
+                });
 
-        // Shipping (opcional)
-        if (req.getShipping() != null) {
-            root.put("shipping", buildShipping(req.getShipping()));
+        String key = idempotencyKey != null && !idempotencyKey.isBlank() ? idempotencyKey
+                : idempotencyStore.isCodeAsKey() ? req.getCode() : null;
+        if (key == null || key.isBlank() || !idempotencyStore.isEnabled()) {
+            return call;
         }
-
-        // Metadata (opcional)
-        if (req.getMetadata() != null) {
-            root.put("metadata", req.getMetadata());
-        }
-
-        return root;
+        return idempotencyStore.execute(filial.getId(), key, fingerprint(req), () -> call)
+                .flatMap(summary -> includeOrder && summary.getOrder() == null && summary.getOrderId() != null
+                        ? client.get("/orders/" + summary.getOrderId(), OrderSummaryReader.WITH_ORDER)
+                        : Mono.just(summary));
     }
 
-    private List<Map<String, Object>> buildItems(List<CartItemDTO> items, Integer totalAmount) {
-        List<Map<String, Object>> itemsList = new ArrayList<>();
-
-        if (items != null && !items.isEmpty()) {
-            for (CartItemDTO item : items) {
-                Map<String, Object> itemMap = new HashMap<>();
-                itemMap.put("amount", item.getAmount());
-                itemMap.put("description", item.getDescription() != null ? item.getDescription() : item.getName());
-                itemMap.put("quantity", item.getDefaultQuantity() != null ? item.getDefaultQuantity() : 1);
-                itemMap.put("code", item.getCode() != null ? item.getCode() : UUID.randomUUID().toString());
-                itemsList.add(itemMap);
+    /**
+     * Status de um pedido, pelo ID da Pagar.me (or_...) ou pelo code.
+     *
+     * Responde do estado local (criação, webhooks e leituras anteriores) e só
+     * relê o pedido na Pagar.me se ele ainda não tem status final e não há
+     * notícia dele há mais de orders.state.stale-after. Se a releitura falhar,
+     * devolve o último estado conhecido.
+     *
+     * Fora do estado local, um ID (or_...) é lido em GET /orders/{id}; qualquer
+     * outro valor é tratado como code e procurado em GET /orders?code=, ficando
+     * com o pedido mais recente que o usa.
+     *
+     * @param filialId necessário só para pedidos que ainda não estão no estado local
+     */
+    public Mono<OrderState> getOrderStatus(String idOrCode, String filialId) {
+        if (idOrCode == null || !ORDER_REF.matcher(idOrCode).matches()) {
+            return Mono.error(new IllegalArgumentException("ID do pedido inválido: " + idOrCode));
+        }
+
+        OrderState state = orderStateStore.find(idOrCode);
+        if (state != null && orderStateStore.isFresh(state)) {
+            return Mono.just(state);
+        }
+
+        String filialRef = state != null && state.getFilialId() != null ? state.getFilialId() : filialId;
+        Filial filial = filialRef != null ? filialRegistry.find(filialRef) : null;
+        if (filial == null || !filial.hasSecretKey()) {
+            if (state != null) {
+                return Mono.just(state);
             }
-        } else if (totalAmount != null) {
-            // Fallback: item único
-            Map<String, Object> defaultItem = new HashMap<>();
-            defaultItem.put("amount", totalAmount);
-            defaultItem.put("description", "Pagamento");
-            defaultItem.put("quantity", 1);
-            defaultItem.put("code", "item-1");
-            itemsList.add(defaultItem);
-        } else {
-            throw new IllegalArgumentException("Items ou amount deve ser informado");
-        }
-
-        return itemsList;
-    }
-
-    private Map<String, Object> buildCustomer(CustomerDTO customer) {
-        Map<String, Object> customerMap = new HashMap<>();
-
-        customerMap.put("name", customer.getName());
-
-        if (customer.getEmail() != null) {
-            customerMap.put("email", customer.getEmail());
-        }
-
-        if (customer.getDocument() != null) {
-            customerMap.put("document", customer.getDocument());
-            customerMap.put("type", customer.getType() != null ? customer.getType() : "individual");
-            customerMap.put("document_type", customer.getDocumentType() != null ? customer.getDocumentType() : "CPF");
-        }
-
-        if (customer.getCode() != null) {
-            customerMap.put("code", customer.getCode());
-        }
-
-        if (customer.getGender() != null) {
-            customerMap.put("gender", customer.getGender());
-        }
-
-        if (customer.getBirthdate() != null) {
-            customerMap.put("birthdate", customer.getBirthdate());
-        }
-
-        // Address
-        if (customer.getAddress() != null) {
-            customerMap.put("address", buildAddress(customer.getAddress()));
-        }
-
-        // Phones
-        if (customer.getPhones() != null) {
-            customerMap.put("phones", customer.getPhones());
+            return Mono.error(new IllegalArgumentException(filialRef == null
+                    ? "Pedido não encontrado; informe o filialId para consultá-lo na Pagar.me"
+                    : "Filial não encontrada ou sem chave configurada: " + filialRef));
         }
 
-        if (customer.getMetadata() != null) {
-            customerMap.put("metadata", customer.getMetadata());
-        }
-
-        return customerMap;
+        Mono<OrderSummaryDTO> lookup;
+        if (state != null || idOrCode.startsWith("or_")) {
+            String orderId = state != null ? state.getOrderId() : idOrCode;
+            lookup = filial.getClient().get("/orders/" + orderId, OrderSummaryReader.INSTANCE);
+        } else {
+            // GET /orders/{id} só aceita o ID da Pagar.me; o code é resolvido pela listagem
+            lookup = filial.getClient().get("/orders?code=" + idOrCode + "&size=1", OrderSummaryReader.FIRST_IN_PAGE)
+                    .switchIfEmpty(Mono.error(new IllegalArgumentException(
+                            "Pedido não encontrado na filial " + filial.getId() + ": " + idOrCode)));
+        }
+        return lookup
+                .map(summary -> orderStateStore.record(filial.getId(), summary))
+                .onErrorResume(ex -> state != null ? Mono.just(state) : Mono.error(ex));
     }
 
-    private Map<String, Object> buildAddress(AddressDTO address) {
-        Map<String, Object> addressMap = new HashMap<>();
-
-        if (address.getCountry() != null) {
-            addressMap.put("country", address.getCountry());
-        }
-        if (address.getState() != null) {
-            addressMap.put("state", address.getState());
-        }
-        if (address.getCity() != null) {
-            addressMap.put("city", address.getCity());
-        }
-        if (address.getZipCode() != null) {
-            addressMap.put("zip_code", address.getZipCode());
-        }
-        if (address.getLine1() != null) {
-            addressMap.put("line_1", address.getLine1());
-        }
-        if (address.getLine2() != null) {
-            addressMap.put("line_2", address.getLine2());
-        }
-
-        return addressMap;
+    /**
+     * Status atual do pedido seguido de cada mudança de status, até um status final.
+     *
+     * Começa a ouvir o {@link OrderStatusBroadcaster} antes de reler o estado
+     * local, para não perder uma mudança que aconteça entre as duas coisas;
+     * estados repetidos ou mais antigos que o último emitido são descartados.
+     */
+    public Flux<OrderState> watchOrder(String idOrCode, String filialId) {
+        return getOrderStatus(idOrCode, filialId)
+                .flatMapMany(first -> {
+                    if (first.isFinal()) {
+                        return Flux.just(first);
+                    }
+                    OrderState[] last = new OrderState[1];
+                    return Flux.merge(
+                                    orderStatusBroadcaster.watch(first.getOrderId()),
+                                    Mono.fromSupplier(() -> orderStateStore.find(first.getOrderId())))
+                            .startWith(first)
+                            .filter(state -> {
+                                OrderState previous = last[0];
+                                if (previous != null && (state.getUpdatedAt() < previous.getUpdatedAt()
+                                        || (Objects.equals(state.getStatus(), previous.getStatus())
+                                        && Objects.equals(state.getChargeStatus(), previous.getChargeStatus())))) {
+                                    return false;
+                                }
+                                last[0] = state;
+                                return true;
+                            })
+                            .takeUntil(OrderState::isFinal);
+                });
     }
 
-    private List<Map<String, Object>> buildPayments(CreateOrderRequest req) {
-        List<Map<String, Object>> payments = new ArrayList<>();
-        Map<String, Object> payment = new HashMap<>();
-
-        payment.put("payment_method", req.getPaymentMethod());
-
-        switch (req.getPaymentMethod().toLowerCase()) {
-            case "credit_card":
-                payment.put("credit_card", buildCreditCard(req.getCreditCard()));
-                break;
-            case "pix":
-                payment.put("pix", buildPix(req.getPix()));
-                break;
-            case "boleto":
-                payment.put("boleto", buildBoleto(req.getBoleto()));
-                break;
-            case "debit_card":
-                payment.put("debit_card", buildDebitCard(req.getDebitCard()));
-                break;
-            default:
-                throw new IllegalArgumentException("Método de pagamento inválido: " + req.getPaymentMethod());
-        }
-
-        // Split no nível do pagamento (se houver)
-        if (req.getSplit() != null && !req.getSplit().isEmpty()) {
-            payment.put("split", buildSplit(req.getSplit()));
-        }
-
-        payments.add(payment);
-        return payments;
+    /**
+     * Cria um lote de pedidos, no máximo batch.orders.concurrency-per-filial
+     * simultâneos por filial, emitindo cada resultado assim que fica pronto
+     * (fora da ordem de entrada; use o index para casar).
+     *
+     * A falha de um item vira um resultado com erro e não interrompe o lote.
+     * Um corpo malformado encerra a leitura com um último resultado de erro,
+     * sem cancelar os pedidos já em andamento. Cada item usa o seu code como
+     * chave de idempotência, então reenviar o lote não duplica pedidos.
+     */
+    public Flux<OrderBatchResultDTO> createOrders(Flux<CreateOrderRequest> requests) {
+        int maxItems = batchConfig.getMaxItems();
+
+        return requests
+                .index()
+                .takeUntil(indexed -> indexed.getT1() >= maxItems)
+                .map(indexed -> indexed.getT1() < maxItems
+                        ? new BatchItem(indexed.getT1(), indexed.getT2(), null)
+                        : new BatchItem(indexed.getT1(), null, "Lote excede o limite de " + maxItems + " pedidos"))
+                .onErrorResume(ex -> Flux.just(new BatchItem(-1, null, "Lote inválido: " + ex.getMessage())))
+                .groupBy(this::batchGroup)
+                .flatMap(group -> group.flatMap(this::createBatchItem, batchConfig.getConcurrencyPerFilial()),
+                        Math.max(filialRegistry.getFiliais().size() + 1, 1))
+                .contextWrite(PagarmeRateLimiter.batch());
     }
 
-    private Map<String, Object> buildCreditCard(CreditCardDTO creditCard) {
-        if (creditCard == null) {
-            throw new IllegalArgumentException("Dados do cartão de crédito são obrigatórios");
-        }
-
-        Map<String, Object> ccMap = new HashMap<>();
-
-        ccMap.put("operation_type", creditCard.getOperationType() != null ? creditCard.getOperationType() : "auth_and_capture");
-
-        // Installments
-        if (creditCard.getInstallments() != null) {
-            ccMap.put("installments", creditCard.getInstallments());
-        }
-
-        // Statement descriptor
-        if (creditCard.getStatementDescriptor() != null) {
-            ccMap.put("statement_descriptor", creditCard.getStatementDescriptor());
-        }
-
-        // Card - pode ser card_id, card_token, ou dados do cartão
-        if (creditCard.getCardId() != null) {
-            ccMap.put("card_id", creditCard.getCardId());
-        } else if (creditCard.getCardToken() != null) {
-            ccMap.put("card_token", creditCard.getCardToken());
-        } else {
-            // Dados completos do cartão
-            Map<String, Object> card = new HashMap<>();
-            card.put("number", creditCard.getNumber());
-            card.put("holder_name", creditCard.getHolderName());
-            card.put("exp_month", creditCard.getExpMonth());
-            card.put("exp_year", creditCard.getExpYear());
-            card.put("cvv", creditCard.getCvv());
-
-            if (creditCard.getBillingAddress() != null) {
-                card.put("billing_address", buildAddress(creditCard.getBillingAddress()));
-            }
-
-            ccMap.put("card", card);
-        }
-
-        return ccMap;
+    private Mono<OrderBatchResultDTO> createBatchItem(BatchItem item) {
+        OrderBatchResultDTO result = new OrderBatchResultDTO();
+        result.setIndex(item.index);
+        if (item.request != null) {
+            result.setCode(item.request.getCode());
+            result.setFilialId(item.request.getFilialId());
+        }
+        if (item.error != null) {
+            result.setError(item.error);
+            return Mono.just(result);
+        }
+
+        return createOrder(item.request)
+                .map(summary -> {
+                    result.setSummary(summary);
+                    return result;
+                })
+                .defaultIfEmpty(result)
+                .onErrorResume(ex -> {
+                    result.setError(ex.getMessage());
+                    return Mono.just(result);
+                });
     }
 
-    private Map<String, Object> buildPix(PixDTO pix) {
-        Map<String, Object> pixMap = new HashMap<>();
-
-        if (pix != null && pix.getExpiresIn() != null) {
-            pixMap.put("expires_in", pix.getExpiresIn());
-        } else {
-            // Default: 24 horas
-            pixMap.put("expires_in", 86400);
+    /**
+     * Grupo de concorrência do item: a filial canônica, ou um grupo único
+     * para itens inválidos (que falham sem chamar a Pagar.me)
+     */
+    private String batchGroup(BatchItem item) {
+        if (item.request == null || item.request.getFilialId() == null) {
+            return "";
         }
-
-        return pixMap;
+        Filial filial = filialRegistry.find(item.request.getFilialId());
+        return filial != null ? filial.getId() : "";
     }
 
-    private Map<String, Object> buildBoleto(BoletoDTO boleto) {
-        Map<String, Object> boletoMap = new HashMap<>();
-
-        if (boleto != null) {
-            if (boleto.getInstructions() != null) {
-                boletoMap.put("instructions", boleto.getInstructions());
-            }
-            if (boleto.getDueAt() != null) {
-                boletoMap.put("due_at", boleto.getDueAt());
+    /**
+     * Hash SHA-256 da requisição, para detectar a mesma chave usada com outro pedido.
+     *
+     * A impressão digital vai para o arquivo de idempotência, então os dados abertos
+     * do cartão (número, CVV, validade, titular) ficam de fora; card_id/card_token
+     * continuam distinguindo pedidos com cartões diferentes.
+     */
+    private String fingerprint(CreateOrderRequest req) {
+        try {
+            ObjectNode tree = objectMapper.valueToTree(req);
+            for (String card : CARD_FIELDS) {
+                if (tree.get(card) instanceof ObjectNode cardNode) {
+                    cardNode.remove(CARD_SECRETS);
+                }
             }
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(tree));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Não foi possível calcular a impressão digital do pedido", ex);
         }
-
-        return boletoMap;
-    }
-
-    private Map<String, Object> buildDebitCard(DebitCardDTO debitCard) {
-        if (debitCard == null) {
-            throw new IllegalArgumentException("Dados do cartão de débito são obrigatórios");
-        }
-
-        Map<String, Object> dcMap = new HashMap<>();
-
-        // Statement descriptor
-        if (debitCard.getStatementDescriptor() != null) {
-            dcMap.put("statement_descriptor", debitCard.getStatementDescriptor());
-        }
-
-        // Card
-        Map<String, Object> card = new HashMap<>();
-        card.put("number", debitCard.getNumber());
-        card.put("holder_name", debitCard.getHolderName());
-        card.put("exp_month", debitCard.getExpMonth());
-        card.put("exp_year", debitCard.getExpYear());
-        card.put("cvv", debitCard.getCvv());
-
-        if (debitCard.getBillingAddress() != null) {
-            card.put("billing_address", buildAddress(debitCard.getBillingAddress()));
-        }
-
-        dcMap.put("card", card);
-
-        return dcMap;
-    }
-
-    private List<Map<String, Object>> buildSplit(List<SplitInputDTO> splitList) {
-        List<Map<String, Object>> splits = new ArrayList<>();
-
-        for (SplitInputDTO split : splitList) {
-            Map<String, Object> splitMap = new HashMap<>();
-
-            splitMap.put("amount", split.getAmount());
-            splitMap.put("type", split.getType() != null ? split.getType() : "percentage");
-            splitMap.put("recipient_id", split.getRecipientId());
-
-            // Options
-            Map<String, Object> options = new HashMap<>();
-            boolean isLiable = split.getLiable() != null && split.getLiable();
-            options.put("liable", isLiable);
-            options.put("charge_processing_fee", isLiable);
-            options.put("charge_remainder_fee", isLiable);
-
-            splitMap.put("options", options);
-            splits.add(splitMap);
-        }
-
-        return splits;
     }
 
-    private Map<String, Object> buildShipping(ShippingDTO shipping) {
-        Map<String, Object> shippingMap = new HashMap<>();
+    private static final class BatchItem {
+        final long index;
+        final CreateOrderRequest request;
+        final String error;
 
-        if (shipping.getAmount() != null) {
-            shippingMap.put("amount", shipping.getAmount());
-        }
-        if (shipping.getDescription() != null) {
-            shippingMap.put("description", shipping.getDescription());
-        }
-        if (shipping.getRecipientName() != null) {
-            shippingMap.put("recipient_name", shipping.getRecipientName());
-        }
-        if (shipping.getRecipientPhone() != null) {
-            shippingMap.put("recipient_phone", shipping.getRecipientPhone());
-        }
-        if (shipping.getAddress() != null) {
-            shippingMap.put("address", buildAddress(shipping.getAddress()));
-        }
-
-        return shippingMap;
-    }
-    private String getSecretKeyByFilialId(String filialId) {
-        FiliaisConfig.FilialConfig filial = null;
-        switch (filialId.toLowerCase()) {
-            case "brauna":
-                filial = filiaisConfig.getBrauna();
-                break;
-            case "minasgerais":
-            case "minas-gerais":
-                filial = filiaisConfig.getMinasGerais();
-                break;
+        BatchItem(long index, CreateOrderRequest request, String error) {
+            this.index = index;
+            this.request = request;
+            this.error = error;
         }
-        return (filial != null) ? filial.getSecretKey() : null;
     }
-}
\ No newline at end of file
+}
@@ -2,17 +2,20 @@ package com.villaggiogirotto.split.villagiosplit.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.villaggiogirotto.split.villagiosplit.controller.requests.CreatePaymentRequest;
-import com.villaggiogirotto.split.villagiosplit.dto.CartItemDTO;
-
+import com.villaggiogirotto.split.villagiosplit.controller.requests.PaymentLinkCsvRow;
+import com.villaggiogirotto.split.villagiosplit.dto.PaymentLinkBatchResultDTO;
 import com.villaggiogirotto.split.villagiosplit.dto.SplitInputDTO;
-import com.villaggiogirotto.split.villagiosplit.config.FiliaisConfig;
-import org.springframework.beans.factory.annotation.Value;
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeClient;
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeRateLimiter;
+import com.villaggiogirotto.split.villagiosplit.config.BatchConfig;
+import com.villaggiogirotto.split.villagiosplit.config.Filial;
+import com.villaggiogirotto.split.villagiosplit.config.FilialRegistry;
+import com.villaggiogirotto.split.villagiosplit.service.payload.PaymentLinkPayloadWriter;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.nio.charset.StandardCharsets;
-import java.util.*;
+import java.util.function.Function;
 
 /**
  * Serviço para criar Payment Links via API Pagar.me
@@ -28,13 +31,15 @@ import java.util.*;
 @Service
 public class PagarmePaymentLinkService {
 
-    @Value("${pagarme.base-url}")
-    private String baseUrl;
-
-    private final FiliaisConfig filiaisConfig;
+    private final FilialRegistry filialRegistry;
+    private final PaymentLinkPayloadWriter paymentLinkPayloadWriter;
+    private final BatchConfig.PaymentLinksBatch batchConfig;
 
-    public PagarmePaymentLinkService(FiliaisConfig filiaisConfig) {
-        this.filiaisConfig = filiaisConfig;
+    public PagarmePaymentLinkService(FilialRegistry filialRegistry, PaymentLinkPayloadWriter paymentLinkPayloadWriter,
+                                     BatchConfig batchConfig) {
+        this.filialRegistry = filialRegistry;
+        this.paymentLinkPayloadWriter = paymentLinkPayloadWriter;
+        this.batchConfig = batchConfig.getPaymentLinks();
     }
 
     /**
@@ -44,15 +49,107 @@ public class PagarmePaymentLinkService {
      * @return Resposta da API Pagar.me contendo checkout_url
      */
     public Mono<JsonNode> createPaymentLink(CreatePaymentRequest req) {
+        Filial filial;
+        try {
+            filial = validate(req);
+        } catch (IllegalArgumentException ex) {
+            return Mono.error(ex);
+        }
+
+        PagarmeClient client = filial.getClient();
+        byte[] payload = paymentLinkPayloadWriter.write(req);
+
+        return client.post("/paymentlinks", payload);
+    }
+
+    /**
+     * Cria links em lote, no máximo batch.payment-links.concurrency ao mesmo tempo.
+     *
+     * Cada linha é validada localmente antes de ocupar uma vaga; só linhas
+     * válidas chegam à Pagar.me. Novas linhas só são lidas quando há vaga
+     * (backpressure), então a memória não cresce com o tamanho do lote. Os
+     * resultados saem conforme terminam; a falha de uma linha não interrompe o lote.
+     */
+    public Flux<PaymentLinkBatchResultDTO> createPaymentLinks(Flux<CreatePaymentRequest> requests) {
+        return createBatch(requests, Function.identity());
+    }
+
+    /**
+     * Mesmo que {@link #createPaymentLinks(Flux)}, para linhas de planilha CSV.
+     * Uma linha que não pode ser convertida vira uma linha de erro no resultado.
+     */
+    public Flux<PaymentLinkBatchResultDTO> createPaymentLinksFromCsv(Flux<PaymentLinkCsvRow> rows) {
+        return createBatch(rows, PaymentLinkCsvRow::toPaymentRequest);
+    }
+
+    private <T> Flux<PaymentLinkBatchResultDTO> createBatch(Flux<T> rows, Function<T, CreatePaymentRequest> toRequest) {
+        return rows
+                .index()
+                .map(indexed -> {
+                    // Conversão e validação aqui, fora das vagas do flatMap: só linhas válidas ocupam uma
+                    CreatePaymentRequest request = null;
+                    try {
+                        request = toRequest.apply(indexed.getT2());
+                        return new BatchRow(indexed.getT1(), request, validateBatchRow(request), null);
+                    } catch (IllegalArgumentException ex) {
+                        return new BatchRow(indexed.getT1(), request, null, ex.getMessage());
+                    }
+                })
+                .onErrorResume(ex -> Flux.just(new BatchRow(-1, null, null, "Arquivo inválido: " + ex.getMessage())))
+                .flatMap(this::createBatchRow, batchConfig.getConcurrency())
+                .contextWrite(PagarmeRateLimiter.batch());
+    }
+
+    private Mono<PaymentLinkBatchResultDTO> createBatchRow(BatchRow row) {
+        PaymentLinkBatchResultDTO result = new PaymentLinkBatchResultDTO();
+        result.setIndex(row.index);
+        if (row.request != null) {
+            result.setFilialId(row.request.getFilialId());
+        }
+        if (row.error != null) {
+            result.setError(row.error);
+            return Mono.just(result);
+        }
+
+        return row.filial.getClient().post("/paymentlinks", paymentLinkPayloadWriter.write(row.request))
+                .map(linkResponse -> {
+                    result.setLinkId(linkResponse.path("id").asText(null));
+                    result.setCheckoutUrl(linkResponse.path("url").asText(null));
+                    result.setShortUrl(linkResponse.path("short_url").asText(null));
+                    return result;
+                })
+                .defaultIfEmpty(result)
+                .onErrorResume(ex -> {
+                    result.setError(ex.getMessage());
+                    return Mono.just(result);
+                });
+    }
+
+    /**
+     * Validações locais, feitas antes de chamar a Pagar.me
+     *
+     * @return a filial do link
+     * @throws IllegalArgumentException se a requisição for inválida
+     */
+    private Filial validate(CreatePaymentRequest req) {
+        Filial filial = findFilial(req);
+        validateSplit(req);
+        return filial;
+    }
+
+    private Filial findFilial(CreatePaymentRequest req) {
         if (req.getFilialId() == null || req.getFilialId().isEmpty()) {
-            return Mono.error(new IllegalArgumentException("ID da filial é obrigatório"));
+            throw new IllegalArgumentException("ID da filial é obrigatório");
         }
 
-        String secretKey = getSecretKeyByFilialId(req.getFilialId());
-        if (secretKey == null) {
-            return Mono.error(new IllegalArgumentException("Filial não encontrada ou sem chave configurada: " + req.getFilialId()));
+        Filial filial = filialRegistry.find(req.getFilialId());
+        if (filial == null || !filial.hasSecretKey()) {
+            throw new IllegalArgumentException("Filial não encontrada ou sem chave configurada: " + req.getFilialId());
         }
+        return filial;
+    }
 
+    private void validateSplit(CreatePaymentRequest req) {
         // Validação do split
         if (req.getSplit() != null && !req.getSplit().isEmpty()) {
             // Verificar se todos os splits têm o mesmo tipo
@@ -65,207 +162,50 @@ public class PagarmePaymentLinkService {
 
             if ("percentage".equals(splitType)) {
                 if (totalAmount != 100) {
-                    return Mono.error(new IllegalArgumentException(
+                    throw new IllegalArgumentException(
                             "A soma dos percentuais do split deve ser 100%. Atual: " + totalAmount + "%"
-                    ));
+                    );
                 }
             } else {
                 // flat: soma deve ser igual ao valor total
-                int expectedTotal = calculateTotalAmount(req);
+                int expectedTotal = PaymentLinkPayloadWriter.calculateTotalAmount(req);
                 if (totalAmount != expectedTotal) {
-                    return Mono.error(new IllegalArgumentException(
+                    throw new IllegalArgumentException(
                             "A soma dos valores do split (" + totalAmount + ") deve ser igual ao valor total (" + expectedTotal + ")"
-                    ));
+                    );
                 }
             }
         }
-
-
-
-        WebClient webClient = createWebClient(secretKey);
-        Map<String, Object> payload = buildPaymentLinkPayload(req);
-
-        return webClient.post()
-                .uri("/paymentlinks")
-                .bodyValue(payload)
-                .retrieve()
-                .onStatus(
-                        status -> status.isError(),
-                        response -> response.bodyToMono(String.class)
-                                .flatMap(errorBody -> Mono.error(new RuntimeException(
-                                        "Erro na API Pagar.me [" + response.statusCode() + "]: " + errorBody
-                                )))
-                )
-                .bodyToMono(JsonNode.class);
-    }
-
-    private WebClient createWebClient(String secretKey) {
-        String credentials = secretKey + ":";
-        String encodedCredentials = Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
-
-        return WebClient.builder()
-                .baseUrl(baseUrl)
-                .defaultHeader("Authorization", "Basic " + encodedCredentials)
-                .defaultHeader("Content-Type", "application/json")
-                .build();
     }
 
     /**
-     * Constrói o payload seguindo o formato recomendado pelo suporte Pagar.me
+     * Validações de uma linha do lote: as de {@link #validate} mais valor positivo
+     * e cada recebedor do split, já que uma planilha não passa pela validação do
+     * formulário. POST /payment-links (um link) não tem essas duas.
      */
-    private Map<String, Object> buildPaymentLinkPayload(CreatePaymentRequest req) {
-        Map<String, Object> root = new HashMap<>();
-
-        // Configurações básicas
-        root.put("is_building", false);
-        root.put("type", "order");
-
-        // Payment Settings
-        root.put("payment_settings", buildPaymentSettings(req));
-
-        // Cart Settings (items)
-        root.put("cart_settings", buildCartSettings(req));
-
-        // Split Settings (regras de divisão)
-        if (req.getSplit() != null && !req.getSplit().isEmpty()) {
-            root.put("split_settings", buildSplitSettings(req.getSplit()));
-        }
-
-        return root;
-    }
-
-    private Map<String, Object> buildPaymentSettings(CreatePaymentRequest req) {
-        Map<String, Object> paymentSettings = new HashMap<>();
-
-        // Métodos de pagamento aceitos
-        paymentSettings.put("accepted_payment_methods", Arrays.asList("credit_card", "pix"));
-
-        // Statement descriptor (descrição na fatura)
-        String descriptor = req.getStatementDescriptor();
-        if (descriptor == null || descriptor.isEmpty()) {
-            descriptor = "Pagamento";
-        }
-        // Limitar a 13 caracteres conforme documentação
-        if (descriptor.length() > 13) {
-            descriptor = descriptor.substring(0, 13);
-        }
-        paymentSettings.put("statement_descriptor", descriptor);
-
-        // Credit Card Settings
-        paymentSettings.put("credit_card_settings", buildCreditCardSettings(req));
-
-        // PIX Settings
-        Map<String, Object> pixSettings = new HashMap<>();
-        pixSettings.put("expires_in", 3600); // 1 hora em segundos
-        paymentSettings.put("pix_settings", pixSettings);
-
-        return paymentSettings;
-    }
-
-    private Map<String, Object> buildCreditCardSettings(CreatePaymentRequest req) {
-        Map<String, Object> ccSettings = new HashMap<>();
-
-        ccSettings.put("operation_type", "auth_and_capture");
-
-        // Configuração de parcelamento
-        Map<String, Object> installmentsSetup = new HashMap<>();
-        installmentsSetup.put("interest_type", "simple");
-        
-        int maxInstallments = req.getInstallments() != null ? req.getInstallments() : 12;
-        installmentsSetup.put("max_installments", maxInstallments);
-        installmentsSetup.put("free_installments", Math.min(3, maxInstallments)); // Até 3x sem juros
-        
-        // Amount é obrigatório para installments_setup
-        int amount = calculateTotalAmount(req);
-        installmentsSetup.put("amount", amount);
-        installmentsSetup.put("interest_rate", 1);
-
-        ccSettings.put("installments_setup", installmentsSetup);
-
-        return ccSettings;
-    }
-
-    private Map<String, Object> buildCartSettings(CreatePaymentRequest req) {
-        Map<String, Object> cartSettings = new HashMap<>();
-        List<Map<String, Object>> items = new ArrayList<>();
-
-        if (req.getItems() != null && !req.getItems().isEmpty()) {
-            for (CartItemDTO item : req.getItems()) {
-                Map<String, Object> itemMap = new HashMap<>();
-                itemMap.put("name", item.getName() != null ? item.getName() : "Item");
-                itemMap.put("amount", item.getAmount());
-                itemMap.put("default_quantity", item.getDefaultQuantity() != null ? item.getDefaultQuantity() : 1);
-                items.add(itemMap);
-            }
-        } else if (req.getAmount() != null) {
-            // Fallback: item único
-            Map<String, Object> defaultItem = new HashMap<>();
-            defaultItem.put("name", "Pagamento");
-            defaultItem.put("amount", req.getAmount());
-            defaultItem.put("default_quantity", 1);
-            items.add(defaultItem);
+    private Filial validateBatchRow(CreatePaymentRequest req) {
+        Filial filial = findFilial(req);
+        if (PaymentLinkPayloadWriter.calculateTotalAmount(req) <= 0) {
+            throw new IllegalArgumentException("Valor do link deve ser maior que zero");
         }
-
-        cartSettings.put("items", items);
-        return cartSettings;
-    }
-
-    private Map<String, Object> buildSplitSettings(List<SplitInputDTO> splitList) {
-        Map<String, Object> splitSettings = new HashMap<>();
-        List<Map<String, Object>> rules = new ArrayList<>();
-
-        for (SplitInputDTO split : splitList) {
-            Map<String, Object> rule = new HashMap<>();
-
-            // Usa o type do split (percentage ou flat)
-            String splitType = split.getType() != null ? split.getType() : "percentage";
-            rule.put("type", splitType);
-            rule.put("amount", split.getAmount());
-            rule.put("recipient_id", split.getRecipientId());
-
-            // Options
-            Map<String, Object> options = new HashMap<>();
-            boolean isLiable = split.getLiable() != null && split.getLiable();
-            options.put("liable", isLiable);
-            options.put("charge_processing_fee", isLiable);
-            options.put("charge_remainder_fee", isLiable);
-
-            rule.put("options", options);
-            rules.add(rule);
+        if (req.getSplit() != null) {
+            req.getSplit().forEach(SplitInputDTO::validate);
         }
-
-        splitSettings.put("rules", rules);
-        return splitSettings;
+        validateSplit(req);
+        return filial;
     }
 
-    private int calculateTotalAmount(CreatePaymentRequest req) {
-        if (req.getAmount() != null) {
-            return req.getAmount();
-        }
-
-        if (req.getItems() != null && !req.getItems().isEmpty()) {
-            return req.getItems().stream()
-                    .mapToInt(item -> {
-                        int amount = item.getAmount() != null ? item.getAmount() : 0;
-                        int qty = item.getDefaultQuantity() != null ? item.getDefaultQuantity() : 1;
-                        return amount * qty;
-                    })
-                    .sum();
-        }
-
-        return 0;
-    }
-    private String getSecretKeyByFilialId(String filialId) {
-        FiliaisConfig.FilialConfig filial = null;
-        switch (filialId.toLowerCase()) {
-            case "brauna":
-                filial = filiaisConfig.getBrauna();
-                break;
-            case "minasgerais":
-            case "minas-gerais":
-                filial = filiaisConfig.getMinasGerais();
-                break;
+    private static final class BatchRow {
+        final long index;
+        final CreatePaymentRequest request;
+        final Filial filial;
+        final String error;
+
+        BatchRow(long index, CreatePaymentRequest request, Filial filial, String error) {
+            this.index = index;
+            this.request = request;
+            this.filial = filial;
+            this.error = error;
         }
-        return (filial != null) ? filial.getSecretKey() : null;
     }
 }
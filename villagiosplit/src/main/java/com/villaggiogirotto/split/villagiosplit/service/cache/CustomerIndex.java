@@ -0,0 +1,297 @@
+package com.villaggiogirotto.split.villagiosplit.service.cache;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.villaggiogirotto.split.villagiosplit.config.CustomerIndexConfig;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice local, por filial, de documento, e-mail e código → ID do cliente na Pagar.me.
+ *
+ * É alimentado pelas respostas de criação, atualização e listagem de clientes
+ * (e pela varredura do {@link CustomerIndexWarmer}), para achar um cliente pelo
+ * CPF sem ir à API e evitar cadastros duplicados.
+ *
+ * CPF/CNPJ viram um long (dígitos + quantidade de dígitos) num {@link LongStringMap};
+ * e-mails e códigos ficam em mapas de String. O ID de cada cliente é uma única
+ * instância compartilhada pelos três mapas.
+ */
+@Component
+public class CustomerIndex {
+
+    private final CustomerIndexConfig config;
+    private final JsonFactory jsonFactory;
+    private final Map<String, FilialIndex> filiais = new ConcurrentHashMap<>();
+
+    public CustomerIndex(CustomerIndexConfig config, ObjectMapper objectMapper) {
+        this.config = config;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Procura o cliente pelo documento, depois e-mail, depois código.
+     *
+     * @return o ID do cliente na Pagar.me, ou null se não estiver no índice
+     */
+    public String find(String filialId, String document, String email, String code) {
+        FilialIndex index = filiais.get(filialId);
+        if (index == null) {
+            return null;
+        }
+        return index.find(document, email, code);
+    }
+
+    /**
+     * Indexa um cliente retornado por POST/PUT /customers
+     */
+    public void index(String filialId, JsonNode customer) {
+        if (!config.isEnabled() || customer == null) {
+            return;
+        }
+        index(filialId, text(customer, "id"), text(customer, "document"), text(customer, "email"), text(customer, "code"));
+    }
+
+    /**
+     * Indexa os clientes de uma resposta de GET /customers ({"data":[...]}), lida em streaming
+     *
+     * @return quantidade de clientes na página
+     */
+    public int indexList(String filialId, byte[] body) {
+        if (!config.isEnabled()) {
+            return 0;
+        }
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return 0;
+            }
+            int count = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY && "data".equals(field)) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        readCustomer(filialId, parser);
+                        count++;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return count;
+        } catch (IOException ex) {
+            return 0; // Resposta fora do formato esperado: só não indexa
+        }
+    }
+
+    public int size(String filialId) {
+        FilialIndex index = filiais.get(filialId);
+        return index != null ? index.size() : 0;
+    }
+
+    public void clear(String filialId) {
+        filiais.remove(filialId);
+    }
+
+    private void readCustomer(String filialId, JsonParser parser) throws IOException {
+        String id = null;
+        String document = null;
+        String email = null;
+        String code = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (!value.isScalarValue()) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    id = parser.getValueAsString();
+                    break;
+                case "document":
+                    document = parser.getValueAsString();
+                    break;
+                case "email":
+                    email = parser.getValueAsString();
+                    break;
+                case "code":
+                    code = parser.getValueAsString();
+                    break;
+                default:
+                    break;
+            }
+        }
+        index(filialId, id, document, email, code);
+    }
+
+    private void index(String filialId, String id, String document, String email, String code) {
+        if (id == null || id.isEmpty()) {
+            return;
+        }
+        filiais.computeIfAbsent(filialId, key -> new FilialIndex()).put(id, document, email, code);
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value != null && value.isValueNode() && !value.isNull() ? value.asText() : null;
+    }
+
+    /**
+     * CPF/CNPJ como long: os dígitos seguidos da quantidade de dígitos, para que
+     * zeros à esquerda não colidam ("0123" ≠ "123"). Retorna 0 se não couber
+     * (documento vazio, com letras ou com mais de 15 dígitos, ex.: passaporte).
+     */
+    static long documentKey(String document) {
+        if (document == null) {
+            return 0;
+        }
+        long value = 0;
+        int digits = 0;
+        for (int i = 0; i < document.length(); i++) {
+            char c = document.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 15) {
+                    return 0;
+                }
+                value = value * 10 + (c - '0');
+            } else if (c != '.' && c != '-' && c != '/' && c != ' ') {
+                return 0;
+            }
+        }
+        return digits == 0 ? 0 : (value << 4) | digits;
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static String normalizeEmail(String email) {
+        String normalized = normalize(email);
+        return normalized != null ? normalized.toLowerCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * Índice de uma filial. Leituras em paralelo; escritas exclusivas.
+     */
+    private static final class FilialIndex {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final LongStringMap documents = new LongStringMap();
+        private final Map<String, String> otherDocuments = new HashMap<>(); // Passaporte e afins
+        private final Map<String, String> emails = new HashMap<>();
+        private final Map<String, String> codes = new HashMap<>();
+        private final Map<String, Entry> byId = new HashMap<>(); // Para desfazer chaves antigas numa atualização
+
+        String find(String document, String email, String code) {
+            long documentKey = documentKey(document);
+            String otherDocument = documentKey == 0 ? normalize(document) : null;
+            String emailKey = normalizeEmail(email);
+            String codeKey = normalize(code);
+
+            lock.readLock().lock();
+            try {
+                String id = null;
+                if (documentKey != 0) {
+                    id = documents.get(documentKey);
+                } else if (otherDocument != null) {
+                    id = otherDocuments.get(otherDocument);
+                }
+                if (id == null && emailKey != null) {
+                    id = emails.get(emailKey);
+                }
+                if (id == null && codeKey != null) {
+                    id = codes.get(codeKey);
+                }
+                return id;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void put(String id, String document, String email, String code) {
+            long documentKey = documentKey(document);
+            String otherDocument = documentKey == 0 ? normalize(document) : null;
+            String emailKey = normalizeEmail(email);
+            String codeKey = normalize(code);
+
+            lock.writeLock().lock();
+            try {
+                Entry previous = byId.get(id);
+                if (previous != null) {
+                    id = previous.id; // Reaproveita a instância já guardada
+                    remove(previous);
+                }
+
+                if (documentKey != 0) {
+                    documents.put(documentKey, id);
+                } else if (otherDocument != null) {
+                    otherDocuments.put(otherDocument, id);
+                }
+                if (emailKey != null) {
+                    emails.put(emailKey, id);
+                }
+                if (codeKey != null) {
+                    codes.put(codeKey, id);
+                }
+                byId.put(id, new Entry(id, documentKey, otherDocument, emailKey, codeKey));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return byId.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void remove(Entry entry) {
+            // Só remove se a chave ainda aponta para este cliente
+            if (entry.documentKey != 0 && entry.id.equals(documents.get(entry.documentKey))) {
+                documents.remove(entry.documentKey);
+            }
+            if (entry.otherDocument != null) {
+                otherDocuments.remove(entry.otherDocument, entry.id);
+            }
+            if (entry.email != null) {
+                emails.remove(entry.email, entry.id);
+            }
+            if (entry.code != null) {
+                codes.remove(entry.code, entry.id);
+            }
+        }
+    }
+
+    private static final class Entry {
+        final String id;
+        final long documentKey;
+        final String otherDocument;
+        final String email;
+        final String code;
+
+        Entry(String id, long documentKey, String otherDocument, String email, String code) {
+            this.id = id;
+            this.documentKey = documentKey;
+            this.otherDocument = otherDocument;
+            this.email = email;
+            this.code = code;
+        }
+    }
+}
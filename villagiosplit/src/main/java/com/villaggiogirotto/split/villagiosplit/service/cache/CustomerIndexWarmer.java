@@ -0,0 +1,70 @@
+package com.villaggiogirotto.split.villagiosplit.service.cache;
+
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeClient;
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeRateLimiter;
+import com.villaggiogirotto.split.villagiosplit.config.CustomerIndexConfig;
+import com.villaggiogirotto.split.villagiosplit.config.Filial;
+import com.villaggiogirotto.split.villagiosplit.config.FilialRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Aquece o {@link CustomerIndex} varrendo GET /customers de cada filial, página
+ * a página e uma filial por vez, em segundo plano depois que a aplicação sobe.
+ */
+@Component
+public class CustomerIndexWarmer {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerIndexWarmer.class);
+
+    private final CustomerIndex customerIndex;
+    private final CustomerIndexConfig config;
+    private final FilialRegistry filialRegistry;
+
+    public CustomerIndexWarmer(CustomerIndex customerIndex, CustomerIndexConfig config, FilialRegistry filialRegistry) {
+        this.customerIndex = customerIndex;
+        this.config = config;
+        this.filialRegistry = filialRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmup() {
+        if (!config.isEnabled() || !config.isWarmup()) {
+            return;
+        }
+        Flux.fromIterable(filialRegistry.getFiliais())
+                .filter(Filial::hasSecretKey)
+                .delaySubscription(config.getWarmupDelay())
+                .concatMap(this::scan)
+                .subscribe();
+    }
+
+    /**
+     * Lê as páginas da filial até a primeira incompleta (ou o teto de páginas)
+     *
+     * @return quantidade de clientes lidos
+     */
+    public Mono<Integer> scan(Filial filial) {
+        PagarmeClient client = filial.getClient();
+        int size = config.getWarmupPageSize();
+
+        return Flux.range(1, config.getWarmupMaxPages())
+                .concatMap(page -> client.getBytes("/customers?page=" + page + "&size=" + size)
+                        .map(body -> customerIndex.indexList(filial.getId(), body))
+                        .defaultIfEmpty(0))
+                .takeUntil(count -> count < size)
+                .reduce(0, Integer::sum)
+                .contextWrite(PagarmeRateLimiter.batch())
+                .doOnNext(total -> log.info("Índice de clientes da filial {} aquecido: {} clientes lidos, {} indexados",
+                        filial.getId(), total, customerIndex.size(filial.getId())))
+                .onErrorResume(ex -> {
+                    log.warn("Falha ao aquecer o índice de clientes da filial {}: {}", filial.getId(), ex.getMessage());
+                    return Mono.just(0);
+                });
+    }
+}
@@ -0,0 +1,209 @@
+package com.villaggiogirotto.split.villagiosplit.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.villaggiogirotto.split.villagiosplit.config.CustomerCacheConfig;
+import com.villaggiogirotto.split.villagiosplit.controller.requests.CreateCustomerRequest;
+import com.villaggiogirotto.split.villagiosplit.controller.requests.ListCustomersRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Cache das respostas de GET /customers da Pagar.me, por filial e consulta.
+ *
+ * Guarda os bytes da resposta como vieram da API, o que serve tanto a listagem
+ * normal (que decodifica) quanto o modo passthrough (que repassa os bytes).
+ * O peso de cada entrada é o tamanho da resposta, então o limite é em memória,
+ * não em número de páginas. As estatísticas ficam no Micrometer como
+ * "cache.*{cache=pagarme.customers.list}".
+ *
+ * Criar ou atualizar um cliente remove só as consultas da mesma filial que
+ * podem ter mudado: as que não filtram nada, as cujos filtros casam com os
+ * dados do cliente e as que já continham o cliente atualizado.
+ */
+@Component
+public class CustomerListCache {
+
+    public static final String CACHE_NAME = "pagarme.customers.list";
+
+    private static final int KEY_OVERHEAD = 128; // Estimativa do custo da chave e da entrada
+
+    private final CustomerCacheConfig config;
+    private final Cache<Key, byte[]> cache;
+
+    public CustomerListCache(CustomerCacheConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(config.getTtl())
+                .maximumWeight(config.getMaxWeightBytes())
+                .weigher((Key key, byte[] body) -> body.length + KEY_OVERHEAD)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Chave normalizada da consulta: filtros vazios viram null, e-mail sem maiúsculas
+     * e paginação com os mesmos padrões de {@link ListCustomersRequest}.
+     */
+    public static Key key(String filialId, ListCustomersRequest req) {
+        return new Key(
+                filialId,
+                normalize(req.getName()),
+                normalize(req.getDocument()),
+                lowerCase(normalize(req.getEmail())),
+                normalize(req.getGender()),
+                normalize(req.getCode()),
+                req.getPage() != null ? req.getPage() : 1,
+                req.getSize() != null ? req.getSize() : 10
+        );
+    }
+
+    /**
+     * @return os bytes da resposta em cache, ou null
+     */
+    public byte[] get(Key key) {
+        if (!config.isEnabled()) {
+            return null;
+        }
+        return cache.getIfPresent(key);
+    }
+
+    public void put(Key key, byte[] body) {
+        if (config.isEnabled() && body.length <= config.getMaxEntryBytes()) {
+            cache.put(key, body);
+        }
+    }
+
+    /**
+     * Repassa os buffers da resposta e, ao final, guarda uma cópia no cache e a
+     * entrega ao listener. Se a resposta passar de maxEntryBytes a cópia é abandonada.
+     */
+    public Flux<DataBuffer> recording(Key key, Flux<DataBuffer> body, Consumer<byte[]> listener) {
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        boolean[] overflow = new boolean[1];
+        return body
+                .doOnNext(buffer -> {
+                    int length = buffer.readableByteCount();
+                    if (overflow[0] || copy.size() + length > config.getMaxEntryBytes()) {
+                        overflow[0] = true;
+                        return;
+                    }
+                    // Copia sem consumir o buffer, que ainda vai ser escrito na resposta
+                    int position = buffer.readPosition();
+                    byte[] chunk = new byte[length];
+                    buffer.read(chunk);
+                    buffer.readPosition(position);
+                    copy.write(chunk, 0, length);
+                })
+                .doOnComplete(() -> {
+                    if (!overflow[0]) {
+                        byte[] bytes = copy.toByteArray();
+                        put(key, bytes);
+                        listener.accept(bytes);
+                    }
+                });
+    }
+
+    /**
+     * Remove as consultas da filial que podem ter sido afetadas pela criação
+     * ou atualização do cliente.
+     *
+     * @param customerId ID do cliente atualizado (null na criação)
+     */
+    public void invalidate(String filialId, CreateCustomerRequest customer, String customerId) {
+        byte[] idBytes = customerId != null && !customerId.isEmpty()
+                ? ("\"" + customerId + "\"").getBytes(StandardCharsets.UTF_8)
+                : null;
+
+        cache.asMap().entrySet().removeIf(entry -> {
+            Key key = entry.getKey();
+            if (!key.getFilialId().equals(filialId)) {
+                return false;
+            }
+            return key.mayMatch(customer) || (idBytes != null && contains(entry.getValue(), idBytes));
+        });
+    }
+
+    /**
+     * Remove todas as consultas da filial (ex.: a filial passou a usar outra conta Pagar.me)
+     */
+    public void invalidateFilial(String filialId) {
+        cache.asMap().keySet().removeIf(key -> key.getFilialId().equals(filialId));
+    }
+
+    @Value
+    public static class Key {
+        String filialId;
+        String name;
+        String document;
+        String email;
+        String gender;
+        String code;
+        int page;
+        int size;
+
+        /**
+         * Se o cliente pode aparecer nesta consulta. Filtro sem valor correspondente
+         * no cliente conta como possível (na dúvida, invalida).
+         */
+        boolean mayMatch(CreateCustomerRequest customer) {
+            if (name != null && customer.getName() != null
+                    && !customer.getName().toLowerCase(Locale.ROOT).contains(name.toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+            if (document != null && customer.getDocument() != null
+                    && !digits(document).equals(digits(customer.getDocument()))) {
+                return false;
+            }
+            if (email != null && customer.getEmail() != null && !email.equalsIgnoreCase(customer.getEmail().trim())) {
+                return false;
+            }
+            if (gender != null && customer.getGender() != null && !gender.equalsIgnoreCase(customer.getGender())) {
+                return false;
+            }
+            if (code != null && customer.getCode() != null && !code.equals(customer.getCode().trim())) {
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static String lowerCase(String value) {
+        return value != null ? value.toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static String digits(String value) {
+        return value.replaceAll("[^0-9]", "");
+    }
+
+    private static boolean contains(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
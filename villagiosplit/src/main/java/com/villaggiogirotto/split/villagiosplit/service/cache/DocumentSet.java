@@ -0,0 +1,111 @@
+package com.villaggiogirotto.split.villagiosplit.service.cache;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Documentos (CPF/CNPJ) já vistos por filial, para deduplicar uma importação
+ * em andamento.
+ *
+ * CPF/CNPJ ficam como long num conjunto de endereçamento aberto (mesma chave
+ * do {@link CustomerIndex}). A tabela fica no máximo meio cheia e dobra ao
+ * encher, então cada documento custa de 16 a 32 bytes, em vez dos ~100 de um
+ * HashSet&lt;String&gt;; só documentos que não cabem num long (passaporte)
+ * vão para um Set de String. Não encolhe: cresce com os documentos distintos
+ * registrados. Não é thread-safe.
+ */
+public final class DocumentSet {
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private final Map<String, long[]> keysByFilial = new HashMap<>();
+    private final Map<String, Integer> sizes = new HashMap<>();
+    private final Set<String> otherDocuments = new HashSet<>();
+
+    /**
+     * Registra o documento na filial.
+     *
+     * @return false se o documento já tinha sido visto nessa filial
+     */
+    public boolean add(String filialId, String document) {
+        long key = CustomerIndex.documentKey(document);
+        if (key == 0) {
+            return otherDocuments.add(filialId + '\u0000' + document.trim().toUpperCase(Locale.ROOT));
+        }
+
+        long[] keys = keysByFilial.computeIfAbsent(filialId, id -> new long[MIN_CAPACITY]);
+        int size = sizes.getOrDefault(filialId, 0);
+        if ((size + 1) * 2 > keys.length) {
+            keys = resize(keys);
+            keysByFilial.put(filialId, keys);
+        }
+        if (!insert(keys, key)) {
+            return false;
+        }
+        sizes.put(filialId, size + 1);
+        return true;
+    }
+
+    /**
+     * @return true se o documento já foi registrado nessa filial
+     */
+    public boolean contains(String filialId, String document) {
+        long key = CustomerIndex.documentKey(document);
+        if (key == 0) {
+            return otherDocuments.contains(filialId + '\u0000' + document.trim().toUpperCase(Locale.ROOT));
+        }
+
+        long[] keys = keysByFilial.get(filialId);
+        if (keys == null) {
+            return false;
+        }
+        int mask = keys.length - 1;
+        int index = slot(key, mask);
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        int total = otherDocuments.size();
+        for (int size : sizes.values()) {
+            total += size;
+        }
+        return total;
+    }
+
+    private static boolean insert(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int index = slot(key, mask);
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        return true;
+    }
+
+    private static long[] resize(long[] oldKeys) {
+        long[] keys = new long[oldKeys.length * 2];
+        for (long key : oldKeys) {
+            if (key != 0) {
+                insert(keys, key);
+            }
+        }
+        return keys;
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,111 @@
+package com.villaggiogirotto.split.villagiosplit.service.cache;
+
+/**
+ * Mapa long → String com endereçamento aberto (sondagem linear), sem boxing.
+ *
+ * Cada entrada custa um long e uma referência, contra os ~80 bytes de um
+ * HashMap&lt;Long, String&gt;. A chave 0 é reservada para "vazio".
+ * Não é thread-safe; quem usa sincroniza por fora.
+ */
+final class LongStringMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private String[] values;
+    private int size;
+    private int mask;
+
+    LongStringMap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    String get(long key) {
+        int index = indexOf(key);
+        return index >= 0 ? values[index] : null;
+    }
+
+    void put(long key, String value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Chave 0 é reservada");
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int index = slot(key);
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+
+    void remove(long key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return;
+        }
+        // Remoção com deslocamento para trás: mantém as sondagens sem lápides
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (keys[next] != 0) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = 0;
+        values[hole] = null;
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        allocate(MIN_CAPACITY);
+    }
+
+    private int indexOf(long key) {
+        int index = slot(key);
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        String[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new String[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+}
@@ -0,0 +1,256 @@
+package com.villaggiogirotto.split.villagiosplit.service.idempotency;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.villaggiogirotto.split.villagiosplit.config.IdempotencyConfig;
+import com.villaggiogirotto.split.villagiosplit.dto.OrderSummaryDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Guarda o resultado de POST /orders por chave de idempotência, por filial.
+ *
+ * A primeira requisição com uma chave chama a Pagar.me; repetições recebem o
+ * resultado guardado e duplicatas simultâneas aguardam o mesmo CompletableFuture,
+ * sem uma segunda chamada. Falhas não ficam guardadas, então o cliente pode tentar
+ * de novo. Reusar a chave com outro pedido (outra impressão digital) é rejeitado.
+ *
+ * Com orders.idempotency.file, cada resultado é acrescentado numa linha JSON e
+ * o arquivo é relido (e compactado) ao subir. O pedido completo da Pagar.me
+ * (?include=order) não vai para o arquivo, só o resumo; quem precisa dele numa
+ * repetição relê o pedido. A impressão digital não inclui os dados do cartão.
+ *
+ * A chamada roda com o Reactor Context de quem a disparou (ex.: a prioridade de
+ * lote do {@code PagarmeRateLimiter}); duplicatas simultâneas aguardam essa mesma chamada.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private final IdempotencyConfig config;
+    private final ObjectMapper objectMapper;
+    private final AsyncCache<String, StoredOrder> cache;
+    private final ExecutorService fileExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "orders-idempotency");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private BufferedWriter writer;
+
+    public IdempotencyStore(IdempotencyConfig config, ObjectMapper objectMapper) {
+        this.config = config;
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxEntries())
+                .expireAfter(new Expiry<String, StoredOrder>() {
+                    @Override
+                    public long expireAfterCreate(String key, StoredOrder value, long currentTime) {
+                        return remainingNanos(value);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, StoredOrder value, long currentTime, long currentDuration) {
+                        return remainingNanos(value);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, StoredOrder value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .buildAsync();
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Path file = getFile();
+        if (file == null) {
+            return;
+        }
+        if (Files.exists(file)) {
+            load(file);
+        } else if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        fileExecutor.shutdown();
+        try {
+            fileExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * Se o code do pedido serve de chave quando não há header Idempotency-Key
+     */
+    public boolean isCodeAsKey() {
+        return config.isCodeAsKey();
+    }
+
+    /**
+     * Executa a chamada uma única vez por chave dentro do TTL.
+     *
+     * @param fingerprint impressão digital do pedido; a mesma chave com outro pedido gera erro
+     * @param call        chamada à Pagar.me, feita só pela primeira requisição
+     */
+    public Mono<OrderSummaryDTO> execute(String filialId, String key, String fingerprint,
+                                         Supplier<Mono<OrderSummaryDTO>> call) {
+        String cacheKey = filialId + ":" + key;
+
+        return Mono.deferContextual(context -> {
+            CompletableFuture<StoredOrder> result = cache.get(cacheKey, (k, executor) -> {
+                // toFuture() assina sem Context: repassa o de quem chamou
+                CompletableFuture<StoredOrder> future = call.get()
+                        .map(summary -> new StoredOrder(fingerprint, Instant.now(), summary))
+                        .contextWrite(context)
+                        .toFuture();
+                future.thenAccept(stored -> {
+                    if (stored != null) {
+                        append(k, stored);
+                    }
+                });
+                return future;
+            });
+
+            // O pedido segue mesmo se quem chamou desistir: uma nova tentativa vai aguardar este resultado
+            return Mono.fromFuture(result, true);
+        }).flatMap(stored -> {
+            if (!stored.fingerprint.equals(fingerprint)) {
+                return Mono.error(new IllegalArgumentException(
+                        "Idempotency-Key já utilizada com outro pedido: " + key));
+            }
+            return Mono.just(stored.summary);
+        });
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    private Path getFile() {
+        String file = config.getFile();
+        return (!config.isEnabled() || file == null || file.isBlank()) ? null : Path.of(file).toAbsolutePath();
+    }
+
+    private long remainingNanos(StoredOrder value) {
+        Duration age = Duration.between(value.storedAt, Instant.now());
+        return Math.max(0, config.getTtl().minus(age).toNanos());
+    }
+
+    private void append(String key, StoredOrder stored) {
+        if (writer == null) {
+            return;
+        }
+        fileExecutor.execute(() -> {
+            try {
+                writer.write(toLine(key, stored));
+                writer.newLine();
+                writer.flush();
+            } catch (IOException ex) {
+                log.error("Falha ao gravar chave de idempotência {}: {}", key, ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Relê o arquivo, descarta o que já expirou e o reescreve só com as chaves vivas
+     */
+    private void load(Path file) throws IOException {
+        Map<String, StoredOrder> live = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    JsonNode node = objectMapper.readTree(line);
+                    StoredOrder stored = new StoredOrder(
+                            node.path("fingerprint").asText(),
+                            Instant.ofEpochMilli(node.path("storedAt").asLong()),
+                            objectMapper.treeToValue(node.path("summary"), OrderSummaryDTO.class));
+                    if (remainingNanos(stored) > 0) {
+                        live.put(node.path("key").asText(), stored);
+                    }
+                } catch (IOException ex) {
+                    log.warn("Linha inválida no arquivo de idempotência ignorada: {}", ex.getMessage());
+                }
+            }
+        }
+
+        Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, StoredOrder> entry : live.entrySet()) {
+                cache.put(entry.getKey(), CompletableFuture.completedFuture(entry.getValue()));
+                out.write(toLine(entry.getKey(), entry.getValue()));
+                out.newLine();
+            }
+        }
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("{} chaves de idempotência carregadas de {}", live.size(), file);
+    }
+
+    private String toLine(String key, StoredOrder stored) throws IOException {
+        ObjectNode summary = objectMapper.valueToTree(stored.summary);
+        summary.remove("order");
+
+        ObjectNode line = objectMapper.createObjectNode();
+        line.put("key", key);
+        line.put("fingerprint", stored.fingerprint);
+        line.put("storedAt", stored.storedAt.toEpochMilli());
+        line.set("summary", summary);
+        return objectMapper.writeValueAsString(line);
+    }
+
+    private static final class StoredOrder {
+        final String fingerprint;
+        final Instant storedAt;
+        final OrderSummaryDTO summary;
+
+        StoredOrder(String fingerprint, Instant storedAt, OrderSummaryDTO summary) {
+            this.fingerprint = fingerprint;
+            this.storedAt = storedAt;
+            this.summary = summary;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.villaggiogirotto.split.villagiosplit.service.payload;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Uma página de GET /customers já convertida em NDJSON.
+ *
+ * Os clientes do array "data" não são decodificados: o parser só localiza
+ * o início e o fim de cada objeto, e os bytes originais são copiados como
+ * estão, um por linha. paging.total é lido de passagem.
+ */
+public final class CustomerPage {
+
+    private static final int NEWLINE = '\n';
+
+    private final byte[] lines;
+    private final int count;
+    private final long total;
+
+    private CustomerPage(byte[] lines, int count, long total) {
+        this.lines = lines;
+        this.count = count;
+        this.total = total;
+    }
+
+    /**
+     * Um cliente por linha, cada linha terminada em '\n'
+     */
+    public byte[] getLines() {
+        return lines;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Total de clientes informado em paging.total, ou -1 se a resposta não trouxer
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public static CustomerPage parse(JsonFactory jsonFactory, byte[] body) {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(body.length);
+        int count = 0;
+        long total = -1;
+
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalStateException("Resposta inesperada da Pagar.me ao listar clientes");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.START_ARRAY && "data".equals(field)) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        int start = (int) parser.currentTokenLocation().getByteOffset();
+                        parser.skipChildren();
+                        int end = (int) parser.currentLocation().getByteOffset();
+                        lines.write(body, start, end - start);
+                        lines.write(NEWLINE);
+                        count++;
+                    }
+                } else if (value == JsonToken.START_OBJECT && "paging".equals(field)) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String pagingField = parser.currentName();
+                        if (parser.nextToken() == JsonToken.VALUE_NUMBER_INT && "total".equals(pagingField)) {
+                            total = parser.getLongValue();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return new CustomerPage(lines.toByteArray(), count, total);
+    }
+}
@@ -0,0 +1,405 @@
+package com.villaggiogirotto.split.villagiosplit.service.payload;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.villaggiogirotto.split.villagiosplit.controller.requests.CreateOrderRequest;
+import com.villaggiogirotto.split.villagiosplit.dto.*;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Escreve o corpo de POST /orders direto de um {@link CreateOrderRequest} para bytes.
+ *
+ * Mesmo conteúdo que o antigo buildOrderPayload gerava com HashMaps,
+ * sem a árvore intermediária.
+ */
+@Component
+public class OrderPayloadWriter extends PayloadWriter<CreateOrderRequest> {
+
+    private static final SerializedString CODE = new SerializedString("code");
+    private static final SerializedString ITEMS = new SerializedString("items");
+    private static final SerializedString AMOUNT = new SerializedString("amount");
+    private static final SerializedString DESCRIPTION = new SerializedString("description");
+    private static final SerializedString QUANTITY = new SerializedString("quantity");
+    private static final SerializedString CUSTOMER = new SerializedString("customer");
+    private static final SerializedString CUSTOMER_ID = new SerializedString("customer_id");
+    private static final SerializedString NAME = new SerializedString("name");
+    private static final SerializedString EMAIL = new SerializedString("email");
+    private static final SerializedString DOCUMENT = new SerializedString("document");
+    private static final SerializedString TYPE = new SerializedString("type");
+    private static final SerializedString DOCUMENT_TYPE = new SerializedString("document_type");
+    private static final SerializedString GENDER = new SerializedString("gender");
+    private static final SerializedString BIRTHDATE = new SerializedString("birthdate");
+    private static final SerializedString ADDRESS = new SerializedString("address");
+    private static final SerializedString PHONES = new SerializedString("phones");
+    private static final SerializedString METADATA = new SerializedString("metadata");
+    private static final SerializedString COUNTRY = new SerializedString("country");
+    private static final SerializedString STATE = new SerializedString("state");
+    private static final SerializedString CITY = new SerializedString("city");
+    private static final SerializedString ZIP_CODE = new SerializedString("zip_code");
+    private static final SerializedString LINE_1 = new SerializedString("line_1");
+    private static final SerializedString LINE_2 = new SerializedString("line_2");
+    private static final SerializedString PAYMENTS = new SerializedString("payments");
+    private static final SerializedString PAYMENT_METHOD = new SerializedString("payment_method");
+    private static final SerializedString CREDIT_CARD = new SerializedString("credit_card");
+    private static final SerializedString PIX = new SerializedString("pix");
+    private static final SerializedString BOLETO = new SerializedString("boleto");
+    private static final SerializedString DEBIT_CARD = new SerializedString("debit_card");
+    private static final SerializedString OPERATION_TYPE = new SerializedString("operation_type");
+    private static final SerializedString INSTALLMENTS = new SerializedString("installments");
+    private static final SerializedString STATEMENT_DESCRIPTOR = new SerializedString("statement_descriptor");
+    private static final SerializedString CARD_ID = new SerializedString("card_id");
+    private static final SerializedString CARD_TOKEN = new SerializedString("card_token");
+    private static final SerializedString CARD = new SerializedString("card");
+    private static final SerializedString NUMBER = new SerializedString("number");
+    private static final SerializedString HOLDER_NAME = new SerializedString("holder_name");
+    private static final SerializedString EXP_MONTH = new SerializedString("exp_month");
+    private static final SerializedString EXP_YEAR = new SerializedString("exp_year");
+    private static final SerializedString CVV = new SerializedString("cvv");
+    private static final SerializedString BILLING_ADDRESS = new SerializedString("billing_address");
+    private static final SerializedString EXPIRES_IN = new SerializedString("expires_in");
+    private static final SerializedString INSTRUCTIONS = new SerializedString("instructions");
+    private static final SerializedString DUE_AT = new SerializedString("due_at");
+    private static final SerializedString SPLIT = new SerializedString("split");
+    private static final SerializedString RECIPIENT_ID = new SerializedString("recipient_id");
+    private static final SerializedString OPTIONS = new SerializedString("options");
+    private static final SerializedString LIABLE = new SerializedString("liable");
+    private static final SerializedString CHARGE_PROCESSING_FEE = new SerializedString("charge_processing_fee");
+    private static final SerializedString CHARGE_REMAINDER_FEE = new SerializedString("charge_remainder_fee");
+    private static final SerializedString CLOSED = new SerializedString("closed");
+    private static final SerializedString SHIPPING = new SerializedString("shipping");
+    private static final SerializedString RECIPIENT_NAME = new SerializedString("recipient_name");
+    private static final SerializedString RECIPIENT_PHONE = new SerializedString("recipient_phone");
+
+    // Default: 24 horas
+    public static final int DEFAULT_PIX_EXPIRES_IN = 86400;
+
+    public OrderPayloadWriter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    protected void writePayload(JsonGenerator gen, CreateOrderRequest req) throws IOException {
+        gen.writeStartObject();
+
+        // Code (opcional - identificador no seu sistema)
+        if (req.getCode() != null && !req.getCode().isEmpty()) {
+            writeString(gen, CODE, req.getCode());
+        }
+
+        // Items (obrigatório)
+        writeItems(gen, req.getItems(), req.getAmount());
+
+        // Customer (obrigatório se customer_id não for informado)
+        if (req.getCustomer() != null) {
+            writeCustomer(gen, req.getCustomer());
+        } else if (req.getCustomerId() != null && !req.getCustomerId().isEmpty()) {
+            writeString(gen, CUSTOMER_ID, req.getCustomerId());
+        } else {
+            throw new IllegalArgumentException("Customer ou customer_id deve ser informado");
+        }
+
+        // Payments (obrigatório)
+        writePayments(gen, req);
+
+        // Split (opcional)
+        if (req.getSplit() != null && !req.getSplit().isEmpty()) {
+            writeSplit(gen, req.getSplit());
+        }
+
+        // Closed (default: true)
+        writeBoolean(gen, CLOSED, req.getClosed() != null ? req.getClosed() : true);
+
+        // Shipping (opcional)
+        if (req.getShipping() != null) {
+            writeShipping(gen, req.getShipping());
+        }
+
+        // Metadata (opcional)
+        if (req.getMetadata() != null) {
+            writeValue(gen, METADATA, req.getMetadata());
+        }
+
+        gen.writeEndObject();
+    }
+
+    private void writeItems(JsonGenerator gen, List<CartItemDTO> items, Integer totalAmount) throws IOException {
+        if ((items == null || items.isEmpty()) && totalAmount == null) {
+            throw new IllegalArgumentException("Items ou amount deve ser informado");
+        }
+
+        gen.writeFieldName(ITEMS);
+        gen.writeStartArray();
+
+        if (items != null && !items.isEmpty()) {
+            for (CartItemDTO item : items) {
+                gen.writeStartObject();
+                writeNumber(gen, AMOUNT, item.getAmount());
+                writeString(gen, DESCRIPTION, item.getDescription() != null ? item.getDescription() : item.getName());
+                writeNumber(gen, QUANTITY, item.getDefaultQuantity() != null ? item.getDefaultQuantity() : 1);
+                writeString(gen, CODE, item.getCode() != null ? item.getCode() : UUID.randomUUID().toString());
+                gen.writeEndObject();
+            }
+        } else {
+            // Fallback: item único
+            gen.writeStartObject();
+            writeNumber(gen, AMOUNT, totalAmount);
+            writeString(gen, DESCRIPTION, "Pagamento");
+            writeNumber(gen, QUANTITY, 1);
+            writeString(gen, CODE, "item-1");
+            gen.writeEndObject();
+        }
+
+        gen.writeEndArray();
+    }
+
+    private void writeCustomer(JsonGenerator gen, CustomerDTO customer) throws IOException {
+        gen.writeFieldName(CUSTOMER);
+        gen.writeStartObject();
+
+        writeString(gen, NAME, customer.getName());
+
+        if (customer.getEmail() != null) {
+            writeString(gen, EMAIL, customer.getEmail());
+        }
+
+        if (customer.getDocument() != null) {
+            writeString(gen, DOCUMENT, customer.getDocument());
+            writeString(gen, TYPE, customer.getType() != null ? customer.getType() : "individual");
+            writeString(gen, DOCUMENT_TYPE, customer.getDocumentType() != null ? customer.getDocumentType() : "CPF");
+        }
+
+        if (customer.getCode() != null) {
+            writeString(gen, CODE, customer.getCode());
+        }
+
+        if (customer.getGender() != null) {
+            writeString(gen, GENDER, customer.getGender());
+        }
+
+        if (customer.getBirthdate() != null) {
+            writeString(gen, BIRTHDATE, customer.getBirthdate());
+        }
+
+        // Address
+        if (customer.getAddress() != null) {
+            writeAddress(gen, ADDRESS, customer.getAddress());
+        }
+
+        // Phones
+        if (customer.getPhones() != null) {
+            writeValue(gen, PHONES, customer.getPhones());
+        }
+
+        if (customer.getMetadata() != null) {
+            writeValue(gen, METADATA, customer.getMetadata());
+        }
+
+        gen.writeEndObject();
+    }
+
+    private void writeAddress(JsonGenerator gen, SerializedString name, AddressDTO address) throws IOException {
+        gen.writeFieldName(name);
+        gen.writeStartObject();
+
+        if (address.getCountry() != null) {
+            writeString(gen, COUNTRY, address.getCountry());
+        }
+        if (address.getState() != null) {
+            writeString(gen, STATE, address.getState());
+        }
+        if (address.getCity() != null) {
+            writeString(gen, CITY, address.getCity());
+        }
+        if (address.getZipCode() != null) {
+            writeString(gen, ZIP_CODE, address.getZipCode());
+        }
+        if (address.getLine1() != null) {
+            writeString(gen, LINE_1, address.getLine1());
+        }
+        if (address.getLine2() != null) {
+            writeString(gen, LINE_2, address.getLine2());
+        }
+
+        gen.writeEndObject();
+    }
+
+    private void writePayments(JsonGenerator gen, CreateOrderRequest req) throws IOException {
+        String paymentMethod = req.getPaymentMethod();
+        if (paymentMethod == null) {
+            throw new IllegalArgumentException("Método de pagamento inválido: null");
+        }
+
+        gen.writeFieldName(PAYMENTS);
+        gen.writeStartArray();
+        gen.writeStartObject();
+
+        writeString(gen, PAYMENT_METHOD, paymentMethod);
+
+        if ("credit_card".equalsIgnoreCase(paymentMethod)) {
+            writeCreditCard(gen, req.getCreditCard());
+        } else if ("pix".equalsIgnoreCase(paymentMethod)) {
+            writePix(gen, req.getPix());
+        } else if ("boleto".equalsIgnoreCase(paymentMethod)) {
+            writeBoleto(gen, req.getBoleto());
+        } else if ("debit_card".equalsIgnoreCase(paymentMethod)) {
+            writeDebitCard(gen, req.getDebitCard());
+        } else {
+            throw new IllegalArgumentException("Método de pagamento inválido: " + paymentMethod);
+        }
+
+        // Split no nível do pagamento (se houver)
+        if (req.getSplit() != null && !req.getSplit().isEmpty()) {
+            writeSplit(gen, req.getSplit());
+        }
+
+        gen.writeEndObject();
+        gen.writeEndArray();
+    }
+
+    private void writeCreditCard(JsonGenerator gen, CreditCardDTO creditCard) throws IOException {
+        if (creditCard == null) {
+            throw new IllegalArgumentException("Dados do cartão de crédito são obrigatórios");
+        }
+
+        gen.writeFieldName(CREDIT_CARD);
+        gen.writeStartObject();
+
+        writeString(gen, OPERATION_TYPE, creditCard.getOperationType() != null ? creditCard.getOperationType() : "auth_and_capture");
+
+        // Installments
+        if (creditCard.getInstallments() != null) {
+            writeNumber(gen, INSTALLMENTS, creditCard.getInstallments());
+        }
+
+        // Statement descriptor
+        if (creditCard.getStatementDescriptor() != null) {
+            writeString(gen, STATEMENT_DESCRIPTOR, creditCard.getStatementDescriptor());
+        }
+
+        // Card - pode ser card_id, card_token, ou dados do cartão
+        if (creditCard.getCardId() != null) {
+            writeString(gen, CARD_ID, creditCard.getCardId());
+        } else if (creditCard.getCardToken() != null) {
+            writeString(gen, CARD_TOKEN, creditCard.getCardToken());
+        } else {
+            // Dados completos do cartão
+            writeCard(gen, creditCard.getNumber(), creditCard.getHolderName(), creditCard.getExpMonth(),
+                    creditCard.getExpYear(), creditCard.getCvv(), creditCard.getBillingAddress());
+        }
+
+        gen.writeEndObject();
+    }
+
+    private void writePix(JsonGenerator gen, PixDTO pix) throws IOException {
+        gen.writeFieldName(PIX);
+        gen.writeStartObject();
+        writeNumber(gen, EXPIRES_IN, pix != null && pix.getExpiresIn() != null ? pix.getExpiresIn() : DEFAULT_PIX_EXPIRES_IN);
+        gen.writeEndObject();
+    }
+
+    private void writeBoleto(JsonGenerator gen, BoletoDTO boleto) throws IOException {
+        gen.writeFieldName(BOLETO);
+        gen.writeStartObject();
+
+        if (boleto != null) {
+            if (boleto.getInstructions() != null) {
+                writeString(gen, INSTRUCTIONS, boleto.getInstructions());
+            }
+            if (boleto.getDueAt() != null) {
+                writeString(gen, DUE_AT, boleto.getDueAt());
+            }
+        }
+
+        gen.writeEndObject();
+    }
+
+    private void writeDebitCard(JsonGenerator gen, DebitCardDTO debitCard) throws IOException {
+        if (debitCard == null) {
+            throw new IllegalArgumentException("Dados do cartão de débito são obrigatórios");
+        }
+
+        gen.writeFieldName(DEBIT_CARD);
+        gen.writeStartObject();
+
+        // Statement descriptor
+        if (debitCard.getStatementDescriptor() != null) {
+            writeString(gen, STATEMENT_DESCRIPTOR, debitCard.getStatementDescriptor());
+        }
+
+        // Card
+        writeCard(gen, debitCard.getNumber(), debitCard.getHolderName(), debitCard.getExpMonth(),
+                debitCard.getExpYear(), debitCard.getCvv(), debitCard.getBillingAddress());
+
+        gen.writeEndObject();
+    }
+
+    private void writeCard(JsonGenerator gen, String number, String holderName, Integer expMonth, Integer expYear,
+                           String cvv, AddressDTO billingAddress) throws IOException {
+        gen.writeFieldName(CARD);
+        gen.writeStartObject();
+        writeString(gen, NUMBER, number);
+        writeString(gen, HOLDER_NAME, holderName);
+        writeNumber(gen, EXP_MONTH, expMonth);
+        writeNumber(gen, EXP_YEAR, expYear);
+        writeString(gen, CVV, cvv);
+
+        if (billingAddress != null) {
+            writeAddress(gen, BILLING_ADDRESS, billingAddress);
+        }
+
+        gen.writeEndObject();
+    }
+
+    private void writeSplit(JsonGenerator gen, List<SplitInputDTO> splitList) throws IOException {
+        gen.writeFieldName(SPLIT);
+        gen.writeStartArray();
+
+        for (SplitInputDTO split : splitList) {
+            gen.writeStartObject();
+            writeNumber(gen, AMOUNT, split.getAmount());
+            writeString(gen, TYPE, split.getType() != null ? split.getType() : "percentage");
+            writeString(gen, RECIPIENT_ID, split.getRecipientId());
+
+            // Options
+            boolean isLiable = split.getLiable() != null && split.getLiable();
+            gen.writeFieldName(OPTIONS);
+            gen.writeStartObject();
+            writeBoolean(gen, LIABLE, isLiable);
+            writeBoolean(gen, CHARGE_PROCESSING_FEE, isLiable);
+            writeBoolean(gen, CHARGE_REMAINDER_FEE, isLiable);
+            gen.writeEndObject();
+
+            gen.writeEndObject();
+        }
+
+        gen.writeEndArray();
+    }
+
+    private void writeShipping(JsonGenerator gen, ShippingDTO shipping) throws IOException {
+        gen.writeFieldName(SHIPPING);
+        gen.writeStartObject();
+
+        if (shipping.getAmount() != null) {
+            writeNumber(gen, AMOUNT, shipping.getAmount());
+        }
+        if (shipping.getDescription() != null) {
+            writeString(gen, DESCRIPTION, shipping.getDescription());
+        }
+        if (shipping.getRecipientName() != null) {
+            writeString(gen, RECIPIENT_NAME, shipping.getRecipientName());
+        }
+        if (shipping.getRecipientPhone() != null) {
+            writeString(gen, RECIPIENT_PHONE, shipping.getRecipientPhone());
+        }
+        if (shipping.getAddress() != null) {
+            writeAddress(gen, ADDRESS, shipping.getAddress());
+        }
+
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,201 @@
+package com.villaggiogirotto.split.villagiosplit.service.payload;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.villaggiogirotto.split.villagiosplit.client.ResponseReader;
+import com.villaggiogirotto.split.villagiosplit.dto.OrderSummaryDTO;
+
+import java.io.IOException;
+
+/**
+ * Lê a resposta de POST/GET /orders token a token e extrai só o que a API usa:
+ * id/code/status do pedido, a primeira cobrança e a sua last_transaction.
+ *
+ * Cliente, itens, split e demais cobranças são pulados com skipChildren(),
+ * sem criar nós nem strings para eles. O pedido completo só é montado
+ * como árvore quando pedido explicitamente ({@link #WITH_ORDER}).
+ *
+ * {@link #FIRST_IN_PAGE} lê uma página de GET /orders ({"data":[...]}) e
+ * devolve o resumo do primeiro pedido, ou null se a página vier vazia.
+ */
+public final class OrderSummaryReader implements ResponseReader<OrderSummaryDTO> {
+
+    public static final OrderSummaryReader INSTANCE = new OrderSummaryReader(false);
+    public static final OrderSummaryReader WITH_ORDER = new OrderSummaryReader(true);
+    public static final ResponseReader<OrderSummaryDTO> FIRST_IN_PAGE = OrderSummaryReader::readFirstInPage;
+
+    private final boolean includeOrder;
+
+    private OrderSummaryReader(boolean includeOrder) {
+        this.includeOrder = includeOrder;
+    }
+
+    public static OrderSummaryReader of(boolean includeOrder) {
+        return includeOrder ? WITH_ORDER : INSTANCE;
+    }
+
+    @Override
+    public OrderSummaryDTO read(JsonParser parser) throws IOException {
+        if (!includeOrder) {
+            return readSummary(parser);
+        }
+
+        JsonNode order = parser.readValueAsTree();
+        OrderSummaryDTO summary;
+        try (JsonParser tokens = order.traverse()) {
+            summary = readSummary(tokens);
+        }
+        summary.setOrder(order);
+        return summary;
+    }
+
+    private static OrderSummaryDTO readFirstInPage(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken() != null ? parser.currentToken() : parser.nextToken();
+        if (token != JsonToken.START_OBJECT) {
+            throw new IOException("Resposta de listagem de pedidos inesperada da Pagar.me: " + token);
+        }
+
+        OrderSummaryDTO first = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            if (parser.nextToken() == JsonToken.START_ARRAY && "data".equals(field)) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (first == null && parser.currentToken() == JsonToken.START_OBJECT) {
+                        first = INSTANCE.readSummary(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return first;
+    }
+
+    private OrderSummaryDTO readSummary(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken() != null ? parser.currentToken() : parser.nextToken();
+        if (token != JsonToken.START_OBJECT) {
+            throw new IOException("Resposta de pedido inesperada da Pagar.me: " + token);
+        }
+
+        OrderSummaryDTO summary = new OrderSummaryDTO();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id":
+                    summary.setOrderId(text(parser));
+                    break;
+                case "code":
+                    summary.setOrderCode(text(parser));
+                    break;
+                case "status":
+                    summary.setOrderStatus(text(parser));
+                    break;
+                case "charges":
+                    readCharges(parser, summary);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return summary;
+    }
+
+    private void readCharges(JsonParser parser, OrderSummaryDTO summary) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+
+        // Só a primeira cobrança interessa; as demais são puladas
+        boolean first = true;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (first && parser.currentToken() == JsonToken.START_OBJECT) {
+                readCharge(parser, summary);
+            } else {
+                parser.skipChildren();
+            }
+            first = false;
+        }
+    }
+
+    private void readCharge(JsonParser parser, OrderSummaryDTO summary) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id":
+                    summary.setChargeId(text(parser));
+                    break;
+                case "status":
+                    summary.setChargeStatus(text(parser));
+                    break;
+                case "last_transaction":
+                    readTransaction(parser, summary);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    private void readTransaction(JsonParser parser, OrderSummaryDTO summary) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id":
+                    summary.setTransactionId(text(parser));
+                    break;
+                case "transaction_type":
+                    summary.setTransactionType(text(parser));
+                    break;
+                case "status":
+                    summary.setTransactionStatus(text(parser));
+                    break;
+                case "qr_code":
+                    summary.setQrCode(text(parser));
+                    break;
+                case "qr_code_url":
+                    summary.setQrCodeUrl(text(parser));
+                    break;
+                case "expires_at":
+                    summary.setExpiresAt(text(parser));
+                    break;
+                case "url":
+                    summary.setUrl(text(parser));
+                    break;
+                case "barcode":
+                    summary.setBarcode(text(parser));
+                    break;
+                case "pdf":
+                    summary.setPdf(text(parser));
+                    break;
+                case "due_at":
+                    summary.setDueAt(text(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Valor escalar como texto (números inclusive); objetos e arrays são pulados
+     */
+    private static String text(JsonParser parser) throws IOException {
+        if (parser.currentToken().isScalarValue()) {
+            return parser.getValueAsString();
+        }
+        parser.skipChildren();
+        return null;
+    }
+}
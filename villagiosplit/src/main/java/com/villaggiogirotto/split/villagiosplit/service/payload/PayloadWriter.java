@@ -0,0 +1,83 @@
+package com.villaggiogirotto.split.villagiosplit.service.payload;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Base dos writers de payload da Pagar.me.
+ *
+ * Em vez de montar uma árvore de HashMaps para o WebClient serializar depois,
+ * cada writer percorre a requisição e escreve o JSON direto em bytes com um
+ * JsonGenerator. Nomes de campo ficam pré-codificados em {@link SerializableString}
+ * e valores livres (metadata, phones) passam por um {@link ObjectWriter} criado uma vez.
+ */
+public abstract class PayloadWriter<T> {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    // Buffer de trabalho reaproveitado por thread; só o byte[] final é alocado por chamada
+    private static final ThreadLocal<ByteArrayBuilder> BUFFERS =
+            ThreadLocal.withInitial(() -> new ByteArrayBuilder(INITIAL_CAPACITY));
+
+    private final JsonFactory jsonFactory;
+    private final ObjectWriter valueWriter;
+
+    protected PayloadWriter(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.valueWriter = objectMapper.writer();
+    }
+
+    /**
+     * Serializa a requisição no corpo JSON esperado pela Pagar.me.
+     *
+     * @throws IllegalArgumentException se a requisição for inválida
+     */
+    public byte[] write(T req) {
+        ByteArrayBuilder out = BUFFERS.get();
+        out.reset();
+        try (JsonGenerator gen = jsonFactory.createGenerator(out)) {
+            writePayload(gen, req);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        byte[] payload = out.toByteArray();
+        if (payload.length > MAX_RETAINED_CAPACITY) {
+            BUFFERS.remove(); // Não segura buffers grandes de payloads atípicos
+        }
+        return payload;
+    }
+
+    protected abstract void writePayload(JsonGenerator gen, T req) throws IOException;
+
+    protected void writeValue(JsonGenerator gen, SerializableString name, Object value) throws IOException {
+        gen.writeFieldName(name);
+        valueWriter.writeValue(gen, value);
+    }
+
+    protected static void writeString(JsonGenerator gen, SerializableString name, String value) throws IOException {
+        gen.writeFieldName(name);
+        gen.writeString(value);
+    }
+
+    protected static void writeNumber(JsonGenerator gen, SerializableString name, Integer value) throws IOException {
+        gen.writeFieldName(name);
+        if (value != null) {
+            gen.writeNumber(value);
+        } else {
+            gen.writeNull();
+        }
+    }
+
+    protected static void writeBoolean(JsonGenerator gen, SerializableString name, boolean value) throws IOException {
+        gen.writeFieldName(name);
+        gen.writeBoolean(value);
+    }
+}
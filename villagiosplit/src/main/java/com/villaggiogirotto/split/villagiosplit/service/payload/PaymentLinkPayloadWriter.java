@@ -0,0 +1,210 @@
+package com.villaggiogirotto.split.villagiosplit.service.payload;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.villaggiogirotto.split.villagiosplit.controller.requests.CreatePaymentRequest;
+import com.villaggiogirotto.split.villagiosplit.dto.CartItemDTO;
+import com.villaggiogirotto.split.villagiosplit.dto.SplitInputDTO;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Escreve o corpo de POST /paymentlinks seguindo o formato recomendado pelo suporte Pagar.me.
+ *
+ * Os trechos que nunca mudam (métodos aceitos, pix_settings, operation_type...)
+ * ficam pré-serializados em UTF-8 e são copiados como estão; só os campos
+ * variáveis (descritor, parcelas, valor, itens e regras de split) passam pelo gerador.
+ */
+@Component
+public class PaymentLinkPayloadWriter extends PayloadWriter<CreatePaymentRequest> {
+
+    private static final SerializedString IS_BUILDING = new SerializedString("is_building");
+    private static final SerializedString TYPE = new SerializedString("type");
+    private static final SerializedString PAYMENT_SETTINGS = new SerializedString("payment_settings");
+    private static final SerializedString ACCEPTED_PAYMENT_METHODS = new SerializedString("accepted_payment_methods");
+    private static final SerializedString STATEMENT_DESCRIPTOR = new SerializedString("statement_descriptor");
+    private static final SerializedString CREDIT_CARD_SETTINGS = new SerializedString("credit_card_settings");
+    private static final SerializedString OPERATION_TYPE = new SerializedString("operation_type");
+    private static final SerializedString INSTALLMENTS_SETUP = new SerializedString("installments_setup");
+    private static final SerializedString INTEREST_TYPE = new SerializedString("interest_type");
+    private static final SerializedString MAX_INSTALLMENTS = new SerializedString("max_installments");
+    private static final SerializedString FREE_INSTALLMENTS = new SerializedString("free_installments");
+    private static final SerializedString AMOUNT = new SerializedString("amount");
+    private static final SerializedString INTEREST_RATE = new SerializedString("interest_rate");
+    private static final SerializedString PIX_SETTINGS = new SerializedString("pix_settings");
+    private static final SerializedString CART_SETTINGS = new SerializedString("cart_settings");
+    private static final SerializedString ITEMS = new SerializedString("items");
+    private static final SerializedString NAME = new SerializedString("name");
+    private static final SerializedString DEFAULT_QUANTITY = new SerializedString("default_quantity");
+    private static final SerializedString SPLIT_SETTINGS = new SerializedString("split_settings");
+    private static final SerializedString RULES = new SerializedString("rules");
+    private static final SerializedString RECIPIENT_ID = new SerializedString("recipient_id");
+    private static final SerializedString OPTIONS = new SerializedString("options");
+
+    // Valores constantes, já em JSON
+    private static final SerializedString ORDER = new SerializedString("order");
+    private static final SerializedString ACCEPTED_PAYMENT_METHODS_VALUE = new SerializedString("[\"credit_card\",\"pix\"]");
+    private static final SerializedString AUTH_AND_CAPTURE = new SerializedString("auth_and_capture");
+    private static final SerializedString SIMPLE = new SerializedString("simple");
+    private static final SerializedString PIX_SETTINGS_VALUE = new SerializedString("{\"expires_in\":3600}"); // 1 hora em segundos
+    private static final SerializedString LIABLE_OPTIONS = new SerializedString(
+            "{\"liable\":true,\"charge_processing_fee\":true,\"charge_remainder_fee\":true}");
+    private static final SerializedString NOT_LIABLE_OPTIONS = new SerializedString(
+            "{\"liable\":false,\"charge_processing_fee\":false,\"charge_remainder_fee\":false}");
+
+    public PaymentLinkPayloadWriter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    /**
+     * Valor total do link: amount informado ou soma de valor x quantidade dos itens
+     */
+    public static int calculateTotalAmount(CreatePaymentRequest req) {
+        if (req.getAmount() != null) {
+            return req.getAmount();
+        }
+
+        int total = 0;
+        if (req.getItems() != null) {
+            for (CartItemDTO item : req.getItems()) {
+                int amount = item.getAmount() != null ? item.getAmount() : 0;
+                int qty = item.getDefaultQuantity() != null ? item.getDefaultQuantity() : 1;
+                total += amount * qty;
+            }
+        }
+        return total;
+    }
+
+    @Override
+    protected void writePayload(JsonGenerator gen, CreatePaymentRequest req) throws IOException {
+        gen.writeStartObject();
+
+        // Configurações básicas
+        writeBoolean(gen, IS_BUILDING, false);
+        gen.writeFieldName(TYPE);
+        gen.writeString(ORDER);
+
+        // Payment Settings
+        writePaymentSettings(gen, req);
+
+        // Cart Settings (items)
+        writeCartSettings(gen, req);
+
+        // Split Settings (regras de divisão)
+        if (req.getSplit() != null && !req.getSplit().isEmpty()) {
+            writeSplitSettings(gen, req.getSplit());
+        }
+
+        gen.writeEndObject();
+    }
+
+    private void writePaymentSettings(JsonGenerator gen, CreatePaymentRequest req) throws IOException {
+        gen.writeFieldName(PAYMENT_SETTINGS);
+        gen.writeStartObject();
+
+        // Métodos de pagamento aceitos
+        gen.writeFieldName(ACCEPTED_PAYMENT_METHODS);
+        gen.writeRawValue(ACCEPTED_PAYMENT_METHODS_VALUE);
+
+        // Statement descriptor (descrição na fatura)
+        String descriptor = req.getStatementDescriptor();
+        if (descriptor == null || descriptor.isEmpty()) {
+            descriptor = "Pagamento";
+        }
+        // Limitar a 13 caracteres conforme documentação
+        if (descriptor.length() > 13) {
+            descriptor = descriptor.substring(0, 13);
+        }
+        writeString(gen, STATEMENT_DESCRIPTOR, descriptor);
+
+        // Credit Card Settings
+        writeCreditCardSettings(gen, req);
+
+        // PIX Settings
+        gen.writeFieldName(PIX_SETTINGS);
+        gen.writeRawValue(PIX_SETTINGS_VALUE);
+
+        gen.writeEndObject();
+    }
+
+    private void writeCreditCardSettings(JsonGenerator gen, CreatePaymentRequest req) throws IOException {
+        gen.writeFieldName(CREDIT_CARD_SETTINGS);
+        gen.writeStartObject();
+
+        gen.writeFieldName(OPERATION_TYPE);
+        gen.writeString(AUTH_AND_CAPTURE);
+
+        // Configuração de parcelamento
+        gen.writeFieldName(INSTALLMENTS_SETUP);
+        gen.writeStartObject();
+        gen.writeFieldName(INTEREST_TYPE);
+        gen.writeString(SIMPLE);
+
+        int maxInstallments = req.getInstallments() != null ? req.getInstallments() : 12;
+        writeNumber(gen, MAX_INSTALLMENTS, maxInstallments);
+        writeNumber(gen, FREE_INSTALLMENTS, Math.min(3, maxInstallments)); // Até 3x sem juros
+
+        // Amount é obrigatório para installments_setup
+        writeNumber(gen, AMOUNT, calculateTotalAmount(req));
+        writeNumber(gen, INTEREST_RATE, 1);
+        gen.writeEndObject();
+
+        gen.writeEndObject();
+    }
+
+    private void writeCartSettings(JsonGenerator gen, CreatePaymentRequest req) throws IOException {
+        gen.writeFieldName(CART_SETTINGS);
+        gen.writeStartObject();
+        gen.writeFieldName(ITEMS);
+        gen.writeStartArray();
+
+        if (req.getItems() != null && !req.getItems().isEmpty()) {
+            for (CartItemDTO item : req.getItems()) {
+                gen.writeStartObject();
+                writeString(gen, NAME, item.getName() != null ? item.getName() : "Item");
+                writeNumber(gen, AMOUNT, item.getAmount());
+                writeNumber(gen, DEFAULT_QUANTITY, item.getDefaultQuantity() != null ? item.getDefaultQuantity() : 1);
+                gen.writeEndObject();
+            }
+        } else if (req.getAmount() != null) {
+            // Fallback: item único
+            gen.writeStartObject();
+            writeString(gen, NAME, "Pagamento");
+            writeNumber(gen, AMOUNT, req.getAmount());
+            writeNumber(gen, DEFAULT_QUANTITY, 1);
+            gen.writeEndObject();
+        }
+
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private void writeSplitSettings(JsonGenerator gen, List<SplitInputDTO> splitList) throws IOException {
+        gen.writeFieldName(SPLIT_SETTINGS);
+        gen.writeStartObject();
+        gen.writeFieldName(RULES);
+        gen.writeStartArray();
+
+        for (SplitInputDTO split : splitList) {
+            gen.writeStartObject();
+
+            // Usa o type do split (percentage ou flat)
+            writeString(gen, TYPE, split.getType() != null ? split.getType() : "percentage");
+            writeNumber(gen, AMOUNT, split.getAmount());
+            writeString(gen, RECIPIENT_ID, split.getRecipientId());
+
+            // Options
+            boolean isLiable = split.getLiable() != null && split.getLiable();
+            gen.writeFieldName(OPTIONS);
+            gen.writeRawValue(isLiable ? LIABLE_OPTIONS : NOT_LIABLE_OPTIONS);
+
+            gen.writeEndObject();
+        }
+
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,93 @@
+package com.villaggiogirotto.split.villagiosplit.service.state;
+
+import java.util.Map;
+
+/**
+ * Situação conhecida de um pedido. Imutável.
+ *
+ * Feito para caber muitos em memória: os status são instâncias compartilhadas
+ * (ver {@link #status}), o ID da filial é o da configuração e os instantes são
+ * longs em epoch millis, em vez de um Instant por campo (~56 bytes por pedido,
+ * além dos IDs).
+ */
+public final class OrderState {
+
+    // Status conhecidos da Pagar.me (pedido e cobrança), uma instância de cada
+    private static final Map<String, String> STATUSES = Map.ofEntries(
+            Map.entry("pending", "pending"),
+            Map.entry("paid", "paid"),
+            Map.entry("canceled", "canceled"),
+            Map.entry("failed", "failed"),
+            Map.entry("processing", "processing"),
+            Map.entry("overpaid", "overpaid"),
+            Map.entry("underpaid", "underpaid"),
+            Map.entry("chargedback", "chargedback"));
+
+    private final String orderId;
+    private final String code;
+    private final String filialId;
+    private final String status;
+    private final String chargeId;
+    private final String chargeStatus;
+    private final long updatedAt; // Quando a Pagar.me produziu a informação (created_at do evento ou leitura)
+    private final long checkedAt; // Quando a informação chegou aqui
+
+    OrderState(String orderId, String code, String filialId, String status,
+               String chargeId, String chargeStatus, long updatedAt, long checkedAt) {
+        this.orderId = orderId;
+        this.code = code;
+        this.filialId = filialId;
+        this.status = status(status);
+        this.chargeId = chargeId;
+        this.chargeStatus = status(chargeStatus);
+        this.updatedAt = updatedAt;
+        this.checkedAt = checkedAt;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getFilialId() {
+        return filialId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getChargeId() {
+        return chargeId;
+    }
+
+    public String getChargeStatus() {
+        return chargeStatus;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public long getCheckedAt() {
+        return checkedAt;
+    }
+
+    /**
+     * Pedido que não muda mais de status (pago, cancelado ou falho)
+     */
+    public boolean isFinal() {
+        return "paid".equals(status) || "canceled".equals(status) || "failed".equals(status);
+    }
+
+    private static String status(String value) {
+        if (value == null) {
+            return null;
+        }
+        String known = STATUSES.get(value);
+        return known != null ? known : value;
+    }
+}
@@ -0,0 +1,159 @@
+package com.villaggiogirotto.split.villagiosplit.service.state;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.villaggiogirotto.split.villagiosplit.config.OrderStateConfig;
+import com.villaggiogirotto.split.villagiosplit.dto.OrderSummaryDTO;
+import com.villaggiogirotto.split.villagiosplit.service.webhook.WebhookEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estado local dos pedidos (status do pedido e da primeira cobrança),
+ * indexado pelo ID da Pagar.me e pelo nosso code.
+ *
+ * Alimentado pelas respostas de POST /orders, pelos webhooks (em lotes) e
+ * pelas releituras de GET /orders/{id}. Eventos fora de ordem não voltam o
+ * estado atrás: uma informação mais antiga que a atual só preenche campos vazios.
+ * Mudanças de status são repassadas ao {@link OrderStatusBroadcaster}.
+ *
+ * Guarda até orders.state.max-entries pedidos; quem fica orders.state.retention
+ * sem novidade é esquecido (e sai também do índice por code).
+ */
+@Component
+public class OrderStateStore {
+
+    private final OrderStateConfig config;
+    private final OrderStatusBroadcaster broadcaster;
+    private final Cache<String, OrderState> byId;
+    private final Map<String, String> idByCode = new ConcurrentHashMap<>();
+
+    public OrderStateStore(OrderStateConfig config, OrderStatusBroadcaster broadcaster) {
+        this.config = config;
+        this.broadcaster = broadcaster;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(config.getMaxEntries())
+                .expireAfterWrite(config.getRetention())
+                .removalListener((String orderId, OrderState state, RemovalCause cause) -> {
+                    if (state != null && state.getCode() != null && cause.wasEvicted()) {
+                        idByCode.remove(state.getCode(), orderId);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Busca pelo ID da Pagar.me (or_...) ou, se não achar, pelo code do pedido
+     */
+    public OrderState find(String idOrCode) {
+        if (idOrCode == null) {
+            return null;
+        }
+        OrderState state = byId.getIfPresent(idOrCode);
+        if (state != null) {
+            return state;
+        }
+        String orderId = idByCode.get(idOrCode);
+        return orderId != null ? byId.getIfPresent(orderId) : null;
+    }
+
+    /**
+     * Se o estado ainda vale sem consultar a Pagar.me: status final, ou
+     * notícia mais recente que orders.state.stale-after
+     */
+    public boolean isFresh(OrderState state) {
+        return state.isFinal() || System.currentTimeMillis() - state.getCheckedAt() < config.getStaleAfter().toMillis();
+    }
+
+    /**
+     * Registra o pedido como a Pagar.me o devolveu agora (criação ou releitura)
+     */
+    public OrderState record(String filialId, OrderSummaryDTO summary) {
+        if (summary == null || summary.getOrderId() == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        return merge(summary.getOrderId(), summary.getOrderCode(), filialId, summary.getOrderStatus(),
+                summary.getChargeId(), summary.getChargeStatus(), now, now);
+    }
+
+    /**
+     * Aplica um lote de eventos de webhook
+     *
+     * @return quantos eventos mudaram o status de algum pedido
+     */
+    public int applyAll(List<WebhookEvent> events) {
+        long now = System.currentTimeMillis();
+        int changed = 0;
+        for (WebhookEvent event : events) {
+            OrderState before = byId.getIfPresent(event.getOrderId());
+            OrderState after = merge(event.getOrderId(), event.getOrderCode(), event.getFilialId(),
+                    event.getOrderStatus(), event.getChargeId(), event.getChargeStatus(),
+                    event.getCreatedAt().toEpochMilli(), now);
+            if (statusChanged(before, after)) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    public long size() {
+        return byId.estimatedSize();
+    }
+
+    private OrderState merge(String orderId, String code, String filialId, String status,
+                             String chargeId, String chargeStatus, long updatedAt, long checkedAt) {
+        OrderState[] previous = new OrderState[1];
+        OrderState merged = byId.asMap().compute(orderId, (id, current) -> {
+            previous[0] = current;
+            if (current == null) {
+                return new OrderState(id, code, filialId, status, chargeId, chargeStatus, updatedAt, checkedAt);
+            }
+            boolean newer = updatedAt >= current.getUpdatedAt();
+            OrderState next = new OrderState(id,
+                    pick(current.getCode(), code, newer),
+                    pick(current.getFilialId(), filialId, newer),
+                    pick(current.getStatus(), status, newer),
+                    pick(current.getChargeId(), chargeId, newer),
+                    pick(current.getChargeStatus(), chargeStatus, newer),
+                    Math.max(current.getUpdatedAt(), updatedAt),
+                    Math.max(current.getCheckedAt(), checkedAt));
+            return sameState(current, next) ? current : next;
+        });
+        if (merged.getCode() != null) {
+            idByCode.put(merged.getCode(), orderId);
+        }
+        if (statusChanged(previous[0], merged)) {
+            broadcaster.publish(merged);
+        }
+        return merged;
+    }
+
+    private static boolean statusChanged(OrderState before, OrderState after) {
+        return before == null
+                || !Objects.equals(before.getStatus(), after.getStatus())
+                || !Objects.equals(before.getChargeStatus(), after.getChargeStatus());
+    }
+
+    private static String pick(String current, String incoming, boolean newer) {
+        if (incoming == null) {
+            return current;
+        }
+        return newer || current == null ? incoming : current;
+    }
+
+    private static boolean sameState(OrderState a, OrderState b) {
+        return a.getUpdatedAt() == b.getUpdatedAt()
+                && a.getCheckedAt() == b.getCheckedAt()
+                && Objects.equals(a.getCode(), b.getCode())
+                && Objects.equals(a.getFilialId(), b.getFilialId())
+                && Objects.equals(a.getStatus(), b.getStatus())
+                && Objects.equals(a.getChargeId(), b.getChargeId())
+                && Objects.equals(a.getChargeStatus(), b.getChargeStatus());
+    }
+}
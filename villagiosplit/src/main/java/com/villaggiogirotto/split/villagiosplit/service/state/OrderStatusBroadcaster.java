@@ -0,0 +1,61 @@
+package com.villaggiogirotto.split.villagiosplit.service.state;
+
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Avisa quem acompanha um pedido (GET /orders/{id}/events) quando o status muda.
+ *
+ * Há no máximo um sink multicast por pedido, compartilhado por todas as abas
+ * abertas naquele pedido; ele só existe enquanto houver alguém ouvindo. Sem
+ * ouvintes, {@link #publish} é uma consulta num mapa vazio. Ouvintes não
+ * seguram thread nenhuma: só são chamados quando há evento.
+ */
+@Component
+public class OrderStatusBroadcaster {
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+    /**
+     * Mudanças de status do pedido a partir de agora (e a última já publicada,
+     * se o canal já estava aberto por outro ouvinte)
+     */
+    public Flux<OrderState> watch(String orderId) {
+        return Flux.defer(() -> {
+            Channel channel = channels.compute(orderId, (id, current) -> {
+                Channel opened = current != null ? current : new Channel();
+                opened.listeners++;
+                return opened;
+            });
+            return channel.sink.asFlux()
+                    .doFinally(signal -> channels.computeIfPresent(orderId,
+                            (id, current) -> --current.listeners == 0 ? null : current));
+        });
+    }
+
+    public void publish(OrderState state) {
+        Channel channel = channels.get(state.getOrderId());
+        if (channel != null) {
+            // O sink aceita um emissor por vez
+            synchronized (channel) {
+                channel.sink.tryEmitNext(state);
+            }
+        }
+    }
+
+    /**
+     * Pedidos com alguém ouvindo
+     */
+    public int watchedOrders() {
+        return channels.size();
+    }
+
+    private static final class Channel {
+        final Sinks.Many<OrderState> sink = Sinks.many().replay().latest();
+        int listeners; // Alterado só dentro de compute/computeIfPresent
+    }
+}
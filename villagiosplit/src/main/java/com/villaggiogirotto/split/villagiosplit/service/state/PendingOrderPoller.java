@@ -0,0 +1,268 @@
+package com.villaggiogirotto.split.villagiosplit.service.state;
+
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeApiException;
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeRateLimiter;
+import com.villaggiogirotto.split.villagiosplit.config.Filial;
+import com.villaggiogirotto.split.villagiosplit.config.FilialRegistry;
+import com.villaggiogirotto.split.villagiosplit.config.OrderPollerConfig;
+import com.villaggiogirotto.split.villagiosplit.controller.requests.CreateOrderRequest;
+import com.villaggiogirotto.split.villagiosplit.dto.OrderSummaryDTO;
+import com.villaggiogirotto.split.villagiosplit.service.payload.OrderPayloadWriter;
+import com.villaggiogirotto.split.villagiosplit.service.payload.OrderSummaryReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Acompanha os pedidos pix/boleto pendentes criados por esta API e consulta
+ * a Pagar.me até que cheguem a um status final, gravando o resultado no
+ * {@link OrderStateStore} (e, por ele, nos streams SSE).
+ *
+ * Cada pedido tem a sua próxima consulta: um décimo da idade do pedido, entre
+ * os limites do método (pix: segundos a minutos; boleto: minutos a horas).
+ * Um pedido deixa de ser acompanhado quando o status fica final (por aqui ou
+ * por webhook) ou quando passa do prazo (expires_in do pix; due_at do boleto
+ * mais a carência de compensação), depois de uma última consulta.
+ *
+ * A cada tick, os pedidos vencidos mais atrasados são consultados até o
+ * orçamento global (orders.poller.max-polls-per-second), agrupados por filial
+ * e com no máximo concurrency-per-filial consultas simultâneas em cada uma.
+ *
+ * Métricas: pagarme.orders.poller.tracked e pagarme.orders.poller.polls{result}
+ */
+@Component
+public class PendingOrderPoller {
+
+    private final OrderPollerConfig config;
+    private final FilialRegistry filialRegistry;
+    private final OrderStateStore orderStateStore;
+    private final Map<String, PendingOrder> pending = new ConcurrentHashMap<>();
+    private final Scheduler scheduler = Schedulers.newSingle("orders-poller", true);
+    private final Counter polled;
+    private final Counter failed;
+    private final Counter finished;
+
+    private double budget; // Consultas disponíveis; só a thread do tick mexe
+    private long budgetUpdatedAt = System.nanoTime();
+    private Disposable ticker;
+
+    public PendingOrderPoller(OrderPollerConfig config, FilialRegistry filialRegistry, OrderStateStore orderStateStore,
+                              MeterRegistry meterRegistry) {
+        this.config = config;
+        this.filialRegistry = filialRegistry;
+        this.orderStateStore = orderStateStore;
+        this.polled = counter(meterRegistry, "ok");
+        this.failed = counter(meterRegistry, "error");
+        this.finished = counter(meterRegistry, "final");
+        Gauge.builder("pagarme.orders.poller.tracked", pending, Map::size)
+                .description("Pedidos pix/boleto pendentes acompanhados pelo poller")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (config.isEnabled()) {
+            ticker = Flux.interval(config.getTick(), config.getTick(), scheduler)
+                    .onBackpressureDrop()
+                    .concatMap(tick -> pollDue().onErrorResume(ex -> Mono.empty()))
+                    .contextWrite(PagarmeRateLimiter.batch())
+                    .subscribe();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.dispose();
+        }
+        scheduler.dispose();
+    }
+
+    /**
+     * Passa a acompanhar o pedido recém-criado, se for pix/boleto ainda pendente
+     */
+    public void track(String filialId, OrderSummaryDTO summary, CreateOrderRequest req) {
+        if (!config.isEnabled() || summary == null || summary.getOrderId() == null
+                || pending.size() >= config.getMaxTracked()) {
+            return;
+        }
+        String method = summary.getTransactionType();
+        boolean pix = "pix".equals(method);
+        if (!pix && !"boleto".equals(method)) {
+            return;
+        }
+        OrderState state = orderStateStore.find(summary.getOrderId());
+        if (state != null && state.isFinal()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long deadline = pix ? pixDeadline(summary, req, now) : boletoDeadline(summary, req, now);
+        PendingOrder order = new PendingOrder(summary.getOrderId(), filialId, pix, now, deadline);
+        order.nextPollAt = now + interval(order, now);
+        pending.putIfAbsent(order.orderId, order);
+    }
+
+    public int tracked() {
+        return pending.size();
+    }
+
+    private Mono<Void> pollDue() {
+        long now = System.currentTimeMillis();
+        refillBudget();
+
+        List<PendingOrder> due = new ArrayList<>();
+        for (PendingOrder order : pending.values()) {
+            OrderState state = orderStateStore.find(order.orderId);
+            if (state != null && state.isFinal()) {
+                pending.remove(order.orderId, order); // Resolvido por webhook
+            } else if (order.nextPollAt <= now) {
+                due.add(order);
+            }
+        }
+        if (due.isEmpty() || budget < 1) {
+            return Mono.empty();
+        }
+
+        // Os mais atrasados primeiro, até o orçamento
+        due.sort(Comparator.comparingLong(order -> order.nextPollAt));
+        int allowed = (int) Math.min(due.size(), Math.floor(budget));
+        budget -= allowed;
+        List<PendingOrder> batch = due.subList(0, allowed);
+        batch.forEach(order -> order.nextPollAt = Long.MAX_VALUE); // Em andamento
+
+        return Flux.fromIterable(batch)
+                .groupBy(order -> order.filialId)
+                .flatMap(filial -> filial.flatMap(this::poll, config.getConcurrencyPerFilial()))
+                .then();
+    }
+
+    private Mono<Void> poll(PendingOrder order) {
+        Filial filial = filialRegistry.find(order.filialId);
+        if (filial == null || !filial.hasSecretKey()) {
+            pending.remove(order.orderId, order);
+            return Mono.empty();
+        }
+
+        return filial.getClient().get("/orders/" + order.orderId, OrderSummaryReader.INSTANCE)
+                .doOnNext(summary -> {
+                    polled.increment();
+                    OrderState state = orderStateStore.record(filial.getId(), summary);
+                    reschedule(order, state != null && state.isFinal());
+                })
+                .onErrorResume(ex -> {
+                    failed.increment();
+                    // Pedido que não existe mais na Pagar.me: para de consultar
+                    boolean gone = ex instanceof PagarmeApiException api && api.getStatus() == 404;
+                    reschedule(order, gone);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private void reschedule(PendingOrder order, boolean done) {
+        long now = System.currentTimeMillis();
+        if (done || now > order.deadline) {
+            if (done) {
+                finished.increment();
+            }
+            pending.remove(order.orderId, order);
+            return;
+        }
+        order.nextPollAt = Math.min(now + interval(order, now), Math.max(order.deadline, now));
+    }
+
+    /**
+     * Um décimo da idade do pedido, dentro dos limites do método
+     */
+    private long interval(PendingOrder order, long now) {
+        long min = (order.pix ? config.getPixMinInterval() : config.getBoletoMinInterval()).toMillis();
+        long max = (order.pix ? config.getPixMaxInterval() : config.getBoletoMaxInterval()).toMillis();
+        return Math.max(min, Math.min(max, (now - order.createdAt) / 10));
+    }
+
+    private void refillBudget() {
+        long now = System.nanoTime();
+        double perSecond = config.getMaxPollsPerSecond();
+        budget = Math.min(Math.max(perSecond, 1), budget + (now - budgetUpdatedAt) / 1e9 * perSecond);
+        budgetUpdatedAt = now;
+    }
+
+    private long pixDeadline(OrderSummaryDTO summary, CreateOrderRequest req, long now) {
+        Long expiresAt = parseInstant(summary.getExpiresAt());
+        if (expiresAt != null) {
+            return expiresAt;
+        }
+        Integer expiresIn = req.getPix() != null ? req.getPix().getExpiresIn() : null;
+        return now + (expiresIn != null ? expiresIn : OrderPayloadWriter.DEFAULT_PIX_EXPIRES_IN) * 1000L;
+    }
+
+    private long boletoDeadline(OrderSummaryDTO summary, CreateOrderRequest req, long now) {
+        Long dueAt = parseInstant(summary.getDueAt());
+        if (dueAt == null && req.getBoleto() != null) {
+            dueAt = parseInstant(req.getBoleto().getDueAt());
+        }
+        return (dueAt != null ? dueAt : now) + config.getBoletoGrace().toMillis();
+    }
+
+    /**
+     * Data/hora ISO-8601 ou só a data (fim do dia, UTC) em epoch millis; null se não der para ler
+     */
+    private static Long parseInstant(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Instant.parse(value).toEpochMilli();
+        } catch (DateTimeParseException ex) {
+            try {
+                return LocalDate.parse(value.length() > 10 ? value.substring(0, 10) : value)
+                        .plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("pagarme.orders.poller.polls")
+                .description("Consultas de pedidos pendentes feitas pelo poller")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static final class PendingOrder {
+        final String orderId;
+        final String filialId;
+        final boolean pix;
+        final long createdAt;
+        final long deadline;
+        volatile long nextPollAt;
+
+        PendingOrder(String orderId, String filialId, boolean pix, long createdAt, long deadline) {
+            this.orderId = orderId;
+            this.filialId = filialId;
+            this.pix = pix;
+            this.createdAt = createdAt;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.villaggiogirotto.split.villagiosplit.service.webhook;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+/**
+ * O que interessa de um webhook da Pagar.me para o estado local do pedido.
+ *
+ * Eventos order.* trazem o pedido em "data" (e a cobrança em data.charges[0]);
+ * eventos charge.* trazem a cobrança em "data" e o pedido em data.order.
+ * O corpo é lido token a token; o resto do payload é pulado.
+ */
+public final class WebhookEvent {
+
+    private String id;
+    private String type;
+    private Instant createdAt;
+    private String filialId;
+    private String orderId;
+    private String orderCode;
+    private String orderStatus;
+    private String chargeId;
+    private String chargeStatus;
+
+    // Campos de "data", interpretados depois conforme o tipo do evento
+    private String dataId;
+    private String dataCode;
+    private String dataStatus;
+
+    private WebhookEvent() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getFilialId() {
+        return filialId;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public String getOrderCode() {
+        return orderCode;
+    }
+
+    public String getOrderStatus() {
+        return orderStatus;
+    }
+
+    public String getChargeId() {
+        return chargeId;
+    }
+
+    public String getChargeStatus() {
+        return chargeStatus;
+    }
+
+    /**
+     * @return o evento, ou null se o corpo não for um webhook de pedido/cobrança
+     */
+    static WebhookEvent parse(JsonFactory jsonFactory, byte[] body, String filialId) throws IOException {
+        WebhookEvent event = new WebhookEvent();
+        event.filialId = filialId;
+        String createdAt = null;
+
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "id" -> event.id = parser.getValueAsString();
+                    case "type" -> event.type = parser.getValueAsString();
+                    case "created_at" -> createdAt = parser.getValueAsString();
+                    case "data" -> {
+                        if (value == JsonToken.START_OBJECT) {
+                            event.readData(parser);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+
+        if (event.id == null || event.type == null) {
+            return null;
+        }
+        boolean charge = event.type.startsWith("charge.");
+        if (charge) {
+            // Em charge.* os campos de data são da cobrança
+            event.chargeId = event.dataId;
+            event.chargeStatus = event.dataStatus;
+        } else if (event.type.startsWith("order.")) {
+            event.orderId = event.dataId;
+            event.orderCode = event.dataCode;
+            event.orderStatus = event.dataStatus;
+        } else {
+            return null;
+        }
+        if (event.orderId == null) {
+            return null;
+        }
+        event.createdAt = parseInstant(createdAt);
+        return event;
+    }
+
+    private void readData(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> dataId = parser.getValueAsString();
+                case "code" -> dataCode = parser.getValueAsString();
+                case "status" -> dataStatus = parser.getValueAsString();
+                case "order" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        readOrder(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "charges" -> {
+                    if (value == JsonToken.START_ARRAY && parser.nextToken() == JsonToken.START_OBJECT) {
+                        readCharge(parser);
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            parser.skipChildren();
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readOrder(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> orderId = parser.getValueAsString();
+                case "code" -> orderCode = parser.getValueAsString();
+                case "status" -> orderStatus = parser.getValueAsString();
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readCharge(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> chargeId = parser.getValueAsString();
+                case "status" -> chargeStatus = parser.getValueAsString();
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private static Instant parseInstant(String value) {
+        if (value == null) {
+            return Instant.now();
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException ex) {
+            try {
+                return LocalDateTime.parse(value).toInstant(ZoneOffset.UTC); // Sem fuso: a Pagar.me usa UTC
+            } catch (DateTimeParseException ignored) {
+                return Instant.now();
+            }
+        }
+    }
+}
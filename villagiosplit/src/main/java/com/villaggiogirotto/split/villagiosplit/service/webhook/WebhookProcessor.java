@@ -0,0 +1,222 @@
+package com.villaggiogirotto.split.villagiosplit.service.webhook;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.villaggiogirotto.split.villagiosplit.config.Filial;
+import com.villaggiogirotto.split.villagiosplit.config.FilialRegistry;
+import com.villaggiogirotto.split.villagiosplit.config.WebhookConfig;
+import com.villaggiogirotto.split.villagiosplit.service.state.OrderStateStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Scannable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Fila e processamento assíncrono dos webhooks da Pagar.me.
+ *
+ * A thread HTTP só enfileira o corpo recebido ({@link #offer}) numa fila
+ * limitada e responde; se a fila estiver cheia, a recusa (503) faz a Pagar.me
+ * reenviar mais tarde, em vez de a rajada segurar threads do checkout.
+ *
+ * Fora das threads HTTP, os eventos são lidos numa thread própria, os já
+ * aplicados são descartados pelo ID do evento e o restante vira lotes de até
+ * batch-size, aplicados no {@link OrderStateStore} por até workers threads ao
+ * mesmo tempo. Um lote lento ocupa só a sua thread: os lotes seguintes vão para
+ * as livres. Não é preciso separar os eventos por pedido, porque o estado fica
+ * com o evento mais recente (createdAt) seja qual for a ordem de aplicação.
+ *
+ * Um evento só é lembrado como aplicado depois que o lote dele foi aplicado:
+ * se o lote falhar, o reenvio da Pagar.me é processado de novo. Duplicatas que
+ * chegam enquanto a primeira ainda está na fila são aplicadas duas vezes, o que
+ * não muda o resultado.
+ *
+ * Com todos os workers ocupados, o agrupamento espera em vez de falhar, e um
+ * evento que quebra a leitura conta como inválido. Se mesmo assim o pipeline
+ * cair, ele é assinado de novo: o que ainda estava na fila, que não depende de
+ * haver assinante, segue normalmente; os eventos que já tinham saído dela
+ * (lidos ou num lote em montagem) se perdem e ficam para o reenvio ou o poller.
+ *
+ * Métricas: pagarme.webhooks{result=accepted|rejected|invalid|ignored|duplicate|applied}
+ * e pagarme.webhooks.queue (eventos aguardando).
+ */
+@Component
+public class WebhookProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookProcessor.class);
+    private static final String METRIC = "pagarme.webhooks";
+
+    private final WebhookConfig config;
+    private final JsonFactory jsonFactory;
+    private final OrderStateStore orderStateStore;
+    private final FilialRegistry filialRegistry;
+    private final Sinks.Many<Received> sink;
+    private final Cache<String, Boolean> seenEvents;
+    private final Scheduler reader;
+    private final Scheduler scheduler;
+    private final Disposable subscription;
+
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter invalid;
+    private final Counter ignored;
+    private final Counter duplicates;
+    private final Counter applied;
+
+    public WebhookProcessor(WebhookConfig config, ObjectMapper objectMapper, OrderStateStore orderStateStore,
+                            FilialRegistry filialRegistry, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.jsonFactory = objectMapper.getFactory();
+        this.orderStateStore = orderStateStore;
+        this.filialRegistry = filialRegistry;
+        // Sem autoCancel a fila sobrevive à queda do assinante e é entregue ao próximo
+        this.sink = Sinks.many().multicast().onBackpressureBuffer(config.getQueueCapacity(), false);
+        this.seenEvents = Caffeine.newBuilder()
+                .expireAfterWrite(config.getDedupeTtl())
+                .maximumSize(config.getDedupeMaxEntries())
+                .build();
+        this.reader = Schedulers.newSingle("pagarme-webhooks-read");
+        // Bounded elastic entrega cada lote à thread menos ocupada, não a uma fixa
+        this.scheduler = Schedulers.newBoundedElastic(Math.max(config.getWorkers(), 1),
+                Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "pagarme-webhooks");
+
+        this.accepted = counter(meterRegistry, "accepted");
+        this.rejected = counter(meterRegistry, "rejected");
+        this.invalid = counter(meterRegistry, "invalid");
+        this.ignored = counter(meterRegistry, "ignored");
+        this.duplicates = counter(meterRegistry, "duplicate");
+        this.applied = counter(meterRegistry, "applied");
+        Gauge.builder(METRIC + ".queue", this, WebhookProcessor::queued)
+                .description("Webhooks recebidos aguardando processamento")
+                .register(meterRegistry);
+
+        this.subscription = pipeline()
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .transientErrors(true)
+                        .doBeforeRetry(signal -> log.error("Pipeline de webhooks da Pagar.me caiu; assinando de novo",
+                                signal.failure())))
+                .subscribe(null, ex -> log.error("Pipeline de webhooks da Pagar.me encerrado", ex));
+    }
+
+    /**
+     * Enfileira um webhook recebido, sem processá-lo
+     *
+     * @return false se a fila estiver cheia
+     */
+    public boolean offer(byte[] body, String filialId) {
+        Sinks.EmitResult result;
+        // O sink aceita um emissor por vez; o trecho protegido só enfileira
+        synchronized (sink) {
+            result = sink.tryEmitNext(new Received(body, filialId));
+        }
+        if (result.isSuccess()) {
+            accepted.increment();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public int queued() {
+        Integer buffered = Scannable.from(sink).scan(Scannable.Attr.BUFFERED);
+        return buffered != null ? buffered : 0;
+    }
+
+    private Flux<Integer> pipeline() {
+        int workers = Math.max(config.getWorkers(), 1);
+        return sink.asFlux()
+                .publishOn(reader)
+                .handle((Received received, SynchronousSink<WebhookEvent> next) -> {
+                    WebhookEvent event = parse(received);
+                    if (event != null && notApplied(event)) {
+                        next.next(event);
+                    }
+                })
+                // fairBackpressure: com os workers ocupados o lote espera demanda em vez de estourar
+                .bufferTimeout(config.getBatchSize(), config.getBatchWait(), reader, true)
+                .flatMap(batch -> apply(batch).subscribeOn(scheduler), workers);
+    }
+
+    private WebhookEvent parse(Received received) {
+        try {
+            // ID canônico da filial (o da URL pode ser um alias)
+            Filial filial = filialRegistry.find(received.filialId);
+            WebhookEvent event = WebhookEvent.parse(jsonFactory, received.body, filial != null ? filial.getId() : null);
+            if (event == null) {
+                ignored.increment();
+            }
+            return event;
+        } catch (IOException ex) {
+            invalid.increment();
+            log.warn("Webhook Pagar.me inválido: {}", ex.getMessage());
+            return null;
+        } catch (RuntimeException ex) {
+            invalid.increment();
+            log.error("Falha ao ler webhook da Pagar.me", ex);
+            return null;
+        }
+    }
+
+    private boolean notApplied(WebhookEvent event) {
+        if (seenEvents.getIfPresent(event.getId()) == null) {
+            return true;
+        }
+        duplicates.increment();
+        return false;
+    }
+
+    private Mono<Integer> apply(List<WebhookEvent> batch) {
+        return Mono.fromCallable(() -> {
+            int changed = orderStateStore.applyAll(batch);
+            batch.forEach(event -> seenEvents.put(event.getId(), Boolean.TRUE));
+            applied.increment(batch.size());
+            return changed;
+        }).onErrorResume(ex -> {
+            // Um lote com problema não derruba o pipeline
+            log.error("Falha ao aplicar {} webhooks da Pagar.me", batch.size(), ex);
+            return Mono.empty();
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscription.dispose();
+        reader.dispose();
+        scheduler.dispose();
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder(METRIC)
+                .description("Webhooks da Pagar.me por resultado")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static final class Received {
+        final byte[] body;
+        final String filialId;
+
+        Received(byte[] body, String filialId) {
+            this.body = body;
+            this.filialId = filialId;
+        }
+    }
+}
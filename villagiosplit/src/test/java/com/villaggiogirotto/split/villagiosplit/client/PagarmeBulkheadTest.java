@@ -0,0 +1,217 @@
+package com.villaggiogirotto.split.villagiosplit.client;
+
+import com.villaggiogirotto.split.villagiosplit.config.FiliaisConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PagarmeBulkheadTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> started = new CopyOnWriteArrayList<>();
+    private final Map<String, Sinks.One<String>> responses = new HashMap<>();
+    private final List<Disposable> subscriptions = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        // Esperas abandonadas na fila disparariam o timeout durante os próximos testes
+        subscriptions.forEach(Disposable::dispose);
+    }
+
+    @Test
+    void grantsUpToLimitThenQueuesInOrder() {
+        PagarmeBulkhead bulkhead = bulkhead(2, 5, Duration.ofSeconds(5));
+
+        for (String name : List.of("a", "b", "c", "d")) {
+            start(bulkhead, name);
+        }
+
+        assertThat(started).containsExactly("a", "b");
+        assertThat(bulkhead.getActive()).isEqualTo(2);
+        assertThat(bulkhead.getQueued()).isEqualTo(2);
+        assertThat(bulkhead.getSaturation()).isEqualTo(1.0);
+
+        // A vez de quem termina passa direto para o primeiro da fila
+        respond("b");
+        assertThat(started).containsExactly("a", "b", "c");
+        respond("a");
+        assertThat(started).containsExactly("a", "b", "c", "d");
+        assertThat(bulkhead.getActive()).isEqualTo(2);
+        assertThat(bulkhead.getQueued()).isZero();
+
+        respond("c");
+        respond("d");
+        assertThat(bulkhead.getActive()).isZero();
+        assertThat(count("immediate")).isEqualTo(2);
+        assertThat(count("queued")).isEqualTo(2);
+        assertThat(meterRegistry.get("pagarme.bulkhead.wait").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        PagarmeBulkhead bulkhead = bulkhead(1, 1, Duration.ofSeconds(5));
+        start(bulkhead, "a");
+        start(bulkhead, "b");
+
+        StepVerifier.create(bulkhead.run(call("c")))
+                .expectErrorSatisfies(ex -> assertThat(ex).hasMessageContaining("fila cheia"))
+                .verify();
+
+        assertThat(started).containsExactly("a");
+        assertThat(bulkhead.getQueued()).isEqualTo(1);
+        assertThat(count("rejected")).isEqualTo(1);
+    }
+
+    @Test
+    void waiterTimesOutAfterMaxWait() {
+        PagarmeBulkhead bulkhead = bulkhead(1, 1, Duration.ofMillis(50));
+        start(bulkhead, "a");
+
+        StepVerifier.create(bulkhead.run(call("b")))
+                .expectErrorSatisfies(ex -> assertThat(ex).hasMessageContaining("espera passou"))
+                .verify(Duration.ofSeconds(2));
+
+        assertThat(bulkhead.getQueued()).isZero();
+        assertThat(count("rejected")).isEqualTo(1);
+        respond("a");
+        assertThat(started).containsExactly("a");
+        assertThat(bulkhead.getActive()).isZero();
+    }
+
+    @Test
+    void failedCallReleasesPermit() {
+        PagarmeBulkhead bulkhead = bulkhead(1, 1, Duration.ofSeconds(5));
+        start(bulkhead, "a");
+        start(bulkhead, "b");
+
+        responses.get("a").tryEmitError(new IllegalStateException("503"));
+
+        assertThat(started).containsExactly("a", "b");
+        assertThat(bulkhead.getActive()).isEqualTo(1);
+    }
+
+    @Test
+    void cancelledWaiterLeavesQueue() {
+        PagarmeBulkhead bulkhead = bulkhead(1, 2, Duration.ofSeconds(5));
+        start(bulkhead, "a");
+        Disposable b = start(bulkhead, "b");
+        start(bulkhead, "c");
+
+        b.dispose();
+
+        assertThat(bulkhead.getQueued()).isEqualTo(1);
+        respond("a");
+        assertThat(started).containsExactly("a", "c");
+        respond("c");
+        assertThat(bulkhead.getActive()).isZero();
+    }
+
+    @Test
+    void raisingLimitGrantsWaiters() {
+        PagarmeBulkhead bulkhead = bulkhead(1, 5, Duration.ofSeconds(5));
+        for (String name : List.of("a", "b", "c", "d")) {
+            start(bulkhead, name);
+        }
+
+        bulkhead.configure(config(3, 5, Duration.ofSeconds(5)));
+
+        assertThat(started).containsExactly("a", "b", "c");
+        assertThat(bulkhead.getActive()).isEqualTo(3);
+        assertThat(bulkhead.getQueued()).isEqualTo(1);
+    }
+
+    @Test
+    void loweringLimitLetsRunningCallsFinish() {
+        PagarmeBulkhead bulkhead = bulkhead(2, 5, Duration.ofSeconds(5));
+        for (String name : List.of("a", "b", "c")) {
+            start(bulkhead, name);
+        }
+
+        bulkhead.configure(config(1, 5, Duration.ofSeconds(5)));
+        respond("a");
+
+        // Ainda há uma chamada acima do novo limite: "c" espera a próxima vaga
+        assertThat(started).containsExactly("a", "b");
+        respond("b");
+        assertThat(started).containsExactly("a", "b", "c");
+        assertThat(bulkhead.getActive()).isEqualTo(1);
+    }
+
+    @Test
+    void disabledBulkheadRunsCallDirectly() {
+        FiliaisConfig.BulkheadConfig config = config(1, 0, Duration.ofSeconds(5));
+        config.setEnabled(false);
+        PagarmeBulkhead bulkhead = new PagarmeBulkhead("brauna", config, meterRegistry);
+
+        start(bulkhead, "a");
+        start(bulkhead, "b");
+
+        assertThat(started).containsExactly("a", "b");
+        assertThat(bulkhead.getActive()).isZero();
+    }
+
+    @Test
+    void removeMetricsUnregistersFilialMeters() {
+        PagarmeBulkhead bulkhead = bulkhead(1, 1, Duration.ofSeconds(5));
+
+        bulkhead.removeMetrics(meterRegistry);
+
+        assertThat(meterRegistry.find("pagarme.bulkhead").tag("filial", "brauna").meters()).isEmpty();
+        assertThat(meterRegistry.find("pagarme.bulkhead.active").meters()).isEmpty();
+    }
+
+    private PagarmeBulkhead bulkhead(int maxConcurrentCalls, int maxQueuedCalls, Duration maxWait) {
+        return new PagarmeBulkhead("brauna", config(maxConcurrentCalls, maxQueuedCalls, maxWait), meterRegistry);
+    }
+
+    private static FiliaisConfig.BulkheadConfig config(int maxConcurrentCalls, int maxQueuedCalls, Duration maxWait) {
+        FiliaisConfig.BulkheadConfig config = new FiliaisConfig.BulkheadConfig();
+        config.setEnabled(true);
+        config.setMaxConcurrentCalls(maxConcurrentCalls);
+        config.setMaxQueuedCalls(maxQueuedCalls);
+        config.setMaxWait(maxWait);
+        return config;
+    }
+
+    /**
+     * Chamada fria que só responde quando o teste mandar
+     */
+    private Mono<String> call(String name) {
+        Sinks.One<String> response = Sinks.one();
+        responses.put(name, response);
+        return Mono.defer(() -> {
+            started.add(name);
+            return response.asMono();
+        });
+    }
+
+    /**
+     * Assina a chamada dentro do bulkhead; erros são esperados (recusa, timeout) e ignorados
+     */
+    private Disposable start(PagarmeBulkhead bulkhead, String name) {
+        Disposable subscription = bulkhead.run(call(name)).subscribe(value -> { }, error -> { });
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    private void respond(String name) {
+        responses.get(name).tryEmitValue(name);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("pagarme.bulkhead").tag("result", result).counter().count();
+    }
+}
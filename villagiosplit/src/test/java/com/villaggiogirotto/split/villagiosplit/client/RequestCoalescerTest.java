@@ -0,0 +1,130 @@
+package com.villaggiogirotto.split.villagiosplit.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestCoalescerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestCoalescer coalescer = new RequestCoalescer("brauna", "GET", meterRegistry);
+
+    @Test
+    void identicalCallsShareOneSubscription() {
+        Sinks.One<String> response = Sinks.one();
+        AtomicInteger calls = new AtomicInteger();
+
+        AtomicReference<String> first = new AtomicReference<>();
+        AtomicReference<String> second = new AtomicReference<>();
+        coalescer.coalesce("/orders/or_1", () -> {
+            calls.incrementAndGet();
+            return response.asMono();
+        }).subscribe(first::set);
+        coalescer.coalesce("/orders/or_1", () -> {
+            calls.incrementAndGet();
+            return response.asMono();
+        }).subscribe(second::set);
+
+        assertThat(calls).hasValue(1);
+        assertThat(coalescer.inFlight()).isEqualTo(1);
+
+        response.tryEmitValue("pedido");
+
+        assertThat(first).hasValue("pedido");
+        assertThat(second).hasValue("pedido");
+        assertThat(coalescer.inFlight()).isZero();
+        assertThat(count("leader")).isEqualTo(1);
+        assertThat(count("joined")).isEqualTo(1);
+    }
+
+    @Test
+    void differentKeysAreNotCoalesced() {
+        AtomicInteger calls = new AtomicInteger();
+
+        coalescer.coalesce("/orders/or_1", () -> Mono.<String>never().doOnSubscribe(s -> calls.incrementAndGet()))
+                .subscribe();
+        coalescer.coalesce("/orders/or_2", () -> Mono.<String>never().doOnSubscribe(s -> calls.incrementAndGet()))
+                .subscribe();
+
+        assertThat(calls).hasValue(2);
+        assertThat(coalescer.inFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void entryIsClearedAfterErrorSoNextCallGoesOut() {
+        AtomicInteger calls = new AtomicInteger();
+
+        StepVerifier.create(coalescer.coalesce("/orders/or_1", () -> {
+                    calls.incrementAndGet();
+                    return Mono.<String>error(new IllegalStateException("503"));
+                }))
+                .expectErrorMessage("503")
+                .verify();
+        assertThat(coalescer.inFlight()).isZero();
+
+        StepVerifier.create(coalescer.coalesce("/orders/or_1", () -> {
+                    calls.incrementAndGet();
+                    return Mono.just("pedido");
+                }))
+                .expectNext("pedido")
+                .verifyComplete();
+        assertThat(calls).hasValue(2);
+        assertThat(count("leader")).isEqualTo(2);
+    }
+
+    @Test
+    void requestIsCancelledOnlyWhenAllSubscribersCancel() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Mono<String> call = Mono.<String>never().doOnCancel(() -> cancelled.set(true));
+
+        Disposable first = coalescer.coalesce("/orders/or_1", () -> call).subscribe();
+        Disposable second = coalescer.coalesce("/orders/or_1", () -> call).subscribe();
+
+        first.dispose();
+        assertThat(cancelled).isFalse();
+        assertThat(coalescer.inFlight()).isEqualTo(1);
+
+        second.dispose();
+        assertThat(cancelled).isTrue();
+        assertThat(coalescer.inFlight()).isZero();
+    }
+
+    @Test
+    void liveAndBatchReadsAreNotCoalesced() {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicReference<PagarmeRateLimiter.Priority> batchPriority = new AtomicReference<>();
+        AtomicReference<PagarmeRateLimiter.Priority> livePriority = new AtomicReference<>();
+
+        coalescer.coalesce("/orders/or_1", () -> Mono.<String>deferContextual(context -> {
+            calls.incrementAndGet();
+            batchPriority.set(PagarmeRateLimiter.priority(context));
+            return Mono.never();
+        })).contextWrite(PagarmeRateLimiter.batch()).subscribe();
+        coalescer.coalesce("/orders/or_1", () -> Mono.<String>deferContextual(context -> {
+            calls.incrementAndGet();
+            livePriority.set(PagarmeRateLimiter.priority(context));
+            return Mono.never();
+        })).subscribe();
+        coalescer.coalesce("/orders/or_1", () -> Mono.<String>never())
+                .contextWrite(PagarmeRateLimiter.batch())
+                .subscribe();
+
+        assertThat(calls).hasValue(2);
+        assertThat(batchPriority).hasValue(PagarmeRateLimiter.Priority.BATCH);
+        assertThat(livePriority).hasValue(PagarmeRateLimiter.Priority.LIVE);
+        assertThat(count("joined")).isEqualTo(1);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("pagarme.client.coalescing").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,87 @@
+package com.villaggiogirotto.split.villagiosplit.client;
+
+import com.villaggiogirotto.split.villagiosplit.config.FiliaisConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+/**
+ * 10 req/s com burst 3: intervalo de 100 ms. Cada sequência medida roda sem
+ * asserções no meio; as margens cobrem o tempo gasto entre as chamadas.
+ */
+class TokenBucketTest {
+
+    private static final long INTERVAL = Duration.ofMillis(100).toNanos();
+    private static final long MAX_WAIT = Duration.ofSeconds(1).toNanos();
+
+    private final TokenBucket bucket = new TokenBucket(new FiliaisConfig.RateBudget(10, 3));
+
+    @Test
+    void burstGoesOutImmediatelyThenOnePerInterval() {
+        long[] burst = {bucket.reserve(MAX_WAIT), bucket.reserve(MAX_WAIT), bucket.reserve(MAX_WAIT)};
+        long fourth = bucket.reserve(MAX_WAIT);
+        long fifth = bucket.reserve(MAX_WAIT);
+
+        assertThat(burst).containsOnly(0L);
+        assertThat(fourth).isBetween(INTERVAL / 2, INTERVAL);
+        assertThat(fifth - fourth).isBetween(INTERVAL - INTERVAL / 10, INTERVAL + INTERVAL / 10);
+    }
+
+    @Test
+    void reserveRefusesWaitBeyondMaxWaitWithoutTakingSlot() {
+        for (int i = 0; i < 3; i++) {
+            bucket.reserve(MAX_WAIT);
+        }
+        long refused = bucket.reserve(INTERVAL / 10);
+        long next = bucket.reserve(MAX_WAIT);
+
+        assertThat(refused).isEqualTo(-1);
+        // A recusa não empurrou a fila: a próxima vaga continua a um intervalo
+        assertThat(next).isLessThanOrEqualTo(INTERVAL);
+    }
+
+    @Test
+    void refillsAfterInterval() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            bucket.reserve(MAX_WAIT);
+        }
+        long empty = bucket.reserve(0);
+
+        Thread.sleep(Duration.ofNanos(INTERVAL).toMillis() + 20);
+        long refilled = bucket.reserve(0);
+        long emptyAgain = bucket.reserve(0);
+
+        assertThat(empty).isEqualTo(-1);
+        assertThat(refilled).isZero();
+        assertThat(emptyAgain).isEqualTo(-1);
+    }
+
+    @Test
+    void tryAcquireLeavesReservedTokensForLiveTraffic() {
+        double full = bucket.available();
+        long[] batch = {bucket.tryAcquire(1), bucket.tryAcquire(1)};
+        long wait = bucket.tryAcquire(1);
+        long live = bucket.reserve(0);
+
+        assertThat(full).isCloseTo(3, offset(0.1));
+        assertThat(batch).containsOnly(0L);
+        assertThat(wait).isPositive().isLessThanOrEqualTo(INTERVAL);
+        // O token reservado segue disponível para quem não é lote
+        assertThat(live).isZero();
+    }
+
+    @Test
+    void drainEmptiesBucket() {
+        bucket.drain();
+        double available = bucket.available();
+        long wait = bucket.reserve(MAX_WAIT);
+        long batchWait = bucket.tryAcquire(0);
+
+        assertThat(available).isLessThan(0.1);
+        assertThat(wait).isBetween(INTERVAL / 2, INTERVAL);
+        assertThat(batchWait).isPositive();
+    }
+}
@@ -0,0 +1,188 @@
+package com.villaggiogirotto.split.villagiosplit.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeClient;
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeClientRegistry;
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeRateLimiter;
+import com.villaggiogirotto.split.villagiosplit.controller.requests.ListCustomersRequest;
+import com.villaggiogirotto.split.villagiosplit.service.cache.CustomerIndex;
+import com.villaggiogirotto.split.villagiosplit.service.cache.CustomerListCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FilialRegistryTest {
+
+    private PagarmeClientRegistry clientRegistry;
+    private final Map<PagarmeClient, String> keys = new HashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CustomerIndex customerIndex = new CustomerIndex(new CustomerIndexConfig(), objectMapper);
+    private final CustomerListCache customerListCache =
+            new CustomerListCache(new CustomerCacheConfig(), new SimpleMeterRegistry());
+
+    @BeforeEach
+    void setUp() {
+        clientRegistry = mock(PagarmeClientRegistry.class);
+        // Mesma regra do registro real: mesma secret key reaproveita o cliente atual
+        when(clientRegistry.clientFor(anyString(), anyString(), any(), any())).thenAnswer(invocation -> {
+            String secretKey = invocation.getArgument(1);
+            PagarmeClient current = invocation.getArgument(3);
+            if (current != null && secretKey.equals(keys.get(current))) {
+                return current;
+            }
+            PagarmeClient client = mock(PagarmeClient.class);
+            keys.put(client, secretKey);
+            return client;
+        });
+    }
+
+    @Test
+    void findsFilialByIdOrAliasIgnoringCaseAndSeparators() {
+        FilialRegistry registry = registry(config(unidade("brauna", "sk_b"), unidade("minas-gerais", "sk_mg", "mg")));
+
+        Filial mg = registry.find("minas-gerais");
+        assertThat(mg).isNotNull();
+        assertThat(registry.find("minasGerais")).isSameAs(mg);
+        assertThat(registry.find("MINAS_GERAIS")).isSameAs(mg);
+        assertThat(registry.find("MG")).isSameAs(mg);
+        assertThat(registry.find("brauna").getId()).isEqualTo("brauna");
+        assertThat(registry.find("minas")).isNull();
+        assertThat(registry.find(null)).isNull();
+    }
+
+    @Test
+    void publicViewIsKeyedByPublicId() {
+        Map.Entry<String, FiliaisConfig.FilialConfig> mg = unidade("minas-gerais", "sk_mg");
+        mg.getValue().setPublicId("minasGerais");
+        FilialRegistry registry = registry(config(unidade("brauna", "sk_b"), mg));
+
+        assertThat(registry.getPublicView()).containsOnlyKeys("brauna", "minasGerais");
+    }
+
+    @Test
+    void reloadSwapsSnapshotAndKeepsClientsWhoseKeyDidNotChange() {
+        FilialRegistry registry = registry(config(unidade("brauna", "sk_b"), unidade("minas-gerais", "sk_mg"),
+                unidade("centro", "sk_c")));
+        FilialRegistry.Snapshot before = registry.getSnapshot();
+        PagarmeClient brauna = registry.find("brauna").getClient();
+        PagarmeClient mg = registry.find("minas-gerais").getClient();
+        PagarmeClient centro = registry.find("centro").getClient();
+
+        FilialRegistry.Snapshot after = registry.install(
+                config(unidade("brauna", "sk_b"), unidade("minas-gerais", "sk_mg2")), "teste");
+
+        assertThat(after.getVersion()).isEqualTo(before.getVersion() + 1);
+        assertThat(after.getSource()).isEqualTo("teste");
+        assertThat(registry.getSnapshot()).isSameAs(after);
+        assertThat(registry.find("brauna").getClient()).isSameAs(brauna);
+        assertThat(registry.find("minas-gerais").getClient()).isNotSameAs(mg);
+        assertThat(registry.find("centro")).isNull();
+        assertThat(after.getFilialIds()).containsExactly("brauna", "minas-gerais");
+        // O snapshot antigo não muda: quem ainda o segura vê a configuração anterior inteira
+        assertThat(before.getFilialIds()).containsExactly("brauna", "minas-gerais", "centro");
+
+        Duration grace = new FiliaisConfig.ReloadConfig().getGracePeriod();
+        verify(clientRegistry).retire(mg, grace);
+        verify(clientRegistry).retire(centro, grace);
+        verify(clientRegistry, never()).retire(eq(brauna), any());
+        verify(clientRegistry).retainBulkheads(argThat(ids -> ids.size() == 2
+                && ids.containsAll(List.of("brauna", "minas-gerais"))));
+    }
+
+    @Test
+    void invalidReloadKeepsCurrentSnapshot() {
+        FilialRegistry registry = registry(config(unidade("brauna", "sk_b"), unidade("minas-gerais", "sk_mg", "mg")));
+        FilialRegistry.Snapshot before = registry.getSnapshot();
+
+        // "mg" vira alias de duas filiais; o cliente novo de brauna já foi criado quando o erro aparece
+        FiliaisConfig duplicated = config(unidade("brauna", "sk_b2", "mg"), unidade("minas-gerais", "sk_mg", "mg"));
+        assertThatThrownBy(() -> registry.install(duplicated, "teste"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("mg");
+
+        assertThat(registry.getSnapshot()).isSameAs(before);
+        assertThat(registry.find("mg").getId()).isEqualTo("minas-gerais");
+        PagarmeClient discarded = keys.entrySet().stream()
+                .filter(entry -> entry.getValue().equals("sk_b2"))
+                .findFirst().orElseThrow().getKey();
+        verify(clientRegistry).retire(discarded, Duration.ZERO);
+    }
+
+    @Test
+    void invalidLimitsAreRejectedBeforeAnyClientIsCreated() {
+        FilialRegistry registry = registry(config(unidade("brauna", "sk_b")));
+        FilialRegistry.Snapshot before = registry.getSnapshot();
+        clearInvocations(clientRegistry);
+
+        Map.Entry<String, FiliaisConfig.FilialConfig> brauna = unidade("brauna", "sk_b2");
+        brauna.getValue().getBulkhead().setMaxConcurrentCalls(0);
+        assertThatThrownBy(() -> registry.install(config(brauna), "teste"))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(registry.getSnapshot()).isSameAs(before);
+        assertThat(keys).doesNotContainValue("sk_b2");
+        verify(clientRegistry, never()).configureBulkheads(any());
+        verify(clientRegistry, never()).retainBulkheads(anyCollection());
+    }
+
+    @Test
+    void reloadDropsCustomerCachesOfFiliaisThatChangedAccount() {
+        FilialRegistry registry = registry(config(unidade("brauna", "sk_b"), unidade("minas-gerais", "sk_mg"),
+                unidade("centro", "sk_c")));
+        for (String filialId : List.of("brauna", "minas-gerais", "centro")) {
+            customerIndex.index(filialId, objectMapper.createObjectNode()
+                    .put("id", "cus_" + filialId).put("document", "12345678909"));
+            customerListCache.put(CustomerListCache.key(filialId, new ListCustomersRequest()), new byte[]{'{', '}'});
+        }
+
+        registry.install(config(unidade("brauna", "sk_b"), unidade("minas-gerais", "sk_mg_live")), "teste");
+
+        assertThat(customerIndex.find("brauna", "12345678909", null, null)).isEqualTo("cus_brauna");
+        assertThat(customerListCache.get(CustomerListCache.key("brauna", new ListCustomersRequest()))).isNotNull();
+        for (String filialId : List.of("minas-gerais", "centro")) {
+            assertThat(customerIndex.find(filialId, "12345678909", null, null)).as(filialId).isNull();
+            assertThat(customerListCache.get(CustomerListCache.key(filialId, new ListCustomersRequest())))
+                    .as(filialId).isNull();
+        }
+    }
+
+    private FilialRegistry registry(FiliaisConfig config) {
+        return new FilialRegistry(config, clientRegistry, new PagarmeRateLimiter(new SimpleMeterRegistry()),
+                customerIndex, customerListCache);
+    }
+
+    @SafeVarargs
+    private static FiliaisConfig config(Map.Entry<String, FiliaisConfig.FilialConfig>... unidades) {
+        FiliaisConfig config = new FiliaisConfig();
+        for (Map.Entry<String, FiliaisConfig.FilialConfig> unidade : unidades) {
+            config.getUnidades().put(unidade.getKey(), unidade.getValue());
+        }
+        return config;
+    }
+
+    private static Map.Entry<String, FiliaisConfig.FilialConfig> unidade(String id, String secretKey, String... aliases) {
+        FiliaisConfig.FilialConfig config = new FiliaisConfig.FilialConfig();
+        config.setNome(id);
+        config.setSecretKey(secretKey);
+        config.setAliases(List.of(aliases));
+        return Map.entry(id, config);
+    }
+}
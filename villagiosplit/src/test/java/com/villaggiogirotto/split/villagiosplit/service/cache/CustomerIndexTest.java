@@ -0,0 +1,93 @@
+package com.villaggiogirotto.split.villagiosplit.service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.villaggiogirotto.split.villagiosplit.config.CustomerIndexConfig;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerIndexTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CustomerIndexConfig config = new CustomerIndexConfig();
+    private final CustomerIndex index = new CustomerIndex(config, objectMapper);
+
+    @Test
+    void documentKeyIgnoresFormattingButKeepsLeadingZeros() {
+        assertThat(CustomerIndex.documentKey("123.456.789-09")).isEqualTo(CustomerIndex.documentKey("12345678909"));
+        assertThat(CustomerIndex.documentKey("12.345.678/0001-95")).isEqualTo(CustomerIndex.documentKey("12345678000195"));
+        assertThat(CustomerIndex.documentKey("0123")).isNotEqualTo(CustomerIndex.documentKey("123"));
+        assertThat(CustomerIndex.documentKey("AB123456")).isZero();
+        assertThat(CustomerIndex.documentKey("1234567890123456")).isZero();
+        assertThat(CustomerIndex.documentKey("")).isZero();
+        assertThat(CustomerIndex.documentKey(null)).isZero();
+    }
+
+    @Test
+    void findsByDocumentThenEmailThenCode() {
+        index.index("brauna", customer("cus_1", "123.456.789-09", "Maria@Example.com", "c-1"));
+        index.index("brauna", customer("cus_2", "AB123456", null, null));
+
+        assertThat(index.find("brauna", "12345678909", null, null)).isEqualTo("cus_1");
+        assertThat(index.find("brauna", null, "maria@example.com ", null)).isEqualTo("cus_1");
+        assertThat(index.find("brauna", null, null, "c-1")).isEqualTo("cus_1");
+        assertThat(index.find("brauna", "99999999999", "maria@example.com", null)).isEqualTo("cus_1");
+        assertThat(index.find("brauna", " AB123456 ", null, null)).isEqualTo("cus_2");
+        assertThat(index.find("minas-gerais", "12345678909", null, null)).isNull();
+        assertThat(index.size("brauna")).isEqualTo(2);
+    }
+
+    @Test
+    void updateDropsOldKeys() {
+        index.index("brauna", customer("cus_1", "12345678909", "old@example.com", null));
+
+        index.index("brauna", customer("cus_1", "98765432100", "new@example.com", null));
+
+        assertThat(index.find("brauna", "12345678909", null, null)).isNull();
+        assertThat(index.find("brauna", null, "old@example.com", null)).isNull();
+        assertThat(index.find("brauna", "98765432100", null, null)).isEqualTo("cus_1");
+        assertThat(index.size("brauna")).isEqualTo(1);
+    }
+
+    @Test
+    void indexesListPageInStreaming() {
+        String page = "{\"data\":["
+                + "{\"id\":\"cus_1\",\"name\":\"Maria\",\"document\":\"12345678909\",\"phones\":{\"mobile_phone\":{\"number\":\"9\"}},\"email\":\"m@x.com\"},"
+                + "{\"id\":\"cus_2\",\"document\":\"98765432100\",\"metadata\":{\"code\":\"ignored\"},\"code\":\"c-2\"},"
+                + "{\"name\":\"sem id\",\"document\":\"11144477735\"}"
+                + "],\"paging\":{\"total\":3}}";
+
+        int count = index.indexList("brauna", page.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(count).isEqualTo(3);
+        assertThat(index.size("brauna")).isEqualTo(2);
+        assertThat(index.find("brauna", null, "m@x.com", null)).isEqualTo("cus_1");
+        assertThat(index.find("brauna", null, null, "c-2")).isEqualTo("cus_2");
+        assertThat(index.find("brauna", null, null, "ignored")).isNull();
+        assertThat(index.find("brauna", "11144477735", null, null)).isNull();
+        assertThat(index.indexList("brauna", "not json".getBytes(StandardCharsets.UTF_8))).isZero();
+    }
+
+    @Test
+    void disabledIndexStoresNothing() {
+        config.setEnabled(false);
+
+        index.index("brauna", customer("cus_1", "12345678909", null, null));
+
+        assertThat(index.indexList("brauna", "{\"data\":[{\"id\":\"cus_2\"}]}".getBytes(StandardCharsets.UTF_8))).isZero();
+        assertThat(index.find("brauna", "12345678909", null, null)).isNull();
+    }
+
+    private ObjectNode customer(String id, String document, String email, String code) {
+        ObjectNode customer = objectMapper.createObjectNode();
+        customer.put("id", id);
+        customer.put("document", document);
+        customer.put("email", email);
+        customer.put("code", code);
+        customer.putObject("address").put("city", "Belo Horizonte");
+        return customer;
+    }
+}
@@ -0,0 +1,40 @@
+package com.villaggiogirotto.split.villagiosplit.service.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentSetTest {
+
+    @Test
+    void addReportsDuplicatesPerFilial() {
+        DocumentSet documents = new DocumentSet();
+
+        assertThat(documents.add("brauna", "123.456.789-09")).isTrue();
+        assertThat(documents.add("brauna", "12345678909")).isFalse();
+        assertThat(documents.add("minas-gerais", "12345678909")).isTrue();
+        assertThat(documents.add("brauna", "ab123456")).isTrue();
+        assertThat(documents.add("brauna", " AB123456 ")).isFalse();
+
+        assertThat(documents.contains("brauna", "12345678909")).isTrue();
+        assertThat(documents.contains("brauna", "AB123456")).isTrue();
+        assertThat(documents.contains("minas-gerais", "AB123456")).isFalse();
+        assertThat(documents.contains("centro", "12345678909")).isFalse();
+        assertThat(documents.size()).isEqualTo(3);
+    }
+
+    @Test
+    void keepsEveryDocumentAcrossResizes() {
+        DocumentSet documents = new DocumentSet();
+        for (long cpf = 10_000_000_000L; cpf < 10_000_005_000L; cpf++) {
+            assertThat(documents.add("brauna", Long.toString(cpf))).isTrue();
+        }
+
+        for (long cpf = 10_000_000_000L; cpf < 10_000_005_000L; cpf++) {
+            assertThat(documents.contains("brauna", Long.toString(cpf))).isTrue();
+            assertThat(documents.add("brauna", Long.toString(cpf))).isFalse();
+        }
+        assertThat(documents.contains("brauna", "10000005000")).isFalse();
+        assertThat(documents.size()).isEqualTo(5_000);
+    }
+}
@@ -0,0 +1,80 @@
+package com.villaggiogirotto.split.villagiosplit.service.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LongStringMapTest {
+
+    @Test
+    void putGetAndOverwrite() {
+        LongStringMap map = new LongStringMap();
+
+        map.put(42, "cus_a");
+        map.put(-7, "cus_b");
+        map.put(42, "cus_c");
+
+        assertThat(map.get(42)).isEqualTo("cus_c");
+        assertThat(map.get(-7)).isEqualTo("cus_b");
+        assertThat(map.get(43)).isNull();
+        assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsReservedKey() {
+        assertThatThrownBy(() -> new LongStringMap().put(0, "cus_a"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void keepsProbeChainsAcrossResizeAndRemoval() {
+        // Chaves sequenciais e múltiplos da capacidade forçam colisões e várias expansões;
+        // as remoções no meio das sondagens testam o deslocamento para trás
+        LongStringMap map = new LongStringMap();
+        Map<Long, String> expected = new HashMap<>();
+        List<Long> keys = new ArrayList<>();
+        for (long i = 1; i <= 5_000; i++) {
+            keys.add(i);
+            keys.add(i << 16);
+        }
+        for (long key : keys) {
+            map.put(key, "cus_" + key);
+            expected.put(key, "cus_" + key);
+        }
+
+        Random random = new Random(7);
+        for (int i = 0; i < 4_000; i++) {
+            long key = keys.get(random.nextInt(keys.size()));
+            map.remove(key);
+            expected.remove(key);
+        }
+        map.remove(123_456_789L); // Ausente: nada muda
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key : keys) {
+            assertThat(map.get(key)).as("chave %d", key).isEqualTo(expected.get(key));
+        }
+    }
+
+    @Test
+    void clearEmptiesMap() {
+        LongStringMap map = new LongStringMap();
+        for (long i = 1; i <= 100; i++) {
+            map.put(i, "cus_" + i);
+        }
+
+        map.clear();
+
+        assertThat(map.size()).isZero();
+        assertThat(map.get(1)).isNull();
+        map.put(1, "cus_x");
+        assertThat(map.get(1)).isEqualTo("cus_x");
+    }
+}
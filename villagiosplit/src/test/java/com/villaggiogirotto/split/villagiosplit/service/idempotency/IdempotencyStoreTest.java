@@ -0,0 +1,195 @@
+package com.villaggiogirotto.split.villagiosplit.service.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.villaggiogirotto.split.villagiosplit.client.PagarmeRateLimiter;
+import com.villaggiogirotto.split.villagiosplit.config.IdempotencyConfig;
+import com.villaggiogirotto.split.villagiosplit.dto.OrderSummaryDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyStoreTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final IdempotencyConfig config = new IdempotencyConfig();
+    private IdempotencyStore store;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (store != null) {
+            store.stop();
+        }
+    }
+
+    @Test
+    void replaysStoredResultWithoutSecondCall() {
+        store = start();
+        AtomicInteger calls = new AtomicInteger();
+
+        StepVerifier.create(store.execute("brauna", "k1", "fp", () -> order(calls, "or_1")))
+                .assertNext(summary -> assertThat(summary.getOrderId()).isEqualTo("or_1"))
+                .verifyComplete();
+        StepVerifier.create(store.execute("brauna", "k1", "fp", () -> order(calls, "or_2")))
+                .assertNext(summary -> assertThat(summary.getOrderId()).isEqualTo("or_1"))
+                .verifyComplete();
+
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void keysAreScopedByFilial() {
+        store = start();
+        AtomicInteger calls = new AtomicInteger();
+
+        store.execute("brauna", "k1", "fp", () -> order(calls, "or_1")).block();
+        OrderSummaryDTO other = store.execute("minas-gerais", "k1", "fp", () -> order(calls, "or_2")).block();
+
+        assertThat(other.getOrderId()).isEqualTo("or_2");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void rejectsSameKeyWithAnotherOrder() {
+        store = start();
+        AtomicInteger calls = new AtomicInteger();
+        store.execute("brauna", "k1", "fp-a", () -> order(calls, "or_1")).block();
+
+        StepVerifier.create(store.execute("brauna", "k1", "fp-b", () -> order(calls, "or_2")))
+                .expectErrorSatisfies(ex -> assertThat(ex)
+                        .isInstanceOf(IllegalArgumentException.class)
+                        .hasMessageContaining("k1"))
+                .verify();
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void concurrentDuplicateJoinsCallInFlight() {
+        store = start();
+        Sinks.One<OrderSummaryDTO> response = Sinks.one();
+        AtomicInteger calls = new AtomicInteger();
+
+        AtomicReference<OrderSummaryDTO> first = new AtomicReference<>();
+        AtomicReference<OrderSummaryDTO> second = new AtomicReference<>();
+        store.execute("brauna", "k1", "fp", () -> {
+            calls.incrementAndGet();
+            return response.asMono();
+        }).subscribe(first::set);
+        store.execute("brauna", "k1", "fp", () -> {
+            calls.incrementAndGet();
+            return response.asMono();
+        }).subscribe(second::set);
+
+        assertThat(calls).hasValue(1);
+        assertThat(first).hasValue(null);
+
+        response.tryEmitValue(summary("or_1"));
+
+        assertThat(first.get().getOrderId()).isEqualTo("or_1");
+        assertThat(second.get()).isSameAs(first.get());
+    }
+
+    @Test
+    void failuresAreNotStored() {
+        store = start();
+        AtomicInteger calls = new AtomicInteger();
+
+        StepVerifier.create(store.execute("brauna", "k1", "fp", () -> {
+                    calls.incrementAndGet();
+                    return Mono.<OrderSummaryDTO>error(new IllegalStateException("Pagar.me fora"));
+                }))
+                .expectErrorMessage("Pagar.me fora")
+                .verify();
+        StepVerifier.create(store.execute("brauna", "k1", "fp", () -> order(calls, "or_1")))
+                .assertNext(summary -> assertThat(summary.getOrderId()).isEqualTo("or_1"))
+                .verifyComplete();
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void callRunsWithCallerContext() {
+        store = start();
+        AtomicReference<Boolean> batch = new AtomicReference<>();
+
+        store.execute("brauna", "k1", "fp", () -> Mono.deferContextual(context -> {
+                    // A prioridade de lote tem que chegar ao rate limiter, abaixo da store
+                    batch.set(context.stream().anyMatch(entry -> entry.getValue() == PagarmeRateLimiter.Priority.BATCH));
+                    return Mono.just(summary("or_1"));
+                }))
+                .contextWrite(PagarmeRateLimiter.batch())
+                .block();
+
+        assertThat(batch).hasValue(true);
+    }
+
+    @Test
+    void fileSurvivesRestartAndIsCompacted(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("idempotency.jsonl");
+        config.setFile(file.toString());
+        store = start();
+        AtomicInteger calls = new AtomicInteger();
+
+        OrderSummaryDTO withOrder = summary("or_1");
+        withOrder.setOrder(JsonNodeFactory.instance.objectNode().put("id", "or_1"));
+        store.execute("brauna", "k1", "fp", () -> Mono.just(withOrder)).block();
+        store.stop(); // Espera a gravação pendente
+
+        // Linha vencida e linha corrompida somem na compactação
+        String expired = "{\"key\":\"brauna:old\",\"fingerprint\":\"fp\",\"storedAt\":"
+                + Instant.now().minus(Duration.ofDays(2)).toEpochMilli() + ",\"summary\":{\"orderId\":\"or_0\"}}";
+        Files.write(file, List.of(expired, "{quebrada"), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        store = start();
+
+        OrderSummaryDTO replayed = store.execute("brauna", "k1", "fp", () -> order(calls, "or_2")).block();
+        assertThat(replayed.getOrderId()).isEqualTo("or_1");
+        assertThat(replayed.getOrder()).isNull(); // O pedido completo não vai para o arquivo
+        assertThat(calls).hasValue(0);
+        assertThat(store.size()).isEqualTo(1);
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(1);
+        assertThat(objectMapper.readTree(lines.get(0)).path("key").asText()).isEqualTo("brauna:k1");
+    }
+
+    private IdempotencyStore start() {
+        IdempotencyStore started = new IdempotencyStore(config, objectMapper);
+        try {
+            started.start();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return started;
+    }
+
+    private static Mono<OrderSummaryDTO> order(AtomicInteger calls, String orderId) {
+        return Mono.fromSupplier(() -> {
+            calls.incrementAndGet();
+            return summary(orderId);
+        });
+    }
+
+    private static OrderSummaryDTO summary(String orderId) {
+        OrderSummaryDTO summary = new OrderSummaryDTO();
+        summary.setOrderId(orderId);
+        summary.setOrderStatus("pending");
+        return summary;
+    }
+}
@@ -0,0 +1,87 @@
+package com.villaggiogirotto.split.villagiosplit.service.payload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.villaggiogirotto.split.villagiosplit.controller.requests.CreateOrderRequest;
+import com.villaggiogirotto.split.villagiosplit.dto.CartItemDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Os arquivos *.payload.json em payload/orders foram gerados pelo antigo
+ * buildOrderPayload (HashMaps serializados pelo Jackson) a partir dos
+ * *.request.json ao lado; o writer tem que produzir o mesmo JSON.
+ */
+class OrderPayloadWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OrderPayloadWriter writer = new OrderPayloadWriter(objectMapper);
+
+    @ParameterizedTest
+    @ValueSource(strings = {"credit-card", "card-token", "debit-card", "pix", "boleto"})
+    void writesSamePayloadAsHashMapBuilder(String fixture) throws IOException {
+        CreateOrderRequest req = objectMapper.readValue(resource(fixture + ".request.json"), CreateOrderRequest.class);
+
+        JsonNode written = objectMapper.readTree(writer.write(req));
+
+        assertThat(written).isEqualTo(objectMapper.readTree(resource(fixture + ".payload.json")));
+    }
+
+    @Test
+    void generatesItemCodeWhenMissing() throws IOException {
+        CreateOrderRequest req = objectMapper.readValue(resource("pix.request.json"), CreateOrderRequest.class);
+        CartItemDTO item = new CartItemDTO();
+        item.setName("Café");
+        item.setAmount(1500);
+        req.setItems(List.of(item));
+
+        JsonNode written = objectMapper.readTree(writer.write(req)).path("items").path(0);
+
+        assertThat(written.path("description").asText()).isEqualTo("Café");
+        assertThat(written.path("quantity").asInt()).isEqualTo(1);
+        assertThat(UUID.fromString(written.path("code").asText())).isNotNull();
+    }
+
+    @Test
+    void rejectsInvalidRequestsWithSameMessages() throws IOException {
+        CreateOrderRequest noCustomer = objectMapper.readValue(resource("pix.request.json"), CreateOrderRequest.class);
+        noCustomer.setCustomerId(null);
+        assertThatThrownBy(() -> writer.write(noCustomer))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Customer ou customer_id deve ser informado");
+
+        CreateOrderRequest noItems = objectMapper.readValue(resource("pix.request.json"), CreateOrderRequest.class);
+        noItems.setAmount(null);
+        assertThatThrownBy(() -> writer.write(noItems))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Items ou amount deve ser informado");
+
+        CreateOrderRequest badMethod = objectMapper.readValue(resource("pix.request.json"), CreateOrderRequest.class);
+        badMethod.setPaymentMethod("cheque");
+        assertThatThrownBy(() -> writer.write(badMethod))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Método de pagamento inválido: cheque");
+
+        CreateOrderRequest noCard = objectMapper.readValue(resource("card-token.request.json"), CreateOrderRequest.class);
+        noCard.setCreditCard(null);
+        assertThatThrownBy(() -> writer.write(noCard))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Dados do cartão de crédito são obrigatórios");
+    }
+
+    private static byte[] resource(String name) throws IOException {
+        try (InputStream in = OrderPayloadWriterTest.class.getResourceAsStream("/payload/orders/" + name)) {
+            assertThat(in).as(name).isNotNull();
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.villaggiogirotto.split.villagiosplit.service.payload;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.villaggiogirotto.split.villagiosplit.client.ResponseReader;
+import com.villaggiogirotto.split.villagiosplit.dto.OrderSummaryDTO;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Os arquivos em payload/responses são respostas de GET /orders no formato da
+ * Pagar.me (v5), com cliente, itens, split e cartão que o reader precisa pular.
+ */
+class OrderSummaryReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void readsPixTransaction() throws IOException {
+        OrderSummaryDTO summary = read(OrderSummaryReader.INSTANCE, "pix.order.json");
+
+        assertThat(summary.getOrderId()).isEqualTo("or_56GXnk6T0eU88qMm");
+        assertThat(summary.getOrderCode()).isEqualTo("VG-1001");
+        assertThat(summary.getOrderStatus()).isEqualTo("pending");
+        assertThat(summary.getChargeId()).isEqualTo("ch_d22356Jf4WuGr8no");
+        assertThat(summary.getChargeStatus()).isEqualTo("pending");
+        assertThat(summary.getTransactionId()).isEqualTo("tran_Q4YmZLJf8QuoMeK8");
+        assertThat(summary.getTransactionType()).isEqualTo("pix");
+        assertThat(summary.getTransactionStatus()).isEqualTo("waiting_payment");
+        assertThat(summary.getQrCode()).startsWith("00020101021226820014br.gov.bcb.pix");
+        assertThat(summary.getQrCodeUrl()).endsWith("/qrcode?payment_method=pix");
+        assertThat(summary.getExpiresAt()).isEqualTo("2025-03-10T19:02:11Z");
+        assertThat(summary.getUrl()).isNull();
+        assertThat(summary.getOrder()).isNull();
+    }
+
+    @Test
+    void readsBoletoTransaction() throws IOException {
+        OrderSummaryDTO summary = read(OrderSummaryReader.INSTANCE, "boleto.order.json");
+
+        assertThat(summary.getOrderId()).isEqualTo("or_J2p7Bd3FwzHLW9oE");
+        assertThat(summary.getTransactionType()).isEqualTo("boleto");
+        assertThat(summary.getTransactionStatus()).isEqualTo("generated");
+        assertThat(summary.getUrl()).endsWith("/tran_8mD3kJq0XrLw5PzB/pdf");
+        assertThat(summary.getPdf()).endsWith("/tran_8mD3kJq0XrLw5PzB/pdf");
+        assertThat(summary.getBarcode()).endsWith("/tran_8mD3kJq0XrLw5PzB/barcode");
+        assertThat(summary.getDueAt()).isEqualTo("2025-03-14T23:59:59Z");
+    }
+
+    @Test
+    void readsOnlyFirstChargeAndSkipsCardData() throws IOException {
+        OrderSummaryDTO summary = read(OrderSummaryReader.INSTANCE, "credit-card.order.json");
+
+        assertThat(summary.getOrderStatus()).isEqualTo("paid");
+        assertThat(summary.getChargeId()).isEqualTo("ch_Rm2Xw9Kq7ZpL4Nb0");
+        assertThat(summary.getChargeStatus()).isEqualTo("paid");
+        assertThat(summary.getTransactionId()).isEqualTo("tran_Vn5Bq8Lw2XzM7Kp1");
+        assertThat(summary.getTransactionType()).isEqualTo("credit_card");
+        assertThat(summary.getTransactionStatus()).isEqualTo("captured");
+        assertThat(summary.getQrCode()).isNull();
+    }
+
+    @Test
+    void withOrderKeepsFullOrderTree() throws IOException {
+        byte[] body = resource("credit-card.order.json");
+
+        OrderSummaryDTO summary = read(OrderSummaryReader.WITH_ORDER, body);
+
+        assertThat(summary.getOrder()).isEqualTo(objectMapper.readTree(body));
+        assertThat(summary).usingRecursiveComparison().ignoringFields("order")
+                .isEqualTo(read(OrderSummaryReader.INSTANCE, body));
+        assertThat(OrderSummaryReader.of(true)).isSameAs(OrderSummaryReader.WITH_ORDER);
+        assertThat(OrderSummaryReader.of(false)).isSameAs(OrderSummaryReader.INSTANCE);
+    }
+
+    @Test
+    void toleratesMissingOrUnexpectedCharges() throws IOException {
+        OrderSummaryDTO noCharges = read(OrderSummaryReader.INSTANCE,
+                "{\"id\":\"or_1\",\"status\":\"canceled\",\"amount\":100}".getBytes());
+        assertThat(noCharges.getOrderId()).isEqualTo("or_1");
+        assertThat(noCharges.getChargeId()).isNull();
+
+        OrderSummaryDTO oddCharges = read(OrderSummaryReader.INSTANCE,
+                "{\"charges\":{\"id\":\"ch_x\"},\"id\":\"or_2\"}".getBytes());
+        assertThat(oddCharges.getOrderId()).isEqualTo("or_2");
+        assertThat(oddCharges.getChargeId()).isNull();
+
+        OrderSummaryDTO nullTransaction = read(OrderSummaryReader.INSTANCE,
+                "{\"charges\":[{\"id\":\"ch_y\",\"last_transaction\":null}],\"code\":123}".getBytes());
+        assertThat(nullTransaction.getChargeId()).isEqualTo("ch_y");
+        assertThat(nullTransaction.getTransactionId()).isNull();
+        assertThat(nullTransaction.getOrderCode()).isEqualTo("123");
+    }
+
+    @Test
+    void rejectsNonObjectResponse() {
+        assertThatThrownBy(() -> read(OrderSummaryReader.INSTANCE, "[]".getBytes()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Resposta de pedido inesperada");
+    }
+
+    @Test
+    void firstInPageReadsFirstOrderOfListing() throws IOException {
+        // GET /orders?code=: a página traz o pedido inteiro, como em GET /orders/{id}
+        String page = "{\"data\":[" + new String(resource("pix.order.json"), StandardCharsets.UTF_8) + ","
+                + new String(resource("boleto.order.json"), StandardCharsets.UTF_8) + "],"
+                + "\"paging\":{\"total\":2}}";
+
+        OrderSummaryDTO summary = read(OrderSummaryReader.FIRST_IN_PAGE, page.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(summary.getOrderId()).isEqualTo("or_56GXnk6T0eU88qMm");
+        assertThat(summary.getOrderCode()).isEqualTo("VG-1001");
+        assertThat(summary.getTransactionType()).isEqualTo("pix");
+    }
+
+    @Test
+    void firstInPageReturnsNullForEmptyListing() throws IOException {
+        assertThat(read(OrderSummaryReader.FIRST_IN_PAGE, "{\"data\":[],\"paging\":{\"total\":0}}".getBytes())).isNull();
+        assertThat(read(OrderSummaryReader.FIRST_IN_PAGE, "{\"paging\":{}}".getBytes())).isNull();
+        assertThatThrownBy(() -> read(OrderSummaryReader.FIRST_IN_PAGE, "[]".getBytes()))
+                .isInstanceOf(IOException.class);
+    }
+
+    private OrderSummaryDTO read(OrderSummaryReader reader, String fixture) throws IOException {
+        return read(reader, resource(fixture));
+    }
+
+    private OrderSummaryDTO read(ResponseReader<OrderSummaryDTO> reader, byte[] body) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            return reader.read(parser);
+        }
+    }
+
+    private static byte[] resource(String name) throws IOException {
+        try (InputStream in = OrderSummaryReaderTest.class.getResourceAsStream("/payload/responses/" + name)) {
+            assertThat(in).as(name).isNotNull();
+            return in.readAllBytes();
+        }
+    }
+}
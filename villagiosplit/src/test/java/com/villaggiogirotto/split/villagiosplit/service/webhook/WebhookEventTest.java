@@ -0,0 +1,84 @@
+package com.villaggiogirotto.split.villagiosplit.service.webhook;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Os arquivos em webhook/ seguem o formato dos webhooks da Pagar.me (v5)
+ */
+class WebhookEventTest {
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Test
+    void readsOrderAndFirstChargeFromOrderEvent() throws IOException {
+        WebhookEvent event = WebhookEvent.parse(jsonFactory, resource("order.paid.json"), "brauna");
+
+        assertThat(event).isNotNull();
+        assertThat(event.getId()).isEqualTo("hook_RyEKQO789TRpZjv5");
+        assertThat(event.getType()).isEqualTo("order.paid");
+        assertThat(event.getFilialId()).isEqualTo("brauna");
+        assertThat(event.getCreatedAt()).isEqualTo(Instant.parse("2025-03-10T18:05:41Z"));
+        assertThat(event.getOrderId()).isEqualTo("or_56GXnk6T0eU88qMm");
+        assertThat(event.getOrderCode()).isEqualTo("VG-1001");
+        assertThat(event.getOrderStatus()).isEqualTo("paid");
+        assertThat(event.getChargeId()).isEqualTo("ch_d22356Jf4WuGr8no");
+        assertThat(event.getChargeStatus()).isEqualTo("paid");
+    }
+
+    @Test
+    void readsChargeAndEmbeddedOrderFromChargeEvent() throws IOException {
+        WebhookEvent event = WebhookEvent.parse(jsonFactory, resource("charge.refunded.json"), "brauna");
+
+        assertThat(event).isNotNull();
+        assertThat(event.getType()).isEqualTo("charge.refunded");
+        assertThat(event.getChargeId()).isEqualTo("ch_Rm2Xw9Kq7ZpL4Nb0");
+        assertThat(event.getChargeStatus()).isEqualTo("refunded");
+        assertThat(event.getOrderId()).isEqualTo("or_Lk0p9XwZ1mJq2Rb7");
+        assertThat(event.getOrderCode()).isEqualTo("VG-1003");
+        assertThat(event.getOrderStatus()).isEqualTo("canceled");
+        // Sem fuso: tratado como UTC
+        assertThat(event.getCreatedAt()).isEqualTo(Instant.parse("2025-03-13T10:20:00Z"));
+    }
+
+    @Test
+    void ignoresEventsWithoutOrder() throws IOException {
+        assertThat(WebhookEvent.parse(jsonFactory, resource("customer.created.json"), "brauna")).isNull();
+        assertThat(parse("{\"id\":\"hook_1\",\"type\":\"charge.paid\",\"data\":{\"id\":\"ch_1\",\"status\":\"paid\"}}"))
+                .isNull();
+        assertThat(parse("{\"type\":\"order.paid\",\"data\":{\"id\":\"or_1\"}}")).isNull();
+        assertThat(parse("{\"id\":\"hook_1\",\"type\":\"order.paid\",\"data\":\"or_1\"}")).isNull();
+        assertThat(parse("[]")).isNull();
+    }
+
+    @Test
+    void fallsBackToNowWhenCreatedAtIsMissingOrInvalid() throws IOException {
+        Instant before = Instant.now();
+
+        WebhookEvent missing = parse("{\"id\":\"hook_1\",\"type\":\"order.created\",\"data\":{\"id\":\"or_1\"}}");
+        WebhookEvent invalid = parse("{\"id\":\"hook_2\",\"type\":\"order.created\",\"created_at\":\"ontem\","
+                + "\"data\":{\"id\":\"or_1\",\"charges\":[]}}");
+
+        assertThat(missing.getCreatedAt()).isAfterOrEqualTo(before);
+        assertThat(invalid.getCreatedAt()).isAfterOrEqualTo(before);
+        assertThat(invalid.getChargeId()).isNull();
+    }
+
+    private WebhookEvent parse(String body) throws IOException {
+        return WebhookEvent.parse(jsonFactory, body.getBytes(StandardCharsets.UTF_8), "brauna");
+    }
+
+    private static byte[] resource(String name) throws IOException {
+        try (InputStream in = WebhookEventTest.class.getResourceAsStream("/webhook/" + name)) {
+            assertThat(in).as(name).isNotNull();
+            return in.readAllBytes();
+        }
+    }
+}
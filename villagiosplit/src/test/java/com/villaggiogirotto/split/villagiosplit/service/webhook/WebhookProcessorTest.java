@@ -0,0 +1,172 @@
+package com.villaggiogirotto.split.villagiosplit.service.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.villaggiogirotto.split.villagiosplit.config.FilialRegistry;
+import com.villaggiogirotto.split.villagiosplit.config.WebhookConfig;
+import com.villaggiogirotto.split.villagiosplit.service.state.OrderStateStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WebhookProcessorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OrderStateStore orderStateStore = mock(OrderStateStore.class);
+    private final AtomicInteger appliedEvents = new AtomicInteger();
+    private WebhookProcessor processor;
+
+    @AfterEach
+    void tearDown() {
+        if (processor != null) {
+            processor.shutdown();
+        }
+    }
+
+    @Test
+    void keepsProcessingWhileAllWorkersAreBusy() throws InterruptedException {
+        // Lotes lentos com os tamanhos padrão: o timer fecha lotes parciais com os dois workers ocupados
+        when(orderStateStore.applyAll(anyList())).thenAnswer(invocation -> {
+            List<WebhookEvent> batch = invocation.getArgument(0);
+            Thread.sleep(300);
+            appliedEvents.addAndGet(batch.size());
+            return batch.size();
+        });
+        processor = processor(new WebhookConfig());
+
+        int sent = 0;
+        for (int burst = 0; burst < 8; burst++) {
+            for (int i = 0; i < 150; i++) {
+                assertThat(processor.offer(event(sent++), "brauna")).isTrue();
+            }
+            Thread.sleep(120);
+        }
+
+        int total = sent;
+        await().atMost(Duration.ofSeconds(15)).untilAsserted(() -> assertThat(appliedEvents).hasValue(total));
+        assertThat(processor.offer(event(sent), "brauna")).isTrue();
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(appliedEvents).hasValue(total + 1));
+    }
+
+    @Test
+    void failedBatchDoesNotStopPipelineAndIsNotMarkedApplied() {
+        AtomicInteger calls = new AtomicInteger();
+        when(orderStateStore.applyAll(anyList())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("falha no store");
+            }
+            List<WebhookEvent> batch = invocation.getArgument(0);
+            appliedEvents.addAndGet(batch.size());
+            return batch.size();
+        });
+        processor = processor(new WebhookConfig());
+
+        processor.offer(event(1), "brauna");
+        await().atMost(Duration.ofSeconds(5)).until(() -> calls.get() == 1);
+
+        // O reenvio do mesmo evento é aplicado: a falha não o marcou como visto
+        processor.offer(event(1), "brauna");
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(appliedEvents).hasValue(1));
+
+        processor.offer(event(1), "brauna");
+        await().atMost(Duration.ofSeconds(5)).until(() ->
+                meterRegistry.get("pagarme.webhooks").tag("result", "duplicate").counter().count() == 1);
+        assertThat(appliedEvents).hasValue(1);
+    }
+
+    @Test
+    void brokenEventCountsAsInvalid() {
+        when(orderStateStore.applyAll(anyList())).thenAnswer(invocation -> {
+            List<WebhookEvent> batch = invocation.getArgument(0);
+            appliedEvents.addAndGet(batch.size());
+            return batch.size();
+        });
+        FilialRegistry filialRegistry = mock(FilialRegistry.class);
+        when(filialRegistry.find("quebrada")).thenThrow(new IllegalStateException("registro indisponível"));
+        processor = new WebhookProcessor(new WebhookConfig(), new ObjectMapper(), orderStateStore, filialRegistry,
+                meterRegistry);
+
+        processor.offer(event(1), "quebrada");
+        processor.offer(event(2), "brauna");
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(appliedEvents).hasValue(1));
+        assertThat(meterRegistry.get("pagarme.webhooks").tag("result", "invalid").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void resubscribesAfterPipelineFailureKeepingQueuedEvents() throws InterruptedException {
+        when(orderStateStore.applyAll(anyList())).thenAnswer(invocation -> {
+            List<WebhookEvent> batch = invocation.getArgument(0);
+            appliedEvents.addAndGet(batch.size());
+            return batch.size();
+        });
+        // Um Error escapa do tratamento por evento e derruba o pipeline
+        AtomicBoolean failed = new AtomicBoolean();
+        FilialRegistry filialRegistry = mock(FilialRegistry.class);
+        when(filialRegistry.find("quebrada")).thenAnswer(invocation -> {
+            failed.set(true);
+            throw new AssertionError("falha inesperada");
+        });
+        processor = new WebhookProcessor(new WebhookConfig(), new ObjectMapper(), orderStateStore, filialRegistry,
+                meterRegistry);
+
+        processor.offer(event(1), "quebrada");
+        await().atMost(Duration.ofSeconds(5)).untilTrue(failed);
+        Thread.sleep(100);
+
+        // Sem assinante até a nova tentativa: o evento fica na fila e é aplicado depois
+        assertThat(processor.offer(event(2), "brauna")).isTrue();
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> assertThat(appliedEvents).hasValue(1));
+        assertThat(processor.offer(event(3), "brauna")).isTrue();
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(appliedEvents).hasValue(2));
+    }
+
+    @Test
+    void reportsQueuedEventsAndRejectsWhenFull() {
+        CountDownLatch release = new CountDownLatch(1);
+        when(orderStateStore.applyAll(anyList())).thenAnswer(invocation -> {
+            release.await();
+            return 0;
+        });
+        WebhookConfig config = new WebhookConfig();
+        config.setQueueCapacity(1024);
+        processor = processor(config);
+
+        int accepted = 0;
+        for (int i = 0; i < 5_000; i++) {
+            if (processor.offer(event(i), "brauna")) {
+                accepted++;
+            }
+        }
+
+        try {
+            assertThat(accepted).isLessThan(5_000);
+            assertThat(processor.queued()).isPositive().isLessThanOrEqualTo(1024);
+            assertThat(meterRegistry.get("pagarme.webhooks.queue").gauge().value()).isEqualTo(processor.queued());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private WebhookProcessor processor(WebhookConfig config) {
+        return new WebhookProcessor(config, new ObjectMapper(), orderStateStore, mock(FilialRegistry.class),
+                meterRegistry);
+    }
+
+    private static byte[] event(int i) {
+        return ("{\"id\":\"hook_" + i + "\",\"type\":\"order.paid\",\"created_at\":\"2025-03-10T18:05:41Z\","
+                + "\"data\":{\"id\":\"or_" + i + "\",\"status\":\"paid\"}}").getBytes(StandardCharsets.UTF_8);
+    }
+}
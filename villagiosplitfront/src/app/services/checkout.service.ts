@@ -118,13 +118,13 @@ export class CheckoutService {
   /**
    * 🆕 NOVO - Opcional: Buscar status de um pedido
    * Útil para verificar se o pagamento foi confirmado
+   *
+   * Aceita o ID da Pagar.me ou o code do pedido. A API responde do estado
+   * local (webhooks), então pode ser consultado em intervalos curtos.
    */
-  getOrderStatus(orderId: string, secretKey: string): Observable<any> {
-    const headers = new HttpHeaders({
-      'Content-Type': 'application/json',
-      Authorization: 'Basic ' + secretKey,
-    });
+  getOrderStatus(orderId: string, filialId?: string): Observable<any> {
+    const params: Record<string, string> = filialId ? { filialId } : {};
 
-    return this.http.get(this.api + '/orders/' + orderId, { headers });
+    return this.http.get(this.api + '/orders/' + encodeURIComponent(orderId), { params });
   }
 }
@@ -119,6 +119,9 @@ export class CustomerService {
     // Adiciona filialId aos params
     params = params.set('filialId', filialId);
 
+    // Resposta da Pagar.me repassada sem reprocessamento no backend (mesmo formato)
+    params = params.set('passthrough', 'true');
+
     return this.http.get<CustomerListResponse>(`${this.api}/customers`, {
       headers,
       params,